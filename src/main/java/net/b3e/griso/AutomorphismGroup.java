@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The automorphisms of a graph as returned by
+ * {@link Graph#findAutomorphisms(SearchBudget, LabellingListener)}.
+ * The group is described by a set of generators and the orbits
+ * of the vertices.
+ *
+ * If the search was aborted because its budget was exhausted,
+ * only the automorphisms found until then are included. Vertices
+ * in the same orbit are still related by an automorphism but an
+ * orbit of the complete group may be split into several orbits.
+ *
+ * @param <I> Type of vertex ids
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class AutomorphismGroup<I> {
+
+	private final List<Map<I, I>> generators;
+	private final List<Set<I>> orbits;
+	private final boolean complete;
+
+	AutomorphismGroup(final List<Map<I, I>> generators, final List<Set<I>> orbits,
+			final boolean complete) {
+		this.generators = Collections.unmodifiableList(generators);
+		this.orbits = Collections.unmodifiableList(orbits);
+		this.complete = complete;
+	}
+
+	/**
+	 * Returns automorphisms which generate the group. Each
+	 * automorphism maps vertex ids onto vertex ids. Vertices
+	 * which are mapped onto themselves are omitted.
+	 *
+	 * @return the generators of the group
+	 */
+	public List<Map<I, I>> getGenerators() {
+		return generators;
+	}
+
+	/**
+	 * Returns the orbits of the vertices. Two vertices are in the
+	 * same orbit if an automorphism maps one onto the other.
+	 *
+	 * @return the orbits ordered by the vertex which was added
+	 *         first. Each orbit lists its vertices in the order
+	 *         in which they were added.
+	 */
+	public List<Set<I>> getOrbits() {
+		return orbits;
+	}
+
+	/**
+	 * Returns false if the search was aborted because its budget
+	 * was exhausted.
+	 *
+	 * @return true if the group contains all automorphisms
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+}
@@ -0,0 +1,329 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds automorphisms of a graph as a by-product of the search
+ * of the {@link GraphLabeller}. Every labelling which matches the
+ * first labelling of the graph defines an automorphism: the node
+ * with a label in the first labelling is mapped to the node with
+ * the same label in the other labelling.
+ *
+ * The automorphisms are used to prune the search. An alternative
+ * is skipped if an automorphism which fixes the nodes selected on
+ * the path to the current search level maps it to an alternative
+ * which was already explored. When an automorphism is found, the
+ * search returns to the level at which the current path left the
+ * path of the first labelling. The subtree below that level is
+ * the image of a subtree which has been explored completely.
+ *
+ * An automorphism is only kept as a generator if it joins orbits
+ * of the automorphisms which fix the common part of both paths.
+ * The generators found this way generate the automorphism group
+ * of the graph. There are at most n - 1 of them for a graph
+ * with n nodes. The orbits of the group are maintained in a
+ * union-find structure.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class Automorphisms implements SearchPruner {
+
+	private final int nodeCount;
+	private final LabellingListener listener;
+	private final List<int[]> generators = new ArrayList<>();
+	private final int[] orbits;
+
+	private final int[] path;
+	private int pathLength;
+	private int[] firstPath;
+	private final int[][] explored;
+	private final int[] exploredCount;
+
+	private final int[] stabiliserOrbits;
+	private int stabiliserDepth = -1;
+	private int stabiliserGeneratorCount;
+
+	/**
+	 * Creates an empty set of automorphisms which is filled by
+	 * {@link #search(GraphLabeller)}.
+	 *
+	 * @param nodeCount number of nodes of the graph
+	 * @param listener notified about each automorphism found
+	 */
+	Automorphisms(final int nodeCount, final LabellingListener listener) {
+		this.nodeCount = nodeCount;
+		this.listener = listener;
+		orbits = createUnionFind(nodeCount);
+		path = new int[nodeCount];
+		explored = new int[nodeCount][];
+		exploredCount = new int[nodeCount];
+		stabiliserOrbits = new int[nodeCount];
+	}
+
+	/**
+	 * Searches the automorphisms of a graph.
+	 *
+	 * @param graph to search
+	 * @param budgetMonitor limiting the search
+	 * @return the automorphisms of the graph
+	 * @throws BudgetExhaustedException if the budget is exhausted
+	 */
+	public static Automorphisms find(final CompactGraph graph, final BudgetMonitor budgetMonitor) {
+		final Automorphisms automorphisms =
+				new Automorphisms(graph.getNodeCount(), NoOpLabellingListener.INSTANCE);
+		automorphisms.search(new GraphLabeller(graph, LabellingOptions.DEFAULT,
+				NoOpLabellingListener.INSTANCE, budgetMonitor));
+		return automorphisms;
+	}
+
+	/**
+	 * Collects the automorphisms found while iterating over the
+	 * labellings of {@code labeller}. The labeller must not have
+	 * returned any labellings yet. If the budget of the labeller
+	 * is exhausted, the automorphisms found so far are kept.
+	 *
+	 * @param labeller whose search is pruned
+	 * @throws BudgetExhaustedException if the budget is exhausted
+	 */
+	public void search(final GraphLabeller labeller) {
+		search(labeller, null);
+	}
+
+	/**
+	 * Collects the automorphisms found while iterating over the
+	 * labellings of {@code labeller} and passes each labelling
+	 * to {@code visitor}. Labellings which are skipped because of
+	 * an automorphism are equivalent to a labelling passed to the
+	 * visitor.
+	 *
+	 * @param labeller whose search is pruned
+	 * @param visitor receiving the labellings. May be null.
+	 * @throws BudgetExhaustedException if the budget is exhausted
+	 */
+	public void search(final GraphLabeller labeller, final LabellingVisitor visitor) {
+		labeller.setPruner(this);
+		if (!labeller.hasNext()) {
+			return;
+		}
+		final Labelling first = labeller.next();
+		firstPath = Arrays.copyOf(path, pathLength);
+		if (visitor != null) {
+			visitor.visit(first);
+		}
+		while (labeller.hasNext()) {
+			final Labelling labelling = labeller.next();
+			if (visitor != null) {
+				visitor.visit(labelling);
+			}
+			if (first.matches(labelling)) {
+				final int depth = findFirstPathAncestor();
+				addGenerator(first, labelling, depth);
+				labeller.backtrack(depth);
+			}
+		}
+	}
+
+	/**
+	 * Returns the automorphisms found during the search. Each
+	 * automorphism maps the node {@code i} to node
+	 * {@code automorphism[i]}. The arrays must not be modified.
+	 *
+	 * @return a list of automorphisms which generate the
+	 *         automorphism group
+	 */
+	public List<int[]> getGenerators() {
+		return Collections.unmodifiableList(generators);
+	}
+
+	/**
+	 * Returns a representative of the orbit of a node. Nodes
+	 * in the same orbit have the same representative. The
+	 * representative is the node with the smallest index in the
+	 * orbit.
+	 *
+	 * @param node index of the node
+	 * @return index of the representative of the orbit
+	 */
+	public int getOrbit(final int node) {
+		return find(orbits, node);
+	}
+
+	@Override
+	public void alternativesCollected(final int depth) {
+		exploredCount[depth] = 0;
+	}
+
+	@Override
+	public boolean isPruned(final int depth, final int node) {
+		if (exploredCount[depth] == 0 || generators.isEmpty()) {
+			return false;
+		}
+		final int[] stabiliser = getStabiliserOrbits(depth);
+		final int orbit = find(stabiliser, node);
+		for (int i = 0; i < exploredCount[depth]; ++i) {
+			if (find(stabiliser, explored[depth][i]) == orbit) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void alternativeSelected(final int depth, final int node) {
+		path[depth] = node;
+		pathLength = depth + 1;
+		if (explored[depth] == null) {
+			explored[depth] = new int[1];
+		} else if (exploredCount[depth] == explored[depth].length) {
+			explored[depth] = Arrays.copyOf(explored[depth], 2 * exploredCount[depth]);
+		}
+		explored[depth][exploredCount[depth]] = node;
+		exploredCount[depth] += 1;
+		// The path has changed:
+		stabiliserDepth = -1;
+	}
+
+	/**
+	 * Returns the deepest search level on which the current path
+	 * still agrees with the path of the first labelling.
+	 */
+	private int findFirstPathAncestor() {
+		int depth = 0;
+		while (depth < pathLength && depth < firstPath.length
+				&& path[depth] == firstPath[depth]) {
+			depth += 1;
+		}
+		return depth;
+	}
+
+	/**
+	 * Stores the automorphism which maps the first labelling onto
+	 * {@code labelling} unless it does not join any orbits of
+	 * the automorphisms fixing the path to {@code depth}.
+	 */
+	private void addGenerator(final Labelling first, final Labelling labelling,
+			final int depth) {
+		listener.automorphismFound();
+		final int[] nodes = first.getNodesByLabel();
+		final int[] images = labelling.getNodesByLabel();
+		final int[] generator = new int[nodeCount];
+		for (int i = 0; i < nodeCount; ++i) {
+			generator[nodes[i]] = images[i];
+		}
+		if (!joinsOrbits(getStabiliserOrbits(depth), generator)) {
+			return;
+		}
+		generators.add(generator);
+		for (int node = 0; node < nodeCount; ++node) {
+			union(orbits, node, generator[node]);
+		}
+	}
+
+	/**
+	 * Returns the orbits of the group generated by the
+	 * automorphisms which fix all nodes on the path to
+	 * {@code depth}.
+	 */
+	private int[] getStabiliserOrbits(final int depth) {
+		if (stabiliserDepth == depth && stabiliserGeneratorCount == generators.size()) {
+			return stabiliserOrbits;
+		}
+		for (int node = 0; node < nodeCount; ++node) {
+			stabiliserOrbits[node] = node;
+		}
+		for (final int[] generator : generators) {
+			if (fixesPath(generator, depth)) {
+				for (int node = 0; node < nodeCount; ++node) {
+					union(stabiliserOrbits, node, generator[node]);
+				}
+			}
+		}
+		stabiliserDepth = depth;
+		stabiliserGeneratorCount = generators.size();
+		return stabiliserOrbits;
+	}
+
+	private static boolean joinsOrbits(final int[] stabiliser, final int[] generator) {
+		for (int node = 0; node < generator.length; ++node) {
+			if (find(stabiliser, node) != find(stabiliser, generator[node])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean fixesPath(final int[] generator, final int depth) {
+		for (int i = 0; i < depth; ++i) {
+			if (generator[path[i]] != path[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Receives the labellings visited during the search.
+	 */
+	interface LabellingVisitor {
+
+		void visit(Labelling labelling);
+
+	}
+
+	private static int[] createUnionFind(final int size) {
+		final int[] parents = new int[size];
+		for (int i = 0; i < size; ++i) {
+			parents[i] = i;
+		}
+		return parents;
+	}
+
+	private static int find(final int[] parents, final int node) {
+		int root = node;
+		while (parents[root] != root) {
+			root = parents[root];
+		}
+		int current = node;
+		while (parents[current] != root) {
+			final int next = parents[current];
+			parents[current] = root;
+			current = next;
+		}
+		return root;
+	}
+
+	/**
+	 * Merges the sets of two nodes. The node with the smaller
+	 * index becomes the root so that roots are the smallest
+	 * nodes of their sets.
+	 */
+	private static void union(final int[] parents, final int node1, final int node2) {
+		final int root1 = find(parents, node1);
+		final int root2 = find(parents, node2);
+		if (root1 < root2) {
+			parents[root2] = root1;
+		} else if (root2 < root1) {
+			parents[root1] = root2;
+		}
+	}
+
+}
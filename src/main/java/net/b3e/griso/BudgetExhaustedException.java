@@ -0,0 +1,35 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Thrown by {@link BudgetMonitor} to abort a labeller when the
+ * budget of an isomorphism check is exhausted. The exception
+ * does not record a stack trace since it is used for control
+ * flow only.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class BudgetExhaustedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	BudgetExhaustedException() {
+		super("Search budget exhausted", null, false, false);
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Tracks the work done in a single isomorphism check against
+ * a {@link SearchBudget}. One monitor is shared by the
+ * labellers of both graphs.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class BudgetMonitor {
+
+	/**
+	 * A monitor for checks without a budget.
+	 */
+	public static final BudgetMonitor UNLIMITED = new BudgetMonitor(SearchBudget.UNLIMITED);
+
+	private final SearchBudget budget;
+	private final boolean limited;
+	private long searchNodes;
+
+	BudgetMonitor(final SearchBudget budget) {
+		this.budget = budget;
+		limited = budget.isLimited();
+	}
+
+	/**
+	 * Counts a search node and checks the budget.
+	 *
+	 * @throws BudgetExhaustedException if the budget is exhausted
+	 */
+	public void searchNodeVisited() {
+		if (limited) {
+			searchNodes += 1;
+			check();
+		}
+	}
+
+	/**
+	 * Checks whether the budget is exhausted.
+	 *
+	 * @throws BudgetExhaustedException if the budget is exhausted
+	 */
+	public void check() {
+		if (limited && budget.isExhausted(searchNodes)) {
+			throw new BudgetExhaustedException();
+		}
+	}
+
+}
@@ -0,0 +1,559 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Writes graphs as canonical N-Triples. Isomorph graphs produce
+ * exactly the same output so that the SHA-256 digest of the
+ * output can be used to identify RDF datasets containing blank
+ * nodes.
+ *
+ * Graphs are interpreted as RDF graphs: the names of vertices
+ * are used as subject and object terms and the names of edges as
+ * predicates. Names are written with {@code toString()} and must
+ * therefore already be valid N-Triples terms (for instance
+ * {@code <http://example.org/>} or {@code "literal"}). Unnamed
+ * vertices are blank nodes. They are assigned the identifiers
+ * {@code _:c14n0}, {@code _:c14n1}, ... in canonical order. Parallel
+ * edges with the same name are written only once.
+ *
+ * The triples are sorted by subject, predicate and object and
+ * written line by line. The output is not collected in memory.
+ * Only the terms of the vertices and of the distinct edge names
+ * are kept as strings. The triples are sorted as arrays of
+ * indices.
+ *
+ * Finding the canonical numbering of the blank nodes may take
+ * exponential time in the worst case. A {@link SearchBudget} can
+ * be passed to bound the work. Symmetric blank nodes are handled
+ * efficiently since the search is pruned with the automorphisms
+ * of the graph. The graphs are always labelled with the same
+ * {@link LabellingOptions} because the chosen numbering depends
+ * on them. Vertices with unique names are fixed before the
+ * search so that only the blank nodes are refined.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class CanonicalNTriples {
+
+	private static final String BLANK_NODE_PREFIX = "_:c14n";
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Changing these options changes the output for graphs with
+	 * symmetric blank nodes.
+	 */
+	private static final LabellingOptions CANONICAL_OPTIONS =
+			LabellingOptions.DEFAULT.withGroundDecomposition(true);
+
+	private CanonicalNTriples() {
+		// No instances allowed
+	}
+
+	/**
+	 * Writes the canonical N-Triples of a graph.
+	 *
+	 * @param graph to write
+	 * @param out to which the triples are written
+	 * @return the SHA-256 digest of the UTF-8 encoded output
+	 * @throws IOException if writing to {@code out} fails
+	 * @throws IllegalArgumentException if the graph contains
+	 *         unnamed or undirected edges
+	 */
+	public static byte[] write(final Graph<?, ?, ?> graph, final Appendable out)
+			throws IOException {
+		return write(graph, SearchBudget.UNLIMITED, out);
+	}
+
+	/**
+	 * Writes the canonical N-Triples of a graph without exceeding
+	 * {@code budget}. Nothing is written if the budget is exhausted
+	 * before the canonical form has been found.
+	 *
+	 * @param graph to write
+	 * @param budget limiting the work spent on finding the
+	 *        canonical form
+	 * @param out to which the triples are written
+	 * @return the SHA-256 digest of the UTF-8 encoded output or
+	 *         null if the budget was exhausted
+	 * @throws IOException if writing to {@code out} fails
+	 * @throws IllegalArgumentException if the graph contains
+	 *         unnamed or undirected edges
+	 */
+	public static byte[] write(final Graph<?, ?, ?> graph, final SearchBudget budget,
+			final Appendable out) throws IOException {
+		final CompactGraph compactGraph =
+				CompactGraph.create(graph.getNodeList(), EdgeRepresentation.LABELLED_CONNECTIONS);
+		checkEdges(compactGraph);
+
+		final TermIds termIds = new TermIds(compactGraph);
+		final String[] terms;
+		try {
+			terms = createTerms(compactGraph, termIds, new BudgetMonitor(budget));
+		} catch (final BudgetExhaustedException e) {
+			return null;
+		}
+		final int tripleCount = compactGraph.getStoredConnectionCount();
+		final int[] nodes = new int[tripleCount];
+		final int[] connections = new int[tripleCount];
+		flattenConnections(compactGraph, nodes, connections);
+		final int[] triples = sortTriples(compactGraph, termIds, terms, nodes, connections);
+
+		final MessageDigest digest = createDigest();
+		for (final int triple : triples) {
+			final int node = nodes[triple];
+			final int connection = connections[triple];
+			final String line = terms[node] + " "
+					+ termIds.getTerm(termIds.getEdgeTermId(compactGraph, node, connection)) + " "
+					+ terms[compactGraph.getSuccessor(node, connection)] + " .\n";
+			out.append(line);
+			digest.update(line.getBytes(UTF8));
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Computes the SHA-256 digest of the canonical N-Triples of
+	 * a graph without writing them.
+	 *
+	 * @param graph to hash
+	 * @return the SHA-256 digest
+	 * @throws IllegalArgumentException if the graph contains
+	 *         unnamed or undirected edges
+	 * @see #write(Graph, Appendable)
+	 */
+	public static byte[] digest(final Graph<?, ?, ?> graph) {
+		return digest(graph, SearchBudget.UNLIMITED);
+	}
+
+	/**
+	 * Computes the SHA-256 digest of the canonical N-Triples of
+	 * a graph without exceeding {@code budget}.
+	 *
+	 * @param graph to hash
+	 * @param budget limiting the work spent on finding the
+	 *        canonical form
+	 * @return the SHA-256 digest or null if the budget was
+	 *         exhausted
+	 * @throws IllegalArgumentException if the graph contains
+	 *         unnamed or undirected edges
+	 * @see #write(Graph, SearchBudget, Appendable)
+	 */
+	public static byte[] digest(final Graph<?, ?, ?> graph, final SearchBudget budget) {
+		try {
+			return write(graph, budget, NullAppendable.INSTANCE);
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static void checkEdges(final CompactGraph graph) {
+		for (int node = 0; node < graph.getNodeCount(); ++node) {
+			for (int i = 0; i < graph.getSuccessorCount(node); ++i) {
+				if (graph.getSuccessorEdgeKind(node, i) != ConnectionList.DIRECTED) {
+					throw new IllegalArgumentException(
+							"RDF graphs may only contain named directed edges");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Assigns a term to each vertex. Blank nodes are numbered
+	 * by their labels in the canonical labelling.
+	 */
+	private static String[] createTerms(final CompactGraph graph, final TermIds termIds,
+			final BudgetMonitor budgetMonitor) {
+		final int nodeCount = graph.getNodeCount();
+		final String[] terms = new String[nodeCount];
+		if (nodeCount == 0) {
+			return terms;
+		}
+		final Labelling labelling = findCanonicalLabelling(graph, termIds, budgetMonitor);
+		final int[] nodesByLabel = labelling.getNodesByLabel();
+		int blankNodeCount = 0;
+		for (final int node : nodesByLabel) {
+			final int termId = termIds.getNodeTermId(graph, node);
+			if (termId == TermIds.BLANK_NODE_ID) {
+				terms[node] = BLANK_NODE_PREFIX + blankNodeCount;
+				blankNodeCount += 1;
+			} else {
+				terms[node] = termIds.getTerm(termId);
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * The first labelling of a graph depends on the order of
+	 * the nodes if the graph has symmetries which are not
+	 * automorphisms. Hence, the labelling with the smallest
+	 * certificate is chosen. Labellings which are skipped because
+	 * of an automorphism have the same certificate as a labelling
+	 * which is visited. The smallest certificate is only taken
+	 * from the labellings of the search tree, whose shape depends
+	 * on the labelling options. The options are therefore fixed.
+	 */
+	private static Labelling findCanonicalLabelling(final CompactGraph graph,
+			final TermIds termIds, final BudgetMonitor budgetMonitor) {
+		final GraphLabeller labeller = new GraphLabeller(graph, CANONICAL_OPTIONS,
+				NoOpLabellingListener.INSTANCE, budgetMonitor);
+		final SmallestCertificate smallest = new SmallestCertificate(graph, termIds,
+				budgetMonitor);
+		new Automorphisms(graph.getNodeCount(), NoOpLabellingListener.INSTANCE)
+				.search(labeller, smallest);
+		return smallest.best;
+	}
+
+	/**
+	 * Sorts the triples by subject, predicate and object. The
+	 * terms are compared once to rank the vertices. The triples
+	 * are then sorted by the ranks and term ids.
+	 */
+	private static int[] sortTriples(final CompactGraph graph, final TermIds termIds,
+			final String[] terms, final int[] nodes, final int[] connections) {
+		final int nodeCount = graph.getNodeCount();
+		final int[] nodesByTerm = new int[nodeCount];
+		for (int node = 0; node < nodeCount; ++node) {
+			nodesByTerm[node] = node;
+		}
+		sort(nodesByTerm, 0, nodeCount, new IndexOrder() {
+
+			@Override
+			int compare(final int node1, final int node2) {
+				return terms[node1].compareTo(terms[node2]);
+			}
+
+		});
+		// Vertices with equal terms must have equal ranks so that
+		// their triples are sorted by predicate and object:
+		final int[] termRanks = new int[nodeCount];
+		for (int i = 1; i < nodeCount; ++i) {
+			final int node = nodesByTerm[i];
+			termRanks[node] = termRanks[nodesByTerm[i - 1]];
+			if (!terms[node].equals(terms[nodesByTerm[i - 1]])) {
+				termRanks[node] += 1;
+			}
+		}
+
+		final int tripleCount = nodes.length;
+		final int[] triples = new int[tripleCount];
+		for (int i = 0; i < tripleCount; ++i) {
+			triples[i] = i;
+		}
+		sort(triples, 0, tripleCount, new IndexOrder() {
+
+			@Override
+			int compare(final int triple1, final int triple2) {
+				final int node1 = nodes[triple1];
+				final int node2 = nodes[triple2];
+				int result = Integer.compare(termRanks[node1], termRanks[node2]);
+				if (result != 0) {
+					return result;
+				}
+				final int connection1 = connections[triple1];
+				final int connection2 = connections[triple2];
+				result = Integer.compare(termIds.getEdgeTermId(graph, node1, connection1),
+						termIds.getEdgeTermId(graph, node2, connection2));
+				if (result != 0) {
+					return result;
+				}
+				return Integer.compare(termRanks[graph.getSuccessor(node1, connection1)],
+						termRanks[graph.getSuccessor(node2, connection2)]);
+			}
+
+		});
+		return triples;
+	}
+
+	/**
+	 * Sorts a range of indices in place. Indices which are equal
+	 * according to {@code order} are sorted by their value so
+	 * that the result does not depend on the initial order.
+	 */
+	private static void sort(final int[] indices, final int from, final int to,
+			final IndexOrder order) {
+		int low = from;
+		int high = to - 1;
+		while (high - low >= INSERTION_SORT_THRESHOLD) {
+			final int pivot = indices[low + (high - low) / 2];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (order.isLess(indices[i], pivot)) {
+					i += 1;
+				}
+				while (order.isLess(pivot, indices[j])) {
+					j -= 1;
+				}
+				if (i <= j) {
+					final int tmp = indices[i];
+					indices[i] = indices[j];
+					indices[j] = tmp;
+					i += 1;
+					j -= 1;
+				}
+			}
+			// Recurse into the smaller part to limit the stack depth:
+			if (j - low < high - i) {
+				sort(indices, low, j + 1, order);
+				low = i;
+			} else {
+				sort(indices, i, high + 1, order);
+				high = j;
+			}
+		}
+		for (int i = low + 1; i <= high; ++i) {
+			final int index = indices[i];
+			int j = i - 1;
+			while (j >= low && order.isLess(index, indices[j])) {
+				indices[j + 1] = indices[j];
+				j -= 1;
+			}
+			indices[j + 1] = index;
+		}
+	}
+
+	private static void flattenConnections(final CompactGraph graph, final int[] nodes,
+			final int[] connections) {
+		int position = 0;
+		for (int node = 0; node < graph.getNodeCount(); ++node) {
+			for (int i = 0; i < graph.getSuccessorCount(node); ++i) {
+				nodes[position] = node;
+				connections[position] = i;
+				position += 1;
+			}
+		}
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (final NoSuchAlgorithmException e) {
+			// Every Java platform must support SHA-256:
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Keeps the labelling with the smallest certificate. The
+	 * certificate lists the nodes in the order of their labels.
+	 * For each node it contains the term id of its name, the number
+	 * of its outgoing connections and the sorted pairs of edge term
+	 * id and rank of the connected node. Term ids do not depend on
+	 * the order in which names were added (see {@link TermIds}).
+	 * Two labellings have equal certificates if and only if they
+	 * produce the same triples.
+	 */
+	private static final class SmallestCertificate implements Automorphisms.LabellingVisitor {
+
+		private final CompactGraph graph;
+		private final TermIds termIds;
+		private final BudgetMonitor budgetMonitor;
+		private final int[] ranks;
+
+		private Labelling best;
+		private long[] bestCertificate;
+		private long[] certificate;
+
+		SmallestCertificate(final CompactGraph graph, final TermIds termIds,
+				final BudgetMonitor budgetMonitor) {
+			this.graph = graph;
+			this.termIds = termIds;
+			this.budgetMonitor = budgetMonitor;
+			ranks = new int[graph.getNodeCount()];
+		}
+
+		@Override
+		public void visit(final Labelling labelling) {
+			if (certificate == null) {
+				certificate = new long[2 * graph.getNodeCount()
+						+ graph.getStoredConnectionCount()];
+			}
+			computeCertificate(labelling);
+			if (best == null || compare(certificate, bestCertificate) < 0) {
+				best = labelling;
+				final long[] tmp = bestCertificate;
+				bestCertificate = certificate;
+				certificate = tmp;
+			}
+			budgetMonitor.check();
+		}
+
+		private void computeCertificate(final Labelling labelling) {
+			final int[] nodesByLabel = labelling.getNodesByLabel();
+			for (int rank = 0; rank < nodesByLabel.length; ++rank) {
+				ranks[nodesByLabel[rank]] = rank;
+			}
+			int position = 0;
+			for (final int node : nodesByLabel) {
+				final int successorCount = graph.getSuccessorCount(node);
+				certificate[position] = termIds.getNodeTermId(graph, node);
+				certificate[position + 1] = successorCount;
+				position += 2;
+				final int start = position;
+				for (int i = 0; i < successorCount; ++i) {
+					certificate[position] =
+							((long) termIds.getEdgeTermId(graph, node, i) << Integer.SIZE)
+							| ranks[graph.getSuccessor(node, i)];
+					position += 1;
+				}
+				Arrays.sort(certificate, start, position);
+			}
+		}
+
+		private static int compare(final long[] certificate1, final long[] certificate2) {
+			for (int i = 0; i < certificate1.length; ++i) {
+				if (certificate1[i] != certificate2[i]) {
+					if (certificate1[i] < certificate2[i]) {
+						return -1;
+					}
+					return 1;
+				}
+			}
+			return 0;
+		}
+
+	}
+
+	/**
+	 * Numbers the terms of the vertex and edge names in the
+	 * order of the terms. Each name is converted into a term only
+	 * once. Blank nodes have the term id
+	 * {@value #BLANK_NODE_ID}.
+	 */
+	private static final class TermIds {
+
+		public static final int BLANK_NODE_ID = 0;
+
+		private final String[] terms;
+		private final int[] nodeTermIds;
+		private final int[] edgeTermIds;
+
+		TermIds(final CompactGraph graph) {
+			final String[] nodeTerms = toTerms(graph.getNodeNames());
+			final String[] edgeTerms = toTerms(graph.getEdgeNames());
+			final SortedSet<String> sortedTerms = new TreeSet<>();
+			addTerms(sortedTerms, nodeTerms);
+			addTerms(sortedTerms, edgeTerms);
+			terms = new String[sortedTerms.size() + 1];
+			final Map<String, Integer> ids = new HashMap<>();
+			for (final String term : sortedTerms) {
+				final int id = ids.size() + 1;
+				ids.put(term, Integer.valueOf(id));
+				terms[id] = term;
+			}
+			nodeTermIds = lookUpIds(nodeTerms, ids);
+			edgeTermIds = lookUpIds(edgeTerms, ids);
+		}
+
+		String getTerm(final int termId) {
+			return terms[termId];
+		}
+
+		int getNodeTermId(final CompactGraph graph, final int node) {
+			return nodeTermIds[graph.getNameId(node)];
+		}
+
+		int getEdgeTermId(final CompactGraph graph, final int node, final int i) {
+			return edgeTermIds[graph.getSuccessorEdgeNameId(node, i)];
+		}
+
+		private static String[] toTerms(final NameDictionary names) {
+			final String[] terms = new String[names.size()];
+			for (int id = 0; id < terms.length; ++id) {
+				final Object name = names.get(id);
+				if (name != null) {
+					terms[id] = name.toString();
+				}
+			}
+			return terms;
+		}
+
+		private static void addTerms(final SortedSet<String> sortedTerms, final String[] terms) {
+			for (final String term : terms) {
+				if (term != null) {
+					sortedTerms.add(term);
+				}
+			}
+		}
+
+		private static int[] lookUpIds(final String[] terms, final Map<String, Integer> ids) {
+			final int[] termIds = new int[terms.length];
+			for (int id = 0; id < terms.length; ++id) {
+				if (terms[id] == null) {
+					termIds[id] = BLANK_NODE_ID;
+				} else {
+					termIds[id] = ids.get(terms[id]).intValue();
+				}
+			}
+			return termIds;
+		}
+
+	}
+
+	/**
+	 * Compares indices without boxing them.
+	 */
+	private abstract static class IndexOrder {
+
+		abstract int compare(int index1, int index2);
+
+		boolean isLess(final int index1, final int index2) {
+			final int result = compare(index1, index2);
+			return result < 0 || (result == 0 && index1 < index2);
+		}
+
+	}
+
+	/**
+	 * Discards everything appended to it.
+	 */
+	private static final class NullAppendable implements Appendable {
+
+		public static final NullAppendable INSTANCE = new NullAppendable();
+
+		@Override
+		public Appendable append(final CharSequence csq) {
+			return this;
+		}
+
+		@Override
+		public Appendable append(final CharSequence csq, final int start, final int end) {
+			return this;
+		}
+
+		@Override
+		public Appendable append(final char c) {
+			return this;
+		}
+
+	}
+
+}
@@ -0,0 +1,809 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An array-based snapshot of the nodes and connections of a
+ * graph. Nodes are addressed by their index. The connections
+ * of all nodes are stored in two int arrays (one for outgoing
+ * and one for incoming connections) with an offset array
+ * pointing to the first connection of each node.
+ *
+ * Compact graphs are immutable and do not reference the
+ * {@link Node} objects from which they were created. The names
+ * of the nodes are stored in a {@link NameDictionary}. For each
+ * node only a key is stored which combines the id of its name
+ * with a flag marking whether the node represents a vertex or a
+ * named edge.
+ *
+ * If named edges are represented as
+ * {@link EdgeRepresentation#LABELLED_CONNECTIONS}, an edge key
+ * combining the id of the edge name and the kind of the edge is
+ * stored for each connection. The colour of an edge (a hash code
+ * of name and kind) is computed from the edge key.
+ *
+ * Parallel connections which represent identical edges are
+ * stored only once together with their multiplicity. Refinement
+ * and comparison take the multiplicities into account.
+ *
+ * All arrays whose size depends on the number of nodes or
+ * connections are allocated with the {@link GraphStorage} of the
+ * node keys. The name dictionaries are always kept on the heap,
+ * as are the labels computed by {@link GraphLabeller}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class CompactGraph {
+
+	private static final int PRIME = 31;
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+	private static final int EDGE_NODE_FLAG = 1;
+
+	private final NameDictionary nodeNames;
+	private final IntArray nodeKeys;
+
+	private final IntArray successorOffsets;
+	private final IntArray successors;
+	private final IntArray predecessorOffsets;
+	private final IntArray predecessors;
+	private final IntArray successorMultiplicities;
+	private final IntArray predecessorMultiplicities;
+	private final int totalConnectionCount;
+
+	private final boolean labelled;
+	private final NameDictionary edgeNames;
+	private final IntArray successorEdgeKeys;
+	private final IntArray predecessorEdgeKeys;
+
+	private final int maxDegree;
+	private final boolean uniqueVertexNames;
+
+	private volatile SignatureKernel signatureKernel;
+
+	/**
+	 * Creates a compact graph from a list of connections.
+	 *
+	 * @param nodeNames dictionary of the node names. The
+	 *        dictionary must not be modified afterwards.
+	 * @param nodeKeys keys of the nodes as created by
+	 *        {@link #createNodeKey(int, boolean)}. The array is
+	 *        not copied.
+	 * @param connections connections between the nodes. May
+	 *        contain parallel connections. The list is not
+	 *        modified.
+	 */
+	CompactGraph(final NameDictionary nodeNames, final IntArray nodeKeys,
+			final ConnectionList connections) {
+		this.nodeNames = nodeNames;
+		this.nodeKeys = nodeKeys;
+		labelled = connections.isLabelled();
+		if (labelled) {
+			edgeNames = connections.getEdgeNames().snapshot();
+		} else {
+			edgeNames = null;
+		}
+
+		final GraphStorage storage = nodeKeys.getStorage();
+		final int nodeCount = nodeKeys.size();
+		final int connectionCount = connections.size();
+
+		// Group the connections by source:
+		final IntArray offsets = IntArray.allocate(nodeCount + 1, storage);
+		for (int i = 0; i < connectionCount; ++i) {
+			final int source = connections.getSource(i) + 1;
+			offsets.set(source, offsets.get(source) + 1);
+		}
+		for (int i = 0; i < nodeCount; ++i) {
+			offsets.set(i + 1, offsets.get(i + 1) + offsets.get(i));
+		}
+		final IntArray targets = IntArray.allocate(connectionCount, storage);
+		IntArray keys = null;
+		if (labelled) {
+			keys = IntArray.allocate(connectionCount, storage);
+		}
+		IntArray multiplicities = null;
+		if (connections.hasMultiplicities()) {
+			multiplicities = IntArray.allocate(connectionCount, storage);
+		}
+		final IntArray positions = offsets.copyOf(nodeCount);
+		for (int i = 0; i < connectionCount; ++i) {
+			final int source = connections.getSource(i);
+			final int position = positions.get(source);
+			positions.set(source, position + 1);
+			targets.set(position, connections.getTarget(i));
+			if (keys != null) {
+				keys.set(position, connections.getEdgeKey(i));
+			}
+			if (multiplicities != null) {
+				multiplicities.set(position, connections.getMultiplicity(i));
+			}
+		}
+
+		// Merge identical connections of each node:
+		int storedCount = 0;
+		int start = 0;
+		for (int node = 0; node < nodeCount; ++node) {
+			final int end = offsets.get(node + 1);
+			offsets.set(node, storedCount);
+			sortConnections(targets, keys, multiplicities, start, end - 1);
+			for (int i = start; i < end; ++i) {
+				final int previous = storedCount - 1;
+				if (previous >= offsets.get(node) && targets.get(previous) == targets.get(i)
+						&& (keys == null || keys.get(previous) == keys.get(i))) {
+					if (multiplicities == null) {
+						multiplicities = IntArray.allocate(connectionCount, storage);
+						multiplicities.fill(0, connectionCount, 1);
+					}
+					multiplicities.set(previous, multiplicities.get(previous)
+							+ multiplicities.get(i));
+				} else {
+					targets.set(storedCount, targets.get(i));
+					if (keys != null) {
+						keys.set(storedCount, keys.get(i));
+					}
+					if (multiplicities != null) {
+						multiplicities.set(storedCount, multiplicities.get(i));
+					}
+					storedCount += 1;
+				}
+			}
+			start = end;
+		}
+		offsets.set(nodeCount, storedCount);
+
+		successorOffsets = offsets;
+		successors = trim(targets, storedCount);
+		successorEdgeKeys = trim(keys, storedCount);
+		successorMultiplicities = trim(multiplicities, storedCount);
+
+		predecessorOffsets = IntArray.allocate(nodeCount + 1, storage);
+		for (int i = 0; i < storedCount; ++i) {
+			final int target = successors.get(i) + 1;
+			predecessorOffsets.set(target, predecessorOffsets.get(target) + 1);
+		}
+		for (int i = 0; i < nodeCount; ++i) {
+			predecessorOffsets.set(i + 1, predecessorOffsets.get(i + 1)
+					+ predecessorOffsets.get(i));
+		}
+		predecessors = IntArray.allocate(storedCount, storage);
+		if (labelled) {
+			predecessorEdgeKeys = IntArray.allocate(storedCount, storage);
+		} else {
+			predecessorEdgeKeys = null;
+		}
+		if (successorMultiplicities != null) {
+			predecessorMultiplicities = IntArray.allocate(storedCount, storage);
+		} else {
+			predecessorMultiplicities = null;
+		}
+		final IntArray predecessorPositions = predecessorOffsets.copyOf(nodeCount);
+		int total = 0;
+		for (int node = 0; node < nodeCount; ++node) {
+			final int end = successorOffsets.get(node + 1);
+			for (int i = successorOffsets.get(node); i < end; ++i) {
+				final int target = successors.get(i);
+				final int position = predecessorPositions.get(target);
+				predecessorPositions.set(target, position + 1);
+				predecessors.set(position, node);
+				if (predecessorEdgeKeys != null) {
+					predecessorEdgeKeys.set(position, successorEdgeKeys.get(i));
+				}
+				if (predecessorMultiplicities != null) {
+					final int multiplicity = successorMultiplicities.get(i);
+					predecessorMultiplicities.set(position, multiplicity);
+					total += multiplicity;
+				} else {
+					total += 1;
+				}
+			}
+		}
+		totalConnectionCount = total;
+
+		maxDegree = Math.max(computeMaxDegree(successorOffsets),
+				computeMaxDegree(predecessorOffsets));
+		uniqueVertexNames = checkUniqueVertexNames();
+	}
+
+	/**
+	 * Creates a snapshot of the nodes of a graph in which named
+	 * edges are represented by nodes. The index of each node must
+	 * be equal to its position in the list.
+	 *
+	 * @param graphNodes the nodes of the graph
+	 * @return a compact graph
+	 */
+	public static CompactGraph create(final List<Node<?>> graphNodes) {
+		return create(graphNodes, EdgeRepresentation.NODES);
+	}
+
+	/**
+	 * Creates a snapshot of the nodes of a graph which is stored
+	 * on the heap. The index of each node must be equal to its
+	 * position in the list.
+	 *
+	 * @param graphNodes the nodes of the graph
+	 * @param representation of named edges in the snapshot
+	 * @return a compact graph
+	 */
+	public static CompactGraph create(final List<Node<?>> graphNodes,
+			final EdgeRepresentation representation) {
+		return create(graphNodes, representation, GraphStorage.HEAP);
+	}
+
+	/**
+	 * Creates a snapshot of the nodes of a graph. The index of
+	 * each node must be equal to its position in the list.
+	 *
+	 * @param graphNodes the nodes of the graph
+	 * @param representation of named edges in the snapshot
+	 * @param storage of the adjacency structure
+	 * @return a compact graph
+	 */
+	public static CompactGraph create(final List<Node<?>> graphNodes,
+			final EdgeRepresentation representation, final GraphStorage storage) {
+		if (representation == EdgeRepresentation.LABELLED_CONNECTIONS) {
+			return createWithLabelledConnections(graphNodes, storage);
+		}
+		final int nodeCount = graphNodes.size();
+		final NameDictionary names = new NameDictionary();
+		final IntArray nodeKeys = IntArray.allocate(nodeCount, storage);
+		final ConnectionList connections = new ConnectionList(nodeCount, false, storage);
+		for (int i = 0; i < nodeCount; ++i) {
+			final Node<?> node = graphNodes.get(i);
+			nodeKeys.set(i, createNodeKey(names.add(node.getName()), node instanceof EdgeNode));
+			for (final Node<?> connectedNode : node.getConnectedTo()) {
+				connections.add(i, connectedNode.getIndex());
+			}
+		}
+		return new CompactGraph(names.snapshot(), nodeKeys, connections);
+	}
+
+	/**
+	 * Combines the id of a node name and the type of the
+	 * node into a node key.
+	 *
+	 * @param nameId id of the name in the node name dictionary
+	 * @param edgeNode true if the node represents a named edge
+	 * @return the node key
+	 */
+	static int createNodeKey(final int nameId, final boolean edgeNode) {
+		if (edgeNode) {
+			return (nameId << 1) | EDGE_NODE_FLAG;
+		}
+		return nameId << 1;
+	}
+
+	static boolean isEdgeNodeKey(final int nodeKey) {
+		return (nodeKey & EDGE_NODE_FLAG) != 0;
+	}
+
+	private static CompactGraph createWithLabelledConnections(final List<Node<?>> graphNodes,
+			final GraphStorage storage) {
+		final int[] vertexIndices = new int[graphNodes.size()];
+		int vertexCount = 0;
+		for (final Node<?> node : graphNodes) {
+			if (!(node instanceof EdgeNode)) {
+				vertexIndices[node.getIndex()] = vertexCount;
+				vertexCount += 1;
+			}
+		}
+
+		final NameDictionary names = new NameDictionary();
+		final IntArray nodeKeys = IntArray.allocate(vertexCount, storage);
+		final ConnectionList connections = new ConnectionList(graphNodes.size(), true, storage);
+		for (final Node<?> node : graphNodes) {
+			if (node instanceof EdgeNode) {
+				addEdgeNodeConnections(node, vertexIndices, connections);
+			} else {
+				final int vertex = vertexIndices[node.getIndex()];
+				nodeKeys.set(vertex, createNodeKey(names.add(node.getName()), false));
+				for (final Node<?> connectedNode : node.getConnectedTo()) {
+					if (!(connectedNode instanceof EdgeNode)) {
+						connections.add(vertex, vertexIndices[connectedNode.getIndex()]);
+					}
+				}
+			}
+		}
+		return new CompactGraph(names.snapshot(), nodeKeys, connections);
+	}
+
+	private static void addEdgeNodeConnections(final Node<?> edgeNode,
+			final int[] vertexIndices, final ConnectionList connections) {
+		// Directed edges have one incoming and one outgoing connection.
+		// Undirected edges have two of each. The i-th incoming and
+		// the i-th outgoing connection belong together (see Graph):
+		byte kind = ConnectionList.DIRECTED;
+		if (edgeNode.getConnectedFrom().size() > 1) {
+			kind = ConnectionList.UNDIRECTED;
+		}
+		final Iterator<Node<?>> targets = edgeNode.getConnectedTo().iterator();
+		for (final Node<?> source : edgeNode.getConnectedFrom()) {
+			connections.add(vertexIndices[source.getIndex()],
+					vertexIndices[targets.next().getIndex()], edgeNode.getName(), kind);
+		}
+	}
+
+	public int getNodeCount() {
+		return nodeKeys.size();
+	}
+
+	public Object getName(final int node) {
+		return nodeNames.get(getNameId(node));
+	}
+
+	/**
+	 * Returns the id of the name of a node in the dictionary
+	 * returned by {@link #getNodeNames()}.
+	 *
+	 * @param node index of the node
+	 * @return the name id or {@link NameDictionary#NULL_ID}
+	 */
+	int getNameId(final int node) {
+		return nodeKeys.get(node) >>> 1;
+	}
+
+	NameDictionary getNodeNames() {
+		return nodeNames;
+	}
+
+	/**
+	 * Returns true if the node represents a named edge.
+	 *
+	 * @param node index of the node
+	 * @return true for edge nodes, false for vertices
+	 */
+	public boolean isEdgeNode(final int node) {
+		return isEdgeNodeKey(nodeKeys.get(node));
+	}
+
+	/**
+	 * Returns where the adjacency structure of the graph
+	 * is stored.
+	 *
+	 * @return the storage of the graph
+	 */
+	public GraphStorage getStorage() {
+		return nodeKeys.getStorage();
+	}
+
+	/**
+	 * Checks whether a node of this graph and a node of another
+	 * graph are equivalent. The nodes are equivalent if both
+	 * represent vertices or both represent named edges and
+	 * if they have equal names.
+	 *
+	 * @param node index of the node in this graph
+	 * @param otherGraph the graph containing the other node
+	 * @param otherNode index of the node in the other graph
+	 * @return true if the nodes are equivalent
+	 * @see Node#isEquivalent(Node)
+	 */
+	public boolean isEquivalent(final int node, final CompactGraph otherGraph,
+			final int otherNode) {
+		final int key = nodeKeys.get(node);
+		final int otherKey = otherGraph.nodeKeys.get(otherNode);
+		if (isEdgeNodeKey(key) != isEdgeNodeKey(otherKey)) {
+			return false;
+		}
+		return equalNames(nodeNames.get(key >>> 1), otherGraph.nodeNames.get(otherKey >>> 1));
+	}
+
+	/**
+	 * Returns a hash code of the node name. Nodes without
+	 * a name have the hash code 0.
+	 *
+	 * @param node index of the node
+	 * @return hash code of the name of the node
+	 */
+	public int getNodeHashCode(final int node) {
+		return nodeNames.getHashCode(nodeKeys.get(node) >>> 1);
+	}
+
+	public int getSuccessorCount(final int node) {
+		return successorOffsets.get(node + 1) - successorOffsets.get(node);
+	}
+
+	public int getSuccessor(final int node, final int i) {
+		return successors.get(successorOffsets.get(node) + i);
+	}
+
+	public int getPredecessorCount(final int node) {
+		return predecessorOffsets.get(node + 1) - predecessorOffsets.get(node);
+	}
+
+	public int getPredecessor(final int node, final int i) {
+		return predecessors.get(predecessorOffsets.get(node) + i);
+	}
+
+	/**
+	 * Returns how many parallel connections are represented
+	 * by an outgoing connection.
+	 *
+	 * @param node index of the node
+	 * @param i index of the connection
+	 * @return the multiplicity of the connection
+	 */
+	public int getSuccessorMultiplicity(final int node, final int i) {
+		if (successorMultiplicities == null) {
+			return 1;
+		}
+		return successorMultiplicities.get(successorOffsets.get(node) + i);
+	}
+
+	/**
+	 * Returns how many parallel connections are represented
+	 * by an incoming connection.
+	 *
+	 * @param node index of the node
+	 * @param i index of the connection
+	 * @return the multiplicity of the connection
+	 */
+	public int getPredecessorMultiplicity(final int node, final int i) {
+		if (predecessorMultiplicities == null) {
+			return 1;
+		}
+		return predecessorMultiplicities.get(predecessorOffsets.get(node) + i);
+	}
+
+	/**
+	 * Returns true if the connections carry edge names.
+	 *
+	 * @return true if named edges are represented as
+	 *         {@link EdgeRepresentation#LABELLED_CONNECTIONS}
+	 */
+	public boolean hasLabelledConnections() {
+		return labelled;
+	}
+
+	public EdgeRepresentation getEdgeRepresentation() {
+		if (labelled) {
+			return EdgeRepresentation.LABELLED_CONNECTIONS;
+		}
+		return EdgeRepresentation.NODES;
+	}
+
+	/**
+	 * Returns the name of the edge represented by an outgoing
+	 * connection. Must only be called if the graph has labelled
+	 * connections.
+	 *
+	 * @param node index of the node
+	 * @param i index of the connection
+	 * @return the edge name or null
+	 */
+	public Object getSuccessorEdgeName(final int node, final int i) {
+		return edgeNames.get(getSuccessorEdgeNameId(node, i));
+	}
+
+	/**
+	 * Returns the id of the edge name of an outgoing connection
+	 * in the dictionary returned by {@link #getEdgeNames()}. Must
+	 * only be called if the graph has labelled connections.
+	 *
+	 * @param node index of the node
+	 * @param i index of the connection
+	 * @return the name id or {@link NameDictionary#NULL_ID}
+	 */
+	int getSuccessorEdgeNameId(final int node, final int i) {
+		return ConnectionList.getNameId(getSuccessorEdgeKey(node, i));
+	}
+
+	NameDictionary getEdgeNames() {
+		return edgeNames;
+	}
+
+	/**
+	 * Returns the kind of the edge represented by an outgoing
+	 * connection. Must only be called if the graph has labelled
+	 * connections.
+	 *
+	 * @param node index of the node
+	 * @param i index of the connection
+	 * @return one of the kinds defined in {@link ConnectionList}
+	 */
+	public byte getSuccessorEdgeKind(final int node, final int i) {
+		return ConnectionList.getKind(getSuccessorEdgeKey(node, i));
+	}
+
+	/**
+	 * Returns the colour of the edge represented by an outgoing
+	 * connection. Unnamed connections have the colour 0.
+	 * Must only be called if the graph has labelled connections.
+	 *
+	 * @param node index of the node
+	 * @param i index of the connection
+	 * @return a hash code of the edge name and kind
+	 */
+	public int getSuccessorEdgeColour(final int node, final int i) {
+		return computeEdgeColour(getSuccessorEdgeKey(node, i));
+	}
+
+	/**
+	 * Returns the colour of the edge represented by an incoming
+	 * connection. Unnamed connections have the colour 0.
+	 * Must only be called if the graph has labelled connections.
+	 *
+	 * @param node index of the node
+	 * @param i index of the connection
+	 * @return a hash code of the edge name and kind
+	 */
+	public int getPredecessorEdgeColour(final int node, final int i) {
+		return computeEdgeColour(predecessorEdgeKeys.get(predecessorOffsets.get(node) + i));
+	}
+
+	/**
+	 * Checks whether an outgoing connection of this graph and one
+	 * of another graph represent equivalent edges. Graphs without
+	 * labelled connections only have equivalent connections.
+	 *
+	 * @param node index of the node in this graph
+	 * @param i index of the connection of {@code node}
+	 * @param otherGraph the other graph
+	 * @param otherNode index of the node in the other graph
+	 * @param otherI index of the connection of {@code otherNode}
+	 * @return true if the edges are equivalent
+	 */
+	// NO CHECKSTYLE ParameterNumber FOR 2 LINES:
+	public boolean isEquivalentSuccessorEdge(final int node, final int i,
+			final CompactGraph otherGraph, final int otherNode, final int otherI) {
+		if (!labelled) {
+			return true;
+		}
+		return isEquivalentEdge(getSuccessorEdgeKey(node, i), otherGraph,
+				otherGraph.getSuccessorEdgeKey(otherNode, otherI));
+	}
+
+	/**
+	 * Checks whether an incoming connection of this graph and one
+	 * of another graph represent equivalent edges.
+	 *
+	 * @param node index of the node in this graph
+	 * @param i index of the connection of {@code node}
+	 * @param otherGraph the other graph
+	 * @param otherNode index of the node in the other graph
+	 * @param otherI index of the connection of {@code otherNode}
+	 * @return true if the edges are equivalent
+	 * @see #isEquivalentSuccessorEdge(int, int, CompactGraph, int, int)
+	 */
+	// NO CHECKSTYLE ParameterNumber FOR 2 LINES:
+	public boolean isEquivalentPredecessorEdge(final int node, final int i,
+			final CompactGraph otherGraph, final int otherNode, final int otherI) {
+		if (!labelled) {
+			return true;
+		}
+		return isEquivalentEdge(predecessorEdgeKeys.get(predecessorOffsets.get(node) + i),
+				otherGraph, otherGraph.predecessorEdgeKeys.get(
+						otherGraph.predecessorOffsets.get(otherNode) + otherI));
+	}
+
+	/**
+	 * Returns true if all vertices have a name and no two
+	 * vertices have the same name. Nodes representing named
+	 * edges are not taken into account. Isomorph graphs either
+	 * both have unique vertex names or both do not.
+	 *
+	 * @return true if the vertex names are unique
+	 */
+	public boolean hasUniqueVertexNames() {
+		return uniqueVertexNames;
+	}
+
+	/**
+	 * Returns the largest number of stored incoming or outgoing
+	 * connections of any node in the graph. Parallel connections
+	 * are counted once.
+	 *
+	 * @return the maximum in- or out-degree
+	 */
+	public int getMaxDegree() {
+		return maxDegree;
+	}
+
+	/**
+	 * Returns the kernel for computing refinement rounds on this
+	 * graph. The kernel is created on the first call.
+	 *
+	 * @return the kernel or null if the graph is not stored on
+	 *         the heap
+	 */
+	public SignatureKernel getSignatureKernel() {
+		if (nodeKeys.getStorage() != GraphStorage.HEAP) {
+			return null;
+		}
+		SignatureKernel kernel = signatureKernel;
+		if (kernel == null) {
+			kernel = new SignatureKernel(this);
+			signatureKernel = kernel;
+		}
+		return kernel;
+	}
+
+	/**
+	 * Returns the number of connections between nodes. Parallel
+	 * connections are counted with their multiplicity.
+	 *
+	 * @return number of connections
+	 */
+	public int getConnectionCount() {
+		return totalConnectionCount;
+	}
+
+	/**
+	 * Returns the number of connections which are actually
+	 * stored. Parallel connections are stored only once.
+	 *
+	 * @return number of stored connections
+	 */
+	public int getStoredConnectionCount() {
+		return successors.size();
+	}
+
+	static boolean equalNames(final Object name1, final Object name2) {
+		if (name1 == null) {
+			return name2 == null;
+		}
+		return name1.equals(name2);
+	}
+
+	private int getSuccessorEdgeKey(final int node, final int i) {
+		return successorEdgeKeys.get(successorOffsets.get(node) + i);
+	}
+
+	private boolean isEquivalentEdge(final int edgeKey, final CompactGraph otherGraph,
+			final int otherEdgeKey) {
+		return ConnectionList.getKind(edgeKey) == ConnectionList.getKind(otherEdgeKey)
+				&& equalNames(edgeNames.get(ConnectionList.getNameId(edgeKey)),
+						otherGraph.edgeNames.get(ConnectionList.getNameId(otherEdgeKey)));
+	}
+
+	private int computeEdgeColour(final int edgeKey) {
+		return computeEdgeColour(edgeNames.getHashCode(ConnectionList.getNameId(edgeKey)),
+				ConnectionList.getKind(edgeKey));
+	}
+
+	/**
+	 * Computes the colour of an edge.
+	 *
+	 * @param nameHashCode hash code of the edge name. 0 if the
+	 *        edge has no name.
+	 * @param kind of the edge
+	 * @return the colour of the edge. Unnamed connections have
+	 *         the colour 0.
+	 */
+	static int computeEdgeColour(final int nameHashCode, final byte kind) {
+		if (kind == ConnectionList.UNNAMED) {
+			return 0;
+		}
+		return nameHashCode * PRIME + kind;
+	}
+
+	private boolean checkUniqueVertexNames() {
+		final BitSet usedNames = new BitSet(nodeNames.size());
+		for (int node = 0; node < nodeKeys.size(); ++node) {
+			final int key = nodeKeys.get(node);
+			if (!isEdgeNodeKey(key)) {
+				final int nameId = key >>> 1;
+				if (nameId == NameDictionary.NULL_ID || usedNames.get(nameId)) {
+					return false;
+				}
+				usedNames.set(nameId);
+			}
+		}
+		return true;
+	}
+
+	private static IntArray trim(final IntArray array, final int size) {
+		if (array == null || array.size() == size) {
+			return array;
+		}
+		return array.copyOf(size);
+	}
+
+	/**
+	 * Sorts the connections in {@code [from, to]} by target
+	 * and edge key. Parallel connections become adjacent.
+	 */
+	private static void sortConnections(final IntArray targets, final IntArray keys,
+			final IntArray multiplicities, final int from, final int to) {
+		int low = from;
+		int high = to;
+		while (high - low >= INSERTION_SORT_THRESHOLD) {
+			final int pivot = low + (high - low) / 2;
+			final int pivotTarget = targets.get(pivot);
+			int pivotKey = 0;
+			if (keys != null) {
+				pivotKey = keys.get(pivot);
+			}
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (compare(targets, keys, i, pivotTarget, pivotKey) < 0) {
+					i += 1;
+				}
+				while (compare(targets, keys, j, pivotTarget, pivotKey) > 0) {
+					j -= 1;
+				}
+				if (i <= j) {
+					swap(targets, keys, multiplicities, i, j);
+					i += 1;
+					j -= 1;
+				}
+			}
+			// Recurse into the smaller part to limit the stack depth:
+			if (j - low < high - i) {
+				sortConnections(targets, keys, multiplicities, low, j);
+				low = i;
+			} else {
+				sortConnections(targets, keys, multiplicities, i, high);
+				high = j;
+			}
+		}
+		for (int i = low + 1; i <= high; ++i) {
+			int j = i;
+			while (j > low && compare(targets, keys, j, targets.get(j - 1), key(keys, j - 1)) < 0) {
+				swap(targets, keys, multiplicities, j, j - 1);
+				j -= 1;
+			}
+		}
+	}
+
+	private static int compare(final IntArray targets, final IntArray keys, final int i,
+			final int target, final int key) {
+		final int result = Integer.compare(targets.get(i), target);
+		if (result != 0) {
+			return result;
+		}
+		return Integer.compare(key(keys, i), key);
+	}
+
+	private static int key(final IntArray keys, final int i) {
+		if (keys == null) {
+			return 0;
+		}
+		return keys.get(i);
+	}
+
+	private static void swap(final IntArray targets, final IntArray keys,
+			final IntArray multiplicities, final int i, final int j) {
+		swap(targets, i, j);
+		if (keys != null) {
+			swap(keys, i, j);
+		}
+		if (multiplicities != null) {
+			swap(multiplicities, i, j);
+		}
+	}
+
+	private static void swap(final IntArray array, final int i, final int j) {
+		final int tmp = array.get(i);
+		array.set(i, array.get(j));
+		array.set(j, tmp);
+	}
+
+	private static int computeMaxDegree(final IntArray offsets) {
+		int degree = 0;
+		for (int i = 1; i < offsets.size(); ++i) {
+			degree = Math.max(degree, offsets.get(i) - offsets.get(i - 1));
+		}
+		return degree;
+	}
+
+}
@@ -0,0 +1,241 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * A growable list of connections stored in primitive arrays.
+ * It is used to collect connections before they are turned into
+ * the adjacency arrays of a {@link CompactGraph}. If the list is
+ * created as labelled, each connection also stores the name of
+ * the edge it represents and whether the edge is directed. Edge
+ * names are stored in a {@link NameDictionary} and each connection
+ * only holds an edge key combining the id of the name with the
+ * kind of the edge.
+ *
+ * Parallel connections can be stored as a single entry with a
+ * multiplicity. The arrays are allocated with the
+ * {@link GraphStorage} passed to the constructor.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class ConnectionList {
+
+	/** Kind of a connection which does not carry an edge name. */
+	public static final byte UNNAMED = 0;
+
+	/** Kind of a connection representing a named directed edge. */
+	public static final byte DIRECTED = 1;
+
+	/** Kind of a connection representing a named undirected edge. */
+	public static final byte UNDIRECTED = 2;
+
+	private static final int KIND_BITS = 2;
+	private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+	private final boolean labelled;
+	private final GraphStorage storage;
+	private final NameDictionary edgeNames;
+
+	private IntArray sources;
+	private IntArray targets;
+	private IntArray edgeKeys;
+	private IntArray multiplicities;
+	private int size;
+
+	ConnectionList(final int capacity, final boolean labelled) {
+		this(capacity, labelled, GraphStorage.HEAP);
+	}
+
+	ConnectionList(final int capacity, final boolean labelled, final GraphStorage storage) {
+		this.labelled = labelled;
+		this.storage = storage;
+		final int initialCapacity = Math.max(1, capacity);
+		sources = IntArray.allocate(initialCapacity, storage);
+		targets = IntArray.allocate(initialCapacity, storage);
+		if (labelled) {
+			edgeKeys = IntArray.allocate(initialCapacity, storage);
+			edgeNames = new NameDictionary();
+		} else {
+			edgeNames = null;
+		}
+	}
+
+	/**
+	 * Combines the id of an edge name and the kind of the edge
+	 * into an edge key.
+	 *
+	 * @param nameId id of the edge name
+	 * @param kind of the edge
+	 * @return the edge key
+	 */
+	public static int createEdgeKey(final int nameId, final byte kind) {
+		return (nameId << KIND_BITS) | kind;
+	}
+
+	public static int getNameId(final int edgeKey) {
+		return edgeKey >>> KIND_BITS;
+	}
+
+	public static byte getKind(final int edgeKey) {
+		return (byte) (edgeKey & KIND_MASK);
+	}
+
+	public boolean isLabelled() {
+		return labelled;
+	}
+
+	public GraphStorage getStorage() {
+		return storage;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getSource(final int i) {
+		return sources.get(i);
+	}
+
+	public int getTarget(final int i) {
+		return targets.get(i);
+	}
+
+	/**
+	 * Returns the edge key of a connection. Must only be called
+	 * on labelled lists.
+	 *
+	 * @param i index of the connection
+	 * @return the edge key of the connection
+	 * @see #createEdgeKey(int, byte)
+	 */
+	public int getEdgeKey(final int i) {
+		return edgeKeys.get(i);
+	}
+
+	/**
+	 * Returns the dictionary of the edge names. Must only be
+	 * called on labelled lists.
+	 *
+	 * @return the dictionary which resolves the name ids in
+	 *         the edge keys
+	 */
+	public NameDictionary getEdgeNames() {
+		return edgeNames;
+	}
+
+	/**
+	 * Returns how often a connection occurs.
+	 *
+	 * @param i index of the connection
+	 * @return the multiplicity of the connection
+	 */
+	public int getMultiplicity(final int i) {
+		if (multiplicities == null) {
+			return 1;
+		}
+		return multiplicities.get(i);
+	}
+
+	/**
+	 * Returns true if any connection has a multiplicity
+	 * greater than one.
+	 *
+	 * @return true if the list contains parallel connections
+	 */
+	public boolean hasMultiplicities() {
+		return multiplicities != null;
+	}
+
+	public void add(final int source, final int target) {
+		ensureCapacity(size + 1);
+		sources.set(size, source);
+		targets.set(size, target);
+		size += 1;
+	}
+
+	/**
+	 * Adds {@code multiplicity} parallel unnamed connections
+	 * as a single entry.
+	 *
+	 * @param source of the connections
+	 * @param target of the connections
+	 * @param multiplicity number of connections. Must be positive.
+	 */
+	public void add(final int source, final int target, final int multiplicity) {
+		add(source, target);
+		setMultiplicity(size - 1, multiplicity);
+	}
+
+	/**
+	 * Adds a connection which carries an edge name. Must only
+	 * be called on labelled lists.
+	 *
+	 * @param source of the connection
+	 * @param target of the connection
+	 * @param name of the edge. May be null.
+	 * @param kind {@link #DIRECTED} or {@link #UNDIRECTED}
+	 */
+	public void add(final int source, final int target, final Object name, final byte kind) {
+		ensureCapacity(size + 1);
+		sources.set(size, source);
+		targets.set(size, target);
+		edgeKeys.set(size, createEdgeKey(edgeNames.add(name), kind));
+		size += 1;
+	}
+
+	/**
+	 * Adds unnamed connections in bulk.
+	 *
+	 * @param newSources sources of the connections
+	 * @param newTargets targets of the connections
+	 */
+	public void addAll(final int[] newSources, final int[] newTargets) {
+		final int count = newSources.length;
+		ensureCapacity(size + count);
+		sources.copyFrom(size, newSources, 0, count);
+		targets.copyFrom(size, newTargets, 0, count);
+		size += count;
+	}
+
+	public void ensureCapacity(final int capacity) {
+		if (capacity > sources.size()) {
+			final int newCapacity = Math.max(capacity, 2 * sources.size());
+			sources = sources.copyOf(newCapacity);
+			targets = targets.copyOf(newCapacity);
+			if (labelled) {
+				edgeKeys = edgeKeys.copyOf(newCapacity);
+			}
+			if (multiplicities != null) {
+				final int oldCapacity = multiplicities.size();
+				multiplicities = multiplicities.copyOf(newCapacity);
+				multiplicities.fill(oldCapacity, newCapacity, 1);
+			}
+		}
+	}
+
+	private void setMultiplicity(final int i, final int multiplicity) {
+		if (multiplicities == null) {
+			if (multiplicity == 1) {
+				return;
+			}
+			multiplicities = IntArray.allocate(sources.size(), storage);
+			multiplicities.fill(0, sources.size(), 1);
+		}
+		multiplicities.set(i, multiplicity);
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Controls the output of {@link Graph#dump(Appendable, DumpOptions)}.
+ * Options are immutable. The {@code with*} methods return modified
+ * copies.
+ *
+ * In the default mode the dump lists every vertex together with
+ * its outgoing edges. The output can be truncated after a number
+ * of vertices and a number of edges per vertex. In summary mode
+ * only the number of vertices and edges, a histogram of the
+ * out-degrees and the most frequent vertex and edge names are
+ * written. The memory needed by a dump does not depend on the
+ * size of the graph.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class DumpOptions {
+
+	/**
+	 * Dumps the complete graph.
+	 */
+	public static final DumpOptions FULL = new DumpOptions(false, Integer.MAX_VALUE,
+			Integer.MAX_VALUE, 0);
+
+	/**
+	 * Writes a summary of the graph including the ten most
+	 * frequent vertex and edge names.
+	 */
+	public static final DumpOptions SUMMARY = new DumpOptions(true, Integer.MAX_VALUE,
+			Integer.MAX_VALUE, 10);
+
+	private final boolean summary;
+	private final int maxVertices;
+	private final int maxEdgesPerVertex;
+	private final int topNames;
+
+	private DumpOptions(final boolean summary, final int maxVertices,
+			final int maxEdgesPerVertex, final int topNames) {
+		this.summary = summary;
+		this.maxVertices = maxVertices;
+		this.maxEdgesPerVertex = maxEdgesPerVertex;
+		this.topNames = topNames;
+	}
+
+	/**
+	 * Stops the dump after {@code count} vertices. The number
+	 * of omitted vertices is written instead.
+	 *
+	 * @param count maximum number of vertices
+	 * @return a copy of these options with the new limit
+	 */
+	public DumpOptions withMaxVertices(final int count) {
+		checkNotNegative(count);
+		return new DumpOptions(summary, count, maxEdgesPerVertex, topNames);
+	}
+
+	/**
+	 * Writes at most {@code count} edges per vertex. The number
+	 * of omitted edges is written instead.
+	 *
+	 * @param count maximum number of edges per vertex
+	 * @return a copy of these options with the new limit
+	 */
+	public DumpOptions withMaxEdgesPerVertex(final int count) {
+		checkNotNegative(count);
+		return new DumpOptions(summary, maxVertices, count, topNames);
+	}
+
+	/**
+	 * Sets the number of names listed in summary mode. The
+	 * frequencies of the names are estimated with the Misra-Gries
+	 * algorithm. They are lower bounds of the actual frequencies.
+	 *
+	 * @param count number of vertex and edge names to list
+	 * @return a copy of these options with the new count
+	 */
+	public DumpOptions withTopNames(final int count) {
+		checkNotNegative(count);
+		return new DumpOptions(summary, maxVertices, maxEdgesPerVertex, count);
+	}
+
+	boolean isSummary() {
+		return summary;
+	}
+
+	int getMaxVertices() {
+		return maxVertices;
+	}
+
+	int getMaxEdgesPerVertex() {
+		return maxEdgesPerVertex;
+	}
+
+	int getTopNames() {
+		return topNames;
+	}
+
+	private static void checkNotNegative(final int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("count must not be negative");
+		}
+	}
+
+}
@@ -23,8 +23,8 @@
  */
 final class EdgeNode<N> extends Node<N> {
 
-	public EdgeNode(final N name) {
-		super(name);
+	public EdgeNode(final N name, final int index) {
+		super(name, index);
 	}
 
 	@Override
@@ -40,15 +40,4 @@ public String toString() {
 		return builder.toString();
 	}
 
-	@Override
-	protected void printEdges(final StringBuilder builder) {
-		for (final Node<?> node : getConnectedTo()) {
-			builder.append("\t--");
-			builder.append(toString());
-			builder.append("--> ");
-			builder.append(node.toString());
-			builder.append('\n');
-		}
-	}
-
 }
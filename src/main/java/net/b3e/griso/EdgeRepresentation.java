@@ -0,0 +1,45 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Defines how named edges are represented internally. Both
+ * representations lead to the same isomorphism classes but
+ * graphs using different representations cannot be compared
+ * with each other.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public enum EdgeRepresentation {
+
+	/**
+	 * Each named edge is represented by a node which is
+	 * connected to the end vertices of the edge. This is the
+	 * representation used by {@link Graph}.
+	 */
+	NODES,
+
+	/**
+	 * Named edges are represented by connections between the
+	 * end vertices which carry the name of the edge. The
+	 * labeller refines labels using pairs of edge names and
+	 * neighbour labels. Graphs in which most edges are named
+	 * have about half as many nodes in this representation.
+	 */
+	LABELLED_CONNECTIONS
+
+}
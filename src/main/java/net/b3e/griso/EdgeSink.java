@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Receives edges between vertices which are identified by
+ * their index. Parsers can write edges to a sink without
+ * knowing how the graph is stored.
+ *
+ * @param <E> Type of edge names
+ *
+ * @author Christoph Böhme
+ *
+ */
+public interface EdgeSink<E> {
+
+	/**
+	 * Adds a directed edge.
+	 *
+	 * @param fromVertex index of the vertex where the edge starts from
+	 * @param toVertex index of the vertex at which the edge ends
+	 * @param edgeName of the edge
+	 */
+	void addDirectedEdge(int fromVertex, int toVertex, E edgeName);
+
+	/**
+	 * Adds a directed unnamed edge.
+	 *
+	 * @param fromVertex index of the vertex where the edge starts from
+	 * @param toVertex index of the vertex at which the edge ends
+	 */
+	void addDirectedEdge(int fromVertex, int toVertex);
+
+}
@@ -0,0 +1,549 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Colour refinement for graphs which do not fit into memory,
+ * not even into off-heap memory. Vertices and edges are written
+ * to temporary files as they are added. Before refinement starts,
+ * the connections are sorted by the neighbour whose colour they
+ * contribute. Each refinement round scans the sorted connections
+ * together with the colours of the neighbours and collects the
+ * contribution of each connection to the new colour of its end
+ * vertex as a (vertex, value) pair. The pairs are sorted with an
+ * {@link ExternalSorter} so that the new colours can be computed
+ * in a single pass over the vertices. The colours are kept in
+ * memory-mapped files which are only read and written in
+ * ascending order of the vertices. Contributions to vertices
+ * whose colour is already unique are discarded in that pass.
+ *
+ * The refinement uses the same colour function as
+ * {@link GraphLabeller} on graphs whose named edges are
+ * represented as {@link EdgeRepresentation#LABELLED_CONNECTIONS}.
+ * The resulting partition of the vertices is the same as the
+ * partition computed by the labeller before it starts searching.
+ * Vertex invariants and pair refinement are not supported.
+ *
+ * Only the sort buffers, the stream buffers and the mapped pages
+ * of the colour files occupy memory. The temporary files are
+ * deleted when the refinement is closed.
+ *
+ * @param <V> Type of vertex names
+ * @param <E> Type of edge names
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class ExternalRefinement<V, E> implements Closeable {
+
+	/**
+	 * Default number of pairs which are sorted in memory.
+	 */
+	public static final int DEFAULT_SORT_BUFFER_SIZE = 1 << 22;
+
+	private static final int STREAM_BUFFER_SIZE = 1 << 16;
+	private static final long VALUE_MASK = 0xffffffffL;
+
+	private final Label.Factory labelFactory = new Label.Factory();
+
+	private final Path directory;
+	private final int sortBufferSize;
+	private final ExternalSorter sorter;
+	private final ExternalSorter ambiguitySorter;
+
+	private final Path vertexFile;
+	private final Path edgeFile;
+	private final DataOutputStream vertexOut;
+	private final DataOutputStream edgeOut;
+	private int vertexCount;
+	private long connectionCount;
+
+	private boolean refined;
+	private Path neighbourFile;
+	private FileChannel hashChannel;
+	private FileChannel colourChannel;
+	private FileChannel nextColourChannel;
+	private FileChannel ambiguityChannel;
+	private IntArray hashCodes;
+	private IntArray colours;
+	private IntArray nextColours;
+	private IntArray ambiguous;
+	private int colourCount;
+
+	/**
+	 * Creates a refinement which stores its temporary files
+	 * in {@code directory}.
+	 *
+	 * @param directory for temporary files
+	 * @throws IOException if the temporary files cannot be
+	 *         created
+	 */
+	public ExternalRefinement(final Path directory) throws IOException {
+		this(directory, DEFAULT_SORT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a refinement which stores its temporary files
+	 * in {@code directory}.
+	 *
+	 * @param directory for temporary files
+	 * @param sortBufferSize number of (vertex, value) pairs
+	 *        which are sorted in memory. Each pair occupies
+	 *        eight bytes. Two buffers of this size are used.
+	 * @throws IOException if the temporary files cannot be
+	 *         created
+	 */
+	public ExternalRefinement(final Path directory, final int sortBufferSize)
+			throws IOException {
+		this.directory = directory;
+		this.sortBufferSize = sortBufferSize;
+		sorter = new ExternalSorter(directory, sortBufferSize);
+		ambiguitySorter = new ExternalSorter(directory, sortBufferSize);
+		// The caller cannot close a partially constructed refinement,
+		// so the files created so far are deleted on failure:
+		Path vertices = null;
+		Path edges = null;
+		DataOutputStream vertexStream = null;
+		try {
+			vertices = Files.createTempFile(directory, "griso-vertices", ".tmp");
+			edges = Files.createTempFile(directory, "griso-edges", ".tmp");
+			vertexStream = openOutput(vertices);
+			edgeOut = openOutput(edges);
+			vertexFile = vertices;
+			edgeFile = edges;
+			vertexOut = vertexStream;
+		} catch (final IOException | RuntimeException e) {
+			closeQuietly(vertexStream, e);
+			deleteQuietly(vertices, e);
+			deleteQuietly(edges, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds a named vertex.
+	 *
+	 * @param vertexName of the vertex. May be null.
+	 * @return the index of the vertex
+	 * @throws IOException if the vertex cannot be written
+	 */
+	public int addVertex(final V vertexName) throws IOException {
+		checkNotRefined();
+		vertexOut.writeInt(hashCode(vertexName));
+		vertexCount += 1;
+		return vertexCount - 1;
+	}
+
+	/**
+	 * Adds a directed edge.
+	 *
+	 * @param fromVertex index of the vertex where the edge starts from
+	 * @param toVertex index of the vertex at which the edge ends
+	 * @param edgeName of the edge
+	 * @throws IOException if the edge cannot be written
+	 * @throws IllegalArgumentException if {@code fromVertex} or
+	 *         {@code toVertex} is not a vertex index
+	 */
+	public void addDirectedEdge(final int fromVertex, final int toVertex, final E edgeName)
+			throws IOException {
+		addConnection(fromVertex, toVertex,
+				CompactGraph.computeEdgeColour(hashCode(edgeName), ConnectionList.DIRECTED));
+	}
+
+	/**
+	 * Adds a directed unnamed edge.
+	 *
+	 * @param fromVertex index of the vertex where the edge starts from
+	 * @param toVertex index of the vertex at which the edge ends
+	 * @throws IOException if the edge cannot be written
+	 * @throws IllegalArgumentException if {@code fromVertex} or
+	 *         {@code toVertex} is not a vertex index
+	 */
+	public void addDirectedEdge(final int fromVertex, final int toVertex) throws IOException {
+		addConnection(fromVertex, toVertex, 0);
+	}
+
+	/**
+	 * Adds an undirected edge.
+	 *
+	 * @param vertex1 index of the first end vertex of the edge
+	 * @param vertex2 index of the second end vertex of the edge
+	 * @param edgeName of the edge
+	 * @throws IOException if the edge cannot be written
+	 * @throws IllegalArgumentException if {@code vertex1} or
+	 *         {@code vertex2} is not a vertex index
+	 */
+	public void addUndirectedEdge(final int vertex1, final int vertex2, final E edgeName)
+			throws IOException {
+		final int colour =
+				CompactGraph.computeEdgeColour(hashCode(edgeName), ConnectionList.UNDIRECTED);
+		addConnection(vertex1, vertex2, colour);
+		addConnection(vertex2, vertex1, colour);
+	}
+
+	/**
+	 * Adds an undirected unnamed edge.
+	 *
+	 * @param vertex1 index of the first end vertex of the edge
+	 * @param vertex2 index of the second end vertex of the edge
+	 * @throws IOException if the edge cannot be written
+	 * @throws IllegalArgumentException if {@code vertex1} or
+	 *         {@code vertex2} is not a vertex index
+	 */
+	public void addUndirectedEdge(final int vertex1, final int vertex2) throws IOException {
+		addConnection(vertex1, vertex2, 0);
+		addConnection(vertex2, vertex1, 0);
+	}
+
+	/**
+	 * Refines the colours of the vertices until the partition
+	 * is stable. No vertices or edges can be added afterwards.
+	 *
+	 * @throws IOException if a temporary file cannot be read
+	 *         or written
+	 */
+	public void refine() throws IOException {
+		checkNotRefined();
+		refined = true;
+		vertexOut.close();
+		edgeOut.close();
+		sortConnectionsByNeighbour();
+
+		hashChannel = openChannel(vertexFile);
+		colourChannel = openTemporaryChannel("colours");
+		nextColourChannel = openTemporaryChannel("colours");
+		ambiguityChannel = openTemporaryChannel("ambiguity");
+		hashCodes = IntArray.map(hashChannel, vertexCount);
+		colours = IntArray.map(colourChannel, vertexCount);
+		nextColours = IntArray.map(nextColourChannel, vertexCount);
+		ambiguous = IntArray.map(ambiguityChannel, vertexCount);
+
+		for (int vertex = 0; vertex < vertexCount; ++vertex) {
+			colours.set(vertex, hashCodes.get(vertex));
+		}
+		colourCount = collectAmbiguousVertices();
+		// The labeller limits the number of rounds by its
+		// estimate of the graph diameter:
+		for (int round = 0; round < vertexCount; ++round) {
+			if (!relabelAmbiguousVertices()) {
+				break;
+			}
+			colourCount = collectAmbiguousVertices();
+		}
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * Returns the colour of a vertex after refinement. Vertices
+	 * have the same colour if and only if the labeller puts them
+	 * into the same label group.
+	 *
+	 * @param vertex index of the vertex
+	 * @return the colour of the vertex
+	 * @throws IllegalStateException if {@link #refine()} has
+	 *         not been called
+	 */
+	public int getColour(final int vertex) {
+		checkRefined();
+		return colours.get(vertex);
+	}
+
+	/**
+	 * Returns the number of distinct colours after refinement.
+	 *
+	 * @return the number of colour classes
+	 * @throws IllegalStateException if {@link #refine()} has
+	 *         not been called
+	 */
+	public int getColourCount() {
+		checkRefined();
+		return colourCount;
+	}
+
+	/**
+	 * Deletes all temporary files. The colours are not
+	 * available anymore afterwards. All files are closed and
+	 * deleted even if closing or deleting one of them fails.
+	 *
+	 * @throws IOException if a file cannot be closed or deleted
+	 */
+	@Override
+	public void close() throws IOException {
+		hashCodes = null;
+		colours = null;
+		nextColours = null;
+		ambiguous = null;
+		IOException failure = null;
+		failure = ExternalSorter.close(vertexOut, failure);
+		failure = ExternalSorter.close(edgeOut, failure);
+		failure = ExternalSorter.close(sorter, failure);
+		failure = ExternalSorter.close(ambiguitySorter, failure);
+		failure = ExternalSorter.close(hashChannel, failure);
+		failure = ExternalSorter.close(colourChannel, failure);
+		failure = ExternalSorter.close(nextColourChannel, failure);
+		failure = ExternalSorter.close(ambiguityChannel, failure);
+		failure = ExternalSorter.delete(vertexFile, failure);
+		failure = ExternalSorter.delete(edgeFile, failure);
+		failure = ExternalSorter.delete(neighbourFile, failure);
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void addConnection(final int source, final int target, final int colour)
+			throws IOException {
+		checkNotRefined();
+		checkVertex(source);
+		checkVertex(target);
+		edgeOut.writeInt(source);
+		edgeOut.writeInt(target);
+		edgeOut.writeInt(colour);
+		connectionCount += 1;
+	}
+
+	/**
+	 * Writes the connections sorted by the neighbour whose colour
+	 * they contribute. Each entry consists of the neighbour and
+	 * the end vertex as key and the direction factor and edge
+	 * colour as payload. Reading the entries in order reads the
+	 * colours of the neighbours sequentially.
+	 */
+	private void sortConnectionsByNeighbour() throws IOException {
+		neighbourFile = Files.createTempFile(directory, "griso-neighbours", ".tmp");
+		// Entries have payloads, so half as many fit into the buffer:
+		try (ExternalSorter neighbourSorter =
+				ExternalSorter.withPayloads(directory, sortBufferSize / 2)) {
+			try (DataInputStream edges = openInput(edgeFile)) {
+				for (long i = 0; i < connectionCount; ++i) {
+					final int source = edges.readInt();
+					final int target = edges.readInt();
+					final int colour = edges.readInt();
+					neighbourSorter.add(pack(target, source),
+							pack(GraphLabeller.CONNECTION_TO, colour));
+					neighbourSorter.add(pack(source, target),
+							pack(GraphLabeller.CONNECTION_FROM, colour));
+				}
+			}
+			final ExternalSorter.SortedValues sorted = neighbourSorter.sort();
+			try (DataOutputStream out = openOutput(neighbourFile)) {
+				while (sorted.hasNext()) {
+					out.writeLong(sorted.next());
+					out.writeLong(sorted.getPayload());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks the vertices which share their colour with other
+	 * vertices. Only these vertices are relabelled. The vertices
+	 * are grouped by sorting them by colour. The ambiguous
+	 * vertices are then sorted by index so that the marks are
+	 * written sequentially.
+	 *
+	 * @return the number of colour classes
+	 */
+	private int collectAmbiguousVertices() throws IOException {
+		for (int vertex = 0; vertex < vertexCount; ++vertex) {
+			sorter.add(((long) colours.get(vertex) << Integer.SIZE) | vertex);
+		}
+		final ExternalSorter.SortedValues sorted = sorter.sort();
+		int groupCount = 0;
+		int groupStart = -1;
+		int groupSize = 0;
+		long groupColour = 0;
+		while (sorted.hasNext()) {
+			final long value = sorted.next();
+			final int vertex = (int) value;
+			final long colour = value >> Integer.SIZE;
+			if (groupSize == 0 || colour != groupColour) {
+				groupCount += 1;
+				groupStart = vertex;
+				groupSize = 0;
+				groupColour = colour;
+			} else {
+				if (groupSize == 1) {
+					ambiguitySorter.add(groupStart);
+				}
+				ambiguitySorter.add(vertex);
+			}
+			groupSize += 1;
+		}
+		sorter.clear();
+
+		final ExternalSorter.SortedValues ambiguousVertices = ambiguitySorter.sort();
+		long nextAmbiguous = -1;
+		if (ambiguousVertices.hasNext()) {
+			nextAmbiguous = ambiguousVertices.next();
+		}
+		for (int vertex = 0; vertex < vertexCount; ++vertex) {
+			if (vertex == nextAmbiguous) {
+				ambiguous.set(vertex, 1);
+				nextAmbiguous = -1;
+				if (ambiguousVertices.hasNext()) {
+					nextAmbiguous = ambiguousVertices.next();
+				}
+			} else {
+				ambiguous.set(vertex, 0);
+			}
+		}
+		ambiguitySorter.clear();
+		return groupCount;
+	}
+
+	private boolean relabelAmbiguousVertices() throws IOException {
+		try (DataInputStream connections = openInput(neighbourFile)) {
+			int neighbour = -1;
+			int labelHash = 0;
+			for (long i = 0; i < 2 * connectionCount; ++i) {
+				final long key = connections.readLong();
+				final long payload = connections.readLong();
+				final int nextNeighbour = (int) (key >>> Integer.SIZE);
+				if (nextNeighbour != neighbour) {
+					neighbour = nextNeighbour;
+					labelHash = Label.hashCode(labelFactory.create(colours.get(neighbour)));
+				}
+				final int factor = (int) (payload >>> Integer.SIZE);
+				final int value = factor * GraphLabeller.combine((int) payload, labelHash);
+				sorter.add(((key & VALUE_MASK) << Integer.SIZE) | (value & VALUE_MASK));
+			}
+		}
+
+		final ExternalSorter.SortedValues sorted = sorter.sort();
+		boolean hasContribution = sorted.hasNext();
+		long contribution = 0;
+		if (hasContribution) {
+			contribution = sorted.next();
+		}
+		boolean modified = false;
+		for (int vertex = 0; vertex < vertexCount; ++vertex) {
+			int newColour = hashCodes.get(vertex);
+			while (hasContribution && (int) (contribution >>> Integer.SIZE) == vertex) {
+				newColour += (int) contribution;
+				hasContribution = sorted.hasNext();
+				if (hasContribution) {
+					contribution = sorted.next();
+				}
+			}
+			final int colour = colours.get(vertex);
+			if (ambiguous.get(vertex) == 0) {
+				nextColours.set(vertex, colour);
+				continue;
+			}
+			nextColours.set(vertex, newColour);
+			if (newColour != colour) {
+				modified = true;
+			}
+		}
+		sorter.clear();
+
+		final IntArray tmp = colours;
+		colours = nextColours;
+		nextColours = tmp;
+		return modified;
+	}
+
+	private static long pack(final int high, final int low) {
+		return ((long) high << Integer.SIZE) | (low & VALUE_MASK);
+	}
+
+	private void checkVertex(final int vertex) {
+		if (vertex < 0 || vertex >= vertexCount) {
+			throw new IllegalArgumentException("No vertex with index " + vertex + " exists");
+		}
+	}
+
+	private void checkNotRefined() {
+		if (refined) {
+			throw new IllegalStateException("Refinement has already been computed");
+		}
+	}
+
+	private void checkRefined() {
+		if (!refined) {
+			throw new IllegalStateException("Refinement has not been computed yet");
+		}
+	}
+
+	private FileChannel openTemporaryChannel(final String prefix) throws IOException {
+		final Path file = Files.createTempFile(directory, "griso-" + prefix, ".tmp");
+		try {
+			return FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE);
+		} catch (final IOException | RuntimeException e) {
+			deleteQuietly(file, e);
+			throw e;
+		}
+	}
+
+	private static int hashCode(final Object name) {
+		if (name == null) {
+			return 0;
+		}
+		return name.hashCode();
+	}
+
+	private static DataOutputStream openOutput(final Path file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+				STREAM_BUFFER_SIZE));
+	}
+
+	private static DataInputStream openInput(final Path file) throws IOException {
+		return new DataInputStream(new BufferedInputStream(Files.newInputStream(file),
+				STREAM_BUFFER_SIZE));
+	}
+
+	private static FileChannel openChannel(final Path file) throws IOException {
+		return FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	private static void closeQuietly(final Closeable closeable, final Throwable cause) {
+		if (closeable == null) {
+			return;
+		}
+		try {
+			closeable.close();
+		} catch (final IOException e) {
+			cause.addSuppressed(e);
+		}
+	}
+
+	private static void deleteQuietly(final Path file, final Throwable cause) {
+		if (file == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(file);
+		} catch (final IOException e) {
+			cause.addSuppressed(e);
+		}
+	}
+
+}
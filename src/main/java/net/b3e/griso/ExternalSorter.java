@@ -0,0 +1,518 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts more long values than fit into memory. Values are
+ * collected in a buffer. Whenever the buffer is full, it is
+ * sorted and written to a temporary file (a run). The sorted
+ * values are read by merging the runs. If all values fit into
+ * the buffer, no files are written.
+ *
+ * Each open run needs a file descriptor and a stream buffer.
+ * At most {@link #MAX_MERGE_FAN_IN} runs are therefore merged
+ * at once. If there are more runs, they are merged into longer
+ * runs in several passes first.
+ *
+ * Values can carry a payload of another long (see
+ * {@link #withPayloads(Path, int)}). Values with equal keys are
+ * ordered by their payloads.
+ *
+ * A sorter can be reused after calling {@link #clear()}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class ExternalSorter implements Closeable {
+
+	/**
+	 * Default maximum number of runs which are merged at once.
+	 */
+	public static final int MAX_MERGE_FAN_IN = 64;
+
+	private static final int STREAM_BUFFER_SIZE = 1 << 16;
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	private final Path directory;
+	private final int recordLength;
+	private final int maxFanIn;
+	private final long[] buffer;
+	private final int capacity;
+	private final List<Path> runs = new ArrayList<>();
+	private final List<Long> runLengths = new ArrayList<>();
+	private final List<Run> openRuns = new ArrayList<>();
+	private int size;
+
+	/**
+	 * Creates a sorter.
+	 *
+	 * @param directory for the temporary files
+	 * @param bufferSize number of values which are sorted
+	 *        in memory
+	 */
+	ExternalSorter(final Path directory, final int bufferSize) {
+		this(directory, bufferSize, 1, MAX_MERGE_FAN_IN);
+	}
+
+	/**
+	 * Creates a sorter.
+	 *
+	 * @param directory for the temporary files
+	 * @param bufferSize number of values which are sorted
+	 *        in memory
+	 * @param recordLength 1 for plain values, 2 for values
+	 *        with payloads
+	 * @param maxFanIn maximum number of runs which are
+	 *        merged at once. Must be at least 2.
+	 */
+	ExternalSorter(final Path directory, final int bufferSize, final int recordLength,
+			final int maxFanIn) {
+		if (maxFanIn < 2) {
+			throw new IllegalArgumentException("maxFanIn must be at least 2");
+		}
+		this.directory = directory;
+		this.recordLength = recordLength;
+		this.maxFanIn = maxFanIn;
+		capacity = Math.max(1, bufferSize);
+		buffer = new long[capacity * recordLength];
+	}
+
+	/**
+	 * Creates a sorter for values with payloads. Both the value
+	 * and its payload are stored in the buffer, so each entry
+	 * occupies sixteen bytes.
+	 *
+	 * @param directory for the temporary files
+	 * @param bufferSize number of values which are sorted
+	 *        in memory
+	 * @return a new sorter
+	 */
+	static ExternalSorter withPayloads(final Path directory, final int bufferSize) {
+		return new ExternalSorter(directory, bufferSize, 2, MAX_MERGE_FAN_IN);
+	}
+
+	public void add(final long value) throws IOException {
+		checkRecordLength(1);
+		if (size == capacity) {
+			writeRun();
+		}
+		buffer[size] = value;
+		size += 1;
+	}
+
+	public void add(final long value, final long payload) throws IOException {
+		checkRecordLength(2);
+		if (size == capacity) {
+			writeRun();
+		}
+		buffer[2 * size] = value;
+		buffer[2 * size + 1] = payload;
+		size += 1;
+	}
+
+	/**
+	 * Sorts the values added so far. No values must be added
+	 * afterwards until {@link #clear()} is called.
+	 *
+	 * @return the values in ascending order
+	 * @throws IOException if a run cannot be read or written
+	 */
+	public SortedValues sort() throws IOException {
+		if (runs.isEmpty()) {
+			sortBuffer();
+			return new BufferedValues();
+		}
+		if (size > 0) {
+			writeRun();
+		}
+		while (runs.size() > maxFanIn) {
+			mergeRuns();
+		}
+		final PriorityQueue<Run> queue = new PriorityQueue<>(runs.size());
+		for (int i = 0; i < runs.size(); ++i) {
+			final Run run = new Run(runs.get(i), runLengths.get(i), recordLength);
+			openRuns.add(run);
+			if (run.advance()) {
+				queue.add(run);
+			}
+		}
+		return new MergedValues(queue);
+	}
+
+	/**
+	 * Removes all values and deletes the runs. All runs are
+	 * closed and deleted even if closing or deleting one of
+	 * them fails.
+	 *
+	 * @throws IOException if a run cannot be closed or deleted
+	 */
+	public void clear() throws IOException {
+		IOException failure = null;
+		for (final Run run : openRuns) {
+			failure = close(run, failure);
+		}
+		openRuns.clear();
+		for (final Path path : runs) {
+			failure = delete(path, failure);
+		}
+		runs.clear();
+		runLengths.clear();
+		size = 0;
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		clear();
+	}
+
+	/**
+	 * Returns the number of runs written since the sorter was
+	 * created or cleared. Runs created by merging are included.
+	 */
+	int getRunCount() {
+		return runs.size();
+	}
+
+	/**
+	 * Closes {@code closeable} and returns the first failure.
+	 * Later failures are added to it as suppressed exceptions.
+	 */
+	static IOException close(final Closeable closeable, final IOException failure) {
+		if (closeable == null) {
+			return failure;
+		}
+		try {
+			closeable.close();
+		} catch (final IOException e) {
+			return addFailure(failure, e);
+		}
+		return failure;
+	}
+
+	/**
+	 * Deletes {@code file} and returns the first failure. Later
+	 * failures are added to it as suppressed exceptions.
+	 */
+	static IOException delete(final Path file, final IOException failure) {
+		if (file == null) {
+			return failure;
+		}
+		try {
+			Files.deleteIfExists(file);
+		} catch (final IOException e) {
+			return addFailure(failure, e);
+		}
+		return failure;
+	}
+
+	private static IOException addFailure(final IOException failure, final IOException e) {
+		if (failure == null) {
+			return e;
+		}
+		failure.addSuppressed(e);
+		return failure;
+	}
+
+	private void checkRecordLength(final int length) {
+		if (recordLength != length) {
+			throw new IllegalStateException("Sorter stores records of length " + recordLength);
+		}
+	}
+
+	private void writeRun() throws IOException {
+		sortBuffer();
+		final Path path = Files.createTempFile(directory, "griso-run", ".tmp");
+		runs.add(path);
+		runLengths.add(Long.valueOf(size));
+		try (DataOutputStream out = openOutput(path)) {
+			for (int i = 0; i < size * recordLength; ++i) {
+				out.writeLong(buffer[i]);
+			}
+		}
+		size = 0;
+	}
+
+	/**
+	 * Merges the first {@code maxFanIn} runs into a new run
+	 * which is appended to the list of runs.
+	 */
+	private void mergeRuns() throws IOException {
+		final List<Path> inputs = new ArrayList<>(runs.subList(0, maxFanIn));
+		final List<Long> inputLengths = new ArrayList<>(runLengths.subList(0, maxFanIn));
+		runs.subList(0, maxFanIn).clear();
+		runLengths.subList(0, maxFanIn).clear();
+		long length = 0;
+		for (final Long inputLength : inputLengths) {
+			length += inputLength;
+		}
+		final List<Run> inputRuns = new ArrayList<>(maxFanIn);
+		IOException failure = null;
+		try {
+			final Path path = Files.createTempFile(directory, "griso-run", ".tmp");
+			runs.add(path);
+			runLengths.add(Long.valueOf(length));
+			final PriorityQueue<Run> queue = new PriorityQueue<>(maxFanIn);
+			for (int i = 0; i < inputs.size(); ++i) {
+				final Run run = new Run(inputs.get(i), inputLengths.get(i), recordLength);
+				inputRuns.add(run);
+				if (run.advance()) {
+					queue.add(run);
+				}
+			}
+			try (DataOutputStream out = openOutput(path)) {
+				final MergedValues merged = new MergedValues(queue);
+				while (merged.hasNext()) {
+					out.writeLong(merged.next());
+					if (recordLength == 2) {
+						out.writeLong(merged.getPayload());
+					}
+				}
+			}
+		} catch (final IOException e) {
+			failure = e;
+		} finally {
+			for (final Run run : inputRuns) {
+				failure = close(run, failure);
+			}
+			for (final Path input : inputs) {
+				failure = delete(input, failure);
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void sortBuffer() {
+		if (recordLength == 1) {
+			Arrays.sort(buffer, 0, size);
+		} else {
+			sortPairs(0, size);
+		}
+	}
+
+	/**
+	 * Sorts the (value, payload) pairs in the given range of
+	 * the buffer in place.
+	 */
+	private void sortPairs(final int from, final int to) {
+		int low = from;
+		int high = to - 1;
+		while (high - low >= INSERTION_SORT_THRESHOLD) {
+			final int middle = low + (high - low) / 2;
+			final long pivotValue = buffer[2 * middle];
+			final long pivotPayload = buffer[2 * middle + 1];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (isLess(buffer[2 * i], buffer[2 * i + 1], pivotValue, pivotPayload)) {
+					i += 1;
+				}
+				while (isLess(pivotValue, pivotPayload, buffer[2 * j], buffer[2 * j + 1])) {
+					j -= 1;
+				}
+				if (i <= j) {
+					swapPairs(i, j);
+					i += 1;
+					j -= 1;
+				}
+			}
+			// Recurse into the smaller part to limit the stack depth:
+			if (j - low < high - i) {
+				sortPairs(low, j + 1);
+				low = i;
+			} else {
+				sortPairs(i, high + 1);
+				high = j;
+			}
+		}
+		for (int i = low + 1; i <= high; ++i) {
+			final long value = buffer[2 * i];
+			final long payload = buffer[2 * i + 1];
+			int j = i - 1;
+			while (j >= low && isLess(value, payload, buffer[2 * j], buffer[2 * j + 1])) {
+				buffer[2 * j + 2] = buffer[2 * j];
+				buffer[2 * j + 3] = buffer[2 * j + 1];
+				j -= 1;
+			}
+			buffer[2 * j + 2] = value;
+			buffer[2 * j + 3] = payload;
+		}
+	}
+
+	private void swapPairs(final int i, final int j) {
+		final long value = buffer[2 * i];
+		final long payload = buffer[2 * i + 1];
+		buffer[2 * i] = buffer[2 * j];
+		buffer[2 * i + 1] = buffer[2 * j + 1];
+		buffer[2 * j] = value;
+		buffer[2 * j + 1] = payload;
+	}
+
+	private static boolean isLess(final long value1, final long payload1, final long value2,
+			final long payload2) {
+		return value1 < value2 || (value1 == value2 && payload1 < payload2);
+	}
+
+	private static DataOutputStream openOutput(final Path path) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path),
+				STREAM_BUFFER_SIZE));
+	}
+
+	/**
+	 * Sequence of sorted values.
+	 */
+	interface SortedValues {
+
+		boolean hasNext();
+
+		long next() throws IOException;
+
+		/**
+		 * Returns the payload of the value which was returned
+		 * by the last call to {@link #next()}.
+		 *
+		 * @return the payload or 0 if values have no payloads
+		 */
+		long getPayload();
+
+	}
+
+	/**
+	 * Values which fit into the buffer.
+	 */
+	private final class BufferedValues implements SortedValues {
+
+		private int position;
+
+		@Override
+		public boolean hasNext() {
+			return position < size;
+		}
+
+		@Override
+		public long next() {
+			position += 1;
+			return buffer[(position - 1) * recordLength];
+		}
+
+		@Override
+		public long getPayload() {
+			if (recordLength == 1) {
+				return 0;
+			}
+			return buffer[(position - 1) * recordLength + 1];
+		}
+
+	}
+
+	/**
+	 * Values merged from several runs.
+	 */
+	private static final class MergedValues implements SortedValues {
+
+		private final PriorityQueue<Run> queue;
+		private long payload;
+
+		MergedValues(final PriorityQueue<Run> queue) {
+			this.queue = queue;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !queue.isEmpty();
+		}
+
+		@Override
+		public long next() throws IOException {
+			final Run run = queue.poll();
+			final long value = run.current;
+			payload = run.currentPayload;
+			if (run.advance()) {
+				queue.add(run);
+			}
+			return value;
+		}
+
+		@Override
+		public long getPayload() {
+			return payload;
+		}
+
+	}
+
+	/**
+	 * Reads the values of a run.
+	 */
+	private static final class Run implements Comparable<Run>, Closeable {
+
+		private final DataInputStream in;
+		private final int recordLength;
+		private long remaining;
+		private long current;
+		private long currentPayload;
+
+		Run(final Path path, final long length, final int recordLength) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path),
+					STREAM_BUFFER_SIZE));
+			this.recordLength = recordLength;
+			remaining = length;
+		}
+
+		public boolean advance() throws IOException {
+			if (remaining == 0) {
+				return false;
+			}
+			current = in.readLong();
+			if (recordLength == 2) {
+				currentPayload = in.readLong();
+			}
+			remaining -= 1;
+			return true;
+		}
+
+		@Override
+		public int compareTo(final Run other) {
+			if (current != other.current) {
+				return Long.compare(current, other.current);
+			}
+			return Long.compare(currentPayload, other.currentPayload);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+	}
+
+}
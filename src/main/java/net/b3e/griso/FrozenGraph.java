@@ -0,0 +1,243 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable snapshot of a {@link Graph}. Frozen graphs are
+ * created with {@link Graph#freeze()}. They can safely be shared
+ * between threads and compared concurrently.
+ *
+ * An invariant of the names and degrees of the nodes, which does
+ * not depend on the order of the nodes, is computed when the
+ * snapshot is created. Graphs with different invariants
+ * are rejected without labelling them. Graphs whose vertices all
+ * have unique names are compared by their names without labelling
+ * them (see {@link GroundLabelling}). The first canonical
+ * labelling of the graph is computed when it is needed for the
+ * first time and is reused by all following comparisons with the
+ * same {@link LabellingOptions}. Threads which need a labelling
+ * that is not available yet compute it themselves within their
+ * own budget instead of waiting for each other.
+ *
+ * @param <I> Type of vertex identifiers
+ * @param <V> Type of vertex names
+ * @param <E> Type of edge names
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class FrozenGraph<I, V, E> {
+
+	private static final int PRIME = 31;
+
+	private final CompactGraph graph;
+	private final long invariant;
+	private final GroundLabelling ground;
+
+	private final ConcurrentMap<LabellingOptions, Labelling> canonicalLabellings =
+			new ConcurrentHashMap<>();
+
+	FrozenGraph(final CompactGraph graph) {
+		this.graph = graph;
+
+		long sum = 0;
+		for (int node = 0; node < graph.getNodeCount(); ++node) {
+			int outDegree = 0;
+			int colours = 0;
+			for (int i = 0; i < graph.getSuccessorCount(node); ++i) {
+				final int multiplicity = graph.getSuccessorMultiplicity(node, i);
+				outDegree += multiplicity;
+				if (graph.hasLabelledConnections()) {
+					colours += multiplicity * graph.getSuccessorEdgeColour(node, i);
+				}
+			}
+			int inDegree = 0;
+			for (int i = 0; i < graph.getPredecessorCount(node); ++i) {
+				inDegree += graph.getPredecessorMultiplicity(node, i);
+			}
+			final int value = (graph.getNodeHashCode(node) * PRIME + outDegree) * PRIME + inDegree;
+			sum += mix(value + PRIME * colours);
+		}
+		invariant = sum;
+		ground = GroundLabelling.create(graph);
+	}
+
+	/**
+	 * Returns the number of nodes in the internal representation
+	 * of the graph. Named edges are represented by nodes, too.
+	 *
+	 * @return number of nodes
+	 */
+	public int getNodeCount() {
+		return graph.getNodeCount();
+	}
+
+	/**
+	 * Returns the number of connections between nodes in the
+	 * internal representation of the graph.
+	 *
+	 * @return number of connections
+	 */
+	public int getConnectionCount() {
+		return graph.getConnectionCount();
+	}
+
+	public EdgeRepresentation getEdgeRepresentation() {
+		return graph.getEdgeRepresentation();
+	}
+
+	/**
+	 * Returns an invariant of the graph. Isomorph graphs always
+	 * have the same invariant. The invariant is computed from the
+	 * names and degrees of the nodes. It does not depend on the
+	 * order in which vertices and edges were added to the graph.
+	 *
+	 * @return the invariant of the graph
+	 */
+	public long getInvariant() {
+		return invariant;
+	}
+
+	/**
+	 * Computes the Weisfeiler-Leman subtree features of the graph.
+	 *
+	 * @param rounds number of refinement rounds
+	 * @return the features of the graph
+	 * @throws IllegalArgumentException if {@code rounds} is negative
+	 *         or the product of {@code rounds + 1} and the number
+	 *         of nodes exceeds {@link Integer#MAX_VALUE}
+	 * @see GraphFeatures
+	 */
+	public GraphFeatures computeFeatures(final int rounds) {
+		return GraphFeatures.create(graph, rounds);
+	}
+
+	/**
+	 * Returns true if {@code otherGraph} is an isomorphism of this graph.
+	 *
+	 * @param otherGraph which may be an isomorphism of this one
+	 * @return true if otherGraph is an isomorphism
+	 * @throws IllegalArgumentException if the graphs use different
+	 *         edge representations
+	 */
+	public boolean isIsomorphism(final FrozenGraph<?, ? extends V, ? extends E> otherGraph) {
+		return checkIsomorphism(otherGraph, SearchBudget.UNLIMITED,
+				NoOpLabellingListener.INSTANCE) == IsomorphismResult.ISOMORPHIC;
+	}
+
+	/**
+	 * Checks whether {@code otherGraph} is an isomorphism of this graph
+	 * without exceeding {@code budget}.
+	 *
+	 * @param otherGraph which may be an isomorphism of this one
+	 * @param budget limiting the work spent on the check
+	 * @param listener receiving statistics about the check
+	 * @return the result of the check
+	 * @throws IllegalArgumentException if the graphs use different
+	 *         edge representations
+	 * @see Graph#checkIsomorphism(Graph, SearchBudget, LabellingListener)
+	 */
+	public IsomorphismResult checkIsomorphism(
+			final FrozenGraph<?, ? extends V, ? extends E> otherGraph,
+			final SearchBudget budget, final LabellingListener listener) {
+		return checkIsomorphism(otherGraph, LabellingOptions.DEFAULT, budget, listener);
+	}
+
+	/**
+	 * Checks whether {@code otherGraph} is an isomorphism of this graph
+	 * using the given labelling options. The canonical labelling of
+	 * this graph is cached for each of the options.
+	 *
+	 * @param otherGraph which may be an isomorphism of this one
+	 * @param options for labelling the graphs
+	 * @param budget limiting the work spent on the check
+	 * @param listener receiving statistics about the check
+	 * @return the result of the check
+	 * @throws IllegalArgumentException if the graphs use different
+	 *         edge representations
+	 */
+	public IsomorphismResult checkIsomorphism(
+			final FrozenGraph<?, ? extends V, ? extends E> otherGraph,
+			final LabellingOptions options, final SearchBudget budget,
+			final LabellingListener listener) {
+		final IsomorphismCheck check = new IsomorphismCheck(options, budget, listener);
+		if (this == otherGraph) {
+			return check.complete(true);
+		}
+		if (otherGraph == null) {
+			return check.complete(false);
+		}
+		if (getEdgeRepresentation() != otherGraph.getEdgeRepresentation()) {
+			throw new IllegalArgumentException("Graphs use different edge representations");
+		}
+		if (getNodeCount() == 0 && otherGraph.getNodeCount() == 0) {
+			return check.complete(true);
+		}
+		if (getNodeCount() != otherGraph.getNodeCount()
+				|| getConnectionCount() != otherGraph.getConnectionCount()
+				|| invariant != otherGraph.invariant) {
+			return check.complete(false);
+		}
+
+		final IsomorphismResult groundResult = check.compareGround(ground, otherGraph.ground);
+		if (groundResult != IsomorphismResult.UNKNOWN) {
+			return check.complete(groundResult == IsomorphismResult.ISOMORPHIC);
+		}
+
+		try {
+			return check.complete(check.matches(getCanonicalLabelling(check), otherGraph.graph));
+		} catch (final BudgetExhaustedException e) {
+			return check.abort();
+		}
+	}
+
+	/**
+	 * Returns the cached labelling for the options of the check.
+	 * The labelling is computed without holding a lock so that
+	 * the budget of each check stays effective. If several threads
+	 * compute the labelling at the same time, the first one to
+	 * finish is published and the others use it as well.
+	 */
+	private Labelling getCanonicalLabelling(final IsomorphismCheck check) {
+		final Labelling labelling = canonicalLabellings.get(check.getOptions());
+		if (labelling != null) {
+			return labelling;
+		}
+		final Labelling newLabelling = check.label(graph);
+		final Labelling published =
+				canonicalLabellings.putIfAbsent(check.getOptions(), newLabelling);
+		if (published != null) {
+			return published;
+		}
+		return newLabelling;
+	}
+
+	private static long mix(final int value) {
+		// Finalisation step of MurmurHash3 to spread the bits
+		// before the values are summed up:
+		long hash = value;
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+}
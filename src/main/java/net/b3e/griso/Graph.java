@@ -15,15 +15,19 @@
  */
 package net.b3e.griso;
 
-import java.util.Collection;
+import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import com.google.common.collect.BiMap;
-
 /**
  * A generic graph implementation.
  *
@@ -35,6 +39,14 @@
  */
 public final class Graph<I, V, E> {
 
+	/**
+	 * {@link #toString()} is often called implicitly, for instance
+	 * when an assertion message is rendered. It therefore only
+	 * lists a limited number of vertices.
+	 */
+	private static final DumpOptions TO_STRING_OPTIONS =
+			DumpOptions.FULL.withMaxVertices(1000).withMaxEdgesPerVertex(100);
+
 	/*
 	 * From the user's perspective a graph consists of vertices
 	 * and named edges which connect the vertices. Internally,
@@ -43,14 +55,32 @@
 	 * are represented by nodes.
 	 */
 	private final Map<I, VertexNode<V>> vertices = new HashMap<>();
-	private final Set<Node<?>> nodes = new HashSet<>();
+	private final List<Node<?>> nodes = new ArrayList<>();
+	private final Set<Node<?>> nodeSet = new NodeSet();
+	private int modificationCount;
 
 	public boolean hasVertex(final I vertexId) {
 		return vertices.containsKey(vertexId);
 	}
 
+	/**
+	 * Returns an unmodifiable view of the nodes of the graph.
+	 * The nodes are iterated in the order in which they were
+	 * added.
+	 *
+	 * @return the nodes of the graph
+	 */
 	public Set<Node<?>> getNodes() {
-		return Collections.unmodifiableSet(nodes);
+		return nodeSet;
+	}
+
+	/**
+	 * Returns the nodes ordered by their index.
+	 *
+	 * @return an unmodifiable list of the nodes
+	 */
+	List<Node<?>> getNodeList() {
+		return Collections.unmodifiableList(nodes);
 	}
 
 	/**
@@ -76,9 +106,10 @@ public void addVertex(final I vertexId, final V vertexName) {
 					"A vertex with id '" + vertexId.toString() + "' exists already");
 		}
 
-		final VertexNode<V> node = new VertexNode<>(vertexName, vertexId);
+		final VertexNode<V> node = new VertexNode<>(vertexName, vertexId, nodes.size());
 		vertices.put(vertexId, node);
 		nodes.add(node);
+		modificationCount += 1;
 	}
 
 	/**
@@ -94,10 +125,11 @@ public void addDirectedEdge(final I fromVertex, final I toVertex, final E edgeNa
 		final Node<V> fromNode = getVertexNode(fromVertex);
 		final Node<V> toNode = getVertexNode(toVertex);
 
-		final Node<E> edgeNode = new EdgeNode<>(edgeName);
+		final Node<E> edgeNode = new EdgeNode<>(edgeName, nodes.size());
 		nodes.add(edgeNode);
 
 		fromNode.connect(edgeNode).connect(toNode);
+		modificationCount += 1;
 	}
 
 	/**
@@ -113,6 +145,7 @@ public void addDirectedEdge(final I fromVertex, final I toVertex) {
 		final Node<V> toNode = getVertexNode(toVertex);
 
 		fromNode.connect(toNode);
+		modificationCount += 1;
 	}
 
 	/**
@@ -128,11 +161,12 @@ public void addUndirectedEdge(final I vertex1, final I vertex2, final E edgeName
 		final Node<V> node1 = getVertexNode(vertex1);
 		final Node<V> node2 = getVertexNode(vertex2);
 
-		final Node<E> edgeNode = new EdgeNode<>(edgeName);
+		final Node<E> edgeNode = new EdgeNode<>(edgeName, nodes.size());
 		nodes.add(edgeNode);
 
 		node1.connect(edgeNode).connect(node2);
 		node2.connect(edgeNode).connect(node1);
+		modificationCount += 1;
 	}
 
 	/**
@@ -149,6 +183,7 @@ public void addUndirectedEdge(final I vertex1, final I vertex2) {
 
 		node1.connect(node2);
 		node2.connect(node1);
+		modificationCount += 1;
 	}
 
 	/**
@@ -158,31 +193,380 @@ public void addUndirectedEdge(final I vertex1, final I vertex2) {
 	 * @return true if otherGraph is an isomorphism
 	 */
 	public boolean isIsomorphism(final Graph<?, ? extends V, ? extends E> otherGraph) {
+		return isIsomorphism(otherGraph, NoOpLabellingListener.INSTANCE);
+	}
+
+	/**
+	 * Returns true if {@code otherGraph} is an isomorphism of this graph.
+	 * The listener is notified about the work done during the check.
+	 *
+	 * @param otherGraph which may be an isomorphism of this one
+	 * @param listener receiving statistics about the check
+	 * @return true if otherGraph is an isomorphism
+	 */
+	public boolean isIsomorphism(final Graph<?, ? extends V, ? extends E> otherGraph,
+			final LabellingListener listener) {
+		return checkIsomorphism(otherGraph, SearchBudget.UNLIMITED, listener)
+				== IsomorphismResult.ISOMORPHIC;
+	}
+
+	/**
+	 * Returns true if {@code otherGraph} is an isomorphism of this graph.
+	 * The labellings of both graphs are looked up in {@code cache} and
+	 * added to it if they are not present.
+	 *
+	 * @param otherGraph which may be an isomorphism of this one
+	 * @param cache for the labellings of the graphs
+	 * @return true if otherGraph is an isomorphism
+	 */
+	public boolean isIsomorphism(final Graph<?, ? extends V, ? extends E> otherGraph,
+			final LabellingCache cache) {
+		return checkIsomorphism(otherGraph, SearchBudget.UNLIMITED,
+				NoOpLabellingListener.INSTANCE, cache) == IsomorphismResult.ISOMORPHIC;
+	}
+
+	/**
+	 * Checks whether {@code otherGraph} is an isomorphism of this graph
+	 * without exceeding {@code budget}. If the budget is exhausted the
+	 * check is aborted and {@link IsomorphismResult#UNKNOWN} is returned.
+	 *
+	 * @param otherGraph which may be an isomorphism of this one
+	 * @param budget limiting the work spent on the check
+	 * @return the result of the check
+	 */
+	public IsomorphismResult checkIsomorphism(final Graph<?, ? extends V, ? extends E> otherGraph,
+			final SearchBudget budget) {
+		return checkIsomorphism(otherGraph, budget, NoOpLabellingListener.INSTANCE);
+	}
+
+	/**
+	 * Checks whether {@code otherGraph} is an isomorphism of this graph
+	 * without exceeding {@code budget}. The listener is notified about
+	 * the work done during the check.
+	 *
+	 * @param otherGraph which may be an isomorphism of this one
+	 * @param budget limiting the work spent on the check
+	 * @param listener receiving statistics about the check
+	 * @return the result of the check
+	 */
+	public IsomorphismResult checkIsomorphism(final Graph<?, ? extends V, ? extends E> otherGraph,
+			final SearchBudget budget, final LabellingListener listener) {
+		return checkIsomorphism(otherGraph, budget, listener, null);
+	}
+
+	/**
+	 * Checks whether {@code otherGraph} is an isomorphism of this graph
+	 * without exceeding {@code budget}. The labellings of both graphs
+	 * are looked up in {@code cache} and added to it if they are not
+	 * present.
+	 *
+	 * @param otherGraph which may be an isomorphism of this one
+	 * @param budget limiting the work spent on the check
+	 * @param listener receiving statistics about the check
+	 * @param cache for the labellings of the graphs. May be null.
+	 * @return the result of the check
+	 */
+	public IsomorphismResult checkIsomorphism(final Graph<?, ? extends V, ? extends E> otherGraph,
+			final SearchBudget budget, final LabellingListener listener,
+			final LabellingCache cache) {
+		return checkIsomorphism(otherGraph, LabellingOptions.DEFAULT, budget, listener, cache);
+	}
+
+	/**
+	 * Checks whether {@code otherGraph} is an isomorphism of this graph
+	 * using the given labelling options.
+	 *
+	 * @param otherGraph which may be an isomorphism of this one
+	 * @param options for labelling the graphs
+	 * @param budget limiting the work spent on the check
+	 * @param listener receiving statistics about the check
+	 * @param cache for the labellings of the graphs. May be null.
+	 * @return the result of the check
+	 * @see #checkIsomorphism(Graph, SearchBudget, LabellingListener, LabellingCache)
+	 */
+	// NO CHECKSTYLE ParameterNumber FOR 3 LINES:
+	public IsomorphismResult checkIsomorphism(final Graph<?, ? extends V, ? extends E> otherGraph,
+			final LabellingOptions options, final SearchBudget budget,
+			final LabellingListener listener, final LabellingCache cache) {
+		final IsomorphismCheck check = new IsomorphismCheck(options, budget, listener);
 		if (this == otherGraph) {
-			return true;
+			return check.complete(true);
 		}
 		if (otherGraph == null) {
-			return false;
+			return check.complete(false);
 		}
 		if (nodes.isEmpty() && otherGraph.getNodes().isEmpty()) {
-			return true;
+			return check.complete(true);
+		}
+		if (nodes.size() != otherGraph.getNodes().size()) {
+			return check.complete(false);
 		}
 
-		if (nodes.size() == otherGraph.getNodes().size()) {
-			final GraphLabeller thisLabeller = new GraphLabeller(this);
-			final GraphLabeller otherLabeller = new GraphLabeller(otherGraph);
+		try {
+			if (cache == null) {
+				final CompactGraph graph = CompactGraph.create(nodes);
+				final CompactGraph compactOtherGraph = CompactGraph.create(otherGraph.getNodeList());
+				final IsomorphismResult groundResult = check.compareGround(
+						GroundLabelling.create(graph), GroundLabelling.create(compactOtherGraph));
+				if (groundResult != IsomorphismResult.UNKNOWN) {
+					return check.complete(groundResult == IsomorphismResult.ISOMORPHIC);
+				}
+				return check.complete(check.matches(check.label(graph), compactOtherGraph));
+			}
+			return check.complete(compareUsingCache(otherGraph, check, cache));
+		} catch (final BudgetExhaustedException e) {
+			return check.abort();
+		}
+	}
 
-			while (thisLabeller.hasNext()) {
-				final BiMap<Node<?>, Label> thisLabelling = thisLabeller.next();
-				while (otherLabeller.hasNext()) {
-					final BiMap<Node<?>, Label> otherLabelling = otherLabeller.next();
-					if (compareLabellings(thisLabelling, otherLabelling)) {
-						return true;
-					}
+	/**
+	 * Checks whether {@code otherGraph} is an isomorphism of this
+	 * graph which maps each vertex onto a vertex with the same
+	 * colour. The colours are used as the initial partition of the
+	 * labellings. They therefore also reduce the search if they
+	 * distinguish vertices which cannot be told apart by their
+	 * names and neighbourhoods. Vertices without a colour or with
+	 * a null colour have the colour 0. A null map leaves all
+	 * vertices with the colour 0.
+	 *
+	 * @param colours of the vertices of this graph. May be null.
+	 * @param otherGraph which may be an isomorphism of this one.
+	 *        May be null.
+	 * @param otherColours of the vertices of {@code otherGraph}.
+	 *        May be null.
+	 * @param budget limiting the work spent on the check
+	 * @param <J> Type of the vertex identifiers of {@code otherGraph}
+	 * @return the result of the check
+	 * @throws IllegalArgumentException if a colour is assigned
+	 *         to a vertex which does not exist
+	 */
+	public <J> IsomorphismResult checkIsomorphism(final Map<I, Integer> colours,
+			final Graph<J, ? extends V, ? extends E> otherGraph,
+			final Map<J, Integer> otherColours, final SearchBudget budget) {
+		return checkIsomorphism(colours, otherGraph, otherColours, LabellingOptions.DEFAULT,
+				budget, NoOpLabellingListener.INSTANCE);
+	}
+
+	/**
+	 * Checks whether {@code otherGraph} is an isomorphism of this
+	 * graph which maps each vertex onto a vertex with the same
+	 * colour using the given labelling options. There is no
+	 * variant which takes a {@link LabellingCache} since the
+	 * labellings depend on the colours while the cache only
+	 * identifies graphs.
+	 *
+	 * @param colours of the vertices of this graph. May be null.
+	 * @param otherGraph which may be an isomorphism of this one.
+	 *        May be null.
+	 * @param otherColours of the vertices of {@code otherGraph}.
+	 *        May be null.
+	 * @param options for labelling the graphs
+	 * @param budget limiting the work spent on the check
+	 * @param listener receiving statistics about the check
+	 * @param <J> Type of the vertex identifiers of {@code otherGraph}
+	 * @return the result of the check
+	 * @throws IllegalArgumentException if a colour is assigned
+	 *         to a vertex which does not exist
+	 * @see #checkIsomorphism(Map, Graph, Map, SearchBudget)
+	 */
+	// NO CHECKSTYLE ParameterNumber FOR 4 LINES:
+	public <J> IsomorphismResult checkIsomorphism(final Map<I, Integer> colours,
+			final Graph<J, ? extends V, ? extends E> otherGraph,
+			final Map<J, Integer> otherColours, final LabellingOptions options,
+			final SearchBudget budget, final LabellingListener listener) {
+		final IsomorphismCheck check = new IsomorphismCheck(options, budget, listener);
+		if (otherGraph == null) {
+			return check.complete(false);
+		}
+		final int[] nodeColours = createNodeColours(colours);
+		final int[] otherNodeColours = otherGraph.createNodeColours(otherColours);
+		if (this == otherGraph && Arrays.equals(nodeColours, otherNodeColours)) {
+			return check.complete(true);
+		}
+		if (nodes.size() != otherGraph.getNodes().size()) {
+			return check.complete(false);
+		}
+		if (nodes.isEmpty()) {
+			return check.complete(true);
+		}
+
+		try {
+			final Labelling labelling = check.label(CompactGraph.create(nodes), nodeColours);
+			return check.complete(check.matches(labelling,
+					CompactGraph.create(otherGraph.getNodeList()), otherNodeColours));
+		} catch (final BudgetExhaustedException e) {
+			return check.abort();
+		}
+	}
+
+	/**
+	 * Computes the orbits of the vertices under the automorphisms
+	 * of the graph. Two vertices are in the same orbit if an
+	 * automorphism maps one onto the other. The automorphisms are
+	 * found while searching the canonical labellings of the graph.
+	 *
+	 * @return the orbits ordered by the vertex which was added
+	 *         first. Each orbit lists its vertices in the order
+	 *         in which they were added.
+	 */
+	public List<Set<I>> automorphismOrbits() {
+		return automorphismOrbits(SearchBudget.UNLIMITED);
+	}
+
+	/**
+	 * Computes the orbits of the vertices under the automorphisms
+	 * of the graph without exceeding {@code budget}. If the budget
+	 * is exhausted, the orbits of the automorphisms found so far
+	 * are returned. These may split the true orbits.
+	 *
+	 * @param budget limiting the work spent on the search
+	 * @return the orbits ordered by the vertex which was added
+	 *         first
+	 * @see #automorphismOrbits()
+	 */
+	public List<Set<I>> automorphismOrbits(final SearchBudget budget) {
+		return findAutomorphisms(budget, NoOpLabellingListener.INSTANCE).getOrbits();
+	}
+
+	/**
+	 * Searches the automorphisms of the graph without exceeding
+	 * {@code budget}. The listener is notified about the work
+	 * done during the search and about each automorphism found.
+	 *
+	 * @param budget limiting the work spent on the search
+	 * @param listener receiving statistics about the search
+	 * @return the generators and orbits of the automorphism group
+	 */
+	public AutomorphismGroup<I> findAutomorphisms(final SearchBudget budget,
+			final LabellingListener listener) {
+		final CompactGraph compactGraph = CompactGraph.create(nodes);
+		final Automorphisms automorphisms =
+				new Automorphisms(compactGraph.getNodeCount(), listener);
+		boolean complete = true;
+		try {
+			automorphisms.search(new GraphLabeller(compactGraph, LabellingOptions.DEFAULT,
+					listener, new BudgetMonitor(budget)));
+		} catch (final BudgetExhaustedException e) {
+			complete = false;
+		}
+
+		final List<I> vertexIds = new ArrayList<>(Collections.<I>nCopies(nodes.size(), null));
+		for (final Map.Entry<I, VertexNode<V>> vertex : vertices.entrySet()) {
+			vertexIds.set(vertex.getValue().getIndex(), vertex.getKey());
+		}
+		final List<Map<I, I>> generators = new ArrayList<>();
+		for (final int[] generator : automorphisms.getGenerators()) {
+			final Map<I, I> mapping = new LinkedHashMap<>();
+			for (final Node<?> node : nodes) {
+				final int index = node.getIndex();
+				if (node instanceof VertexNode && generator[index] != index) {
+					mapping.put(vertexIds.get(index), vertexIds.get(generator[index]));
+				}
+			}
+			// Automorphisms which only swap parallel edges
+			// do not move any vertices:
+			if (!mapping.isEmpty()) {
+				generators.add(Collections.unmodifiableMap(mapping));
+			}
+		}
+		final Map<Integer, Set<I>> orbits = new LinkedHashMap<>();
+		for (final Node<?> node : nodes) {
+			if (node instanceof VertexNode) {
+				final Integer orbit = Integer.valueOf(automorphisms.getOrbit(node.getIndex()));
+				Set<I> members = orbits.get(orbit);
+				if (members == null) {
+					members = new LinkedHashSet<>();
+					orbits.put(orbit, members);
 				}
+				members.add(vertexIds.get(node.getIndex()));
+			}
+		}
+		return new AutomorphismGroup<>(generators, new ArrayList<>(orbits.values()), complete);
+	}
+
+	/**
+	 * Computes the Weisfeiler-Leman subtree features of the graph.
+	 * Named edges are represented by nodes.
+	 *
+	 * @param rounds number of refinement rounds
+	 * @return the features of the graph
+	 * @throws IllegalArgumentException if {@code rounds} is negative
+	 *         or the product of {@code rounds + 1} and the number
+	 *         of nodes exceeds {@link Integer#MAX_VALUE}
+	 * @see GraphFeatures
+	 */
+	public GraphFeatures computeFeatures(final int rounds) {
+		return GraphFeatures.create(CompactGraph.create(nodes), rounds);
+	}
+
+	/**
+	 * Creates an immutable snapshot of the graph. Later changes
+	 * to this graph do not affect the snapshot.
+	 *
+	 * @return a frozen copy of the graph
+	 */
+	public FrozenGraph<I, V, E> freeze() {
+		return freeze(EdgeRepresentation.NODES);
+	}
+
+	/**
+	 * Creates an immutable snapshot of the graph using the given
+	 * representation for named edges. Only snapshots with the same
+	 * representation can be compared with each other.
+	 *
+	 * @param representation of named edges in the snapshot
+	 * @return a frozen copy of the graph
+	 */
+	public FrozenGraph<I, V, E> freeze(final EdgeRepresentation representation) {
+		return freeze(representation, GraphStorage.HEAP);
+	}
+
+	/**
+	 * Creates an immutable snapshot of the graph whose adjacency
+	 * structure is kept in the given storage. Snapshots with
+	 * different storages can be compared with each other.
+	 *
+	 * @param representation of named edges in the snapshot
+	 * @param storage of the snapshot
+	 * @return a frozen copy of the graph
+	 */
+	public FrozenGraph<I, V, E> freeze(final EdgeRepresentation representation,
+			final GraphStorage storage) {
+		return new FrozenGraph<>(CompactGraph.create(nodes, representation, storage));
+	}
+
+	int getModificationCount() {
+		return modificationCount;
+	}
+
+	private boolean compareUsingCache(final Graph<?, ? extends V, ? extends E> otherGraph,
+			final IsomorphismCheck check, final LabellingCache cache) {
+		final Labelling labelling = cache.getLabelling(this, check);
+		final Labelling otherLabelling = cache.getLabelling(otherGraph, check);
+		// The first labellings of isomorph graphs are usually equal. Only
+		// if they are not, the other labellings need to be checked:
+		if (labelling.matches(otherLabelling)) {
+			return true;
+		}
+		return check.matches(labelling, otherLabelling.getGraph());
+	}
+
+	private int[] createNodeColours(final Map<I, Integer> colours) {
+		final int[] nodeColours = new int[nodes.size()];
+		if (colours == null) {
+			return nodeColours;
+		}
+		for (final Map.Entry<I, Integer> colour : colours.entrySet()) {
+			final VertexNode<V> node = vertices.get(colour.getKey());
+			if (node == null) {
+				throw new IllegalArgumentException(
+						"No vertex with id '" + colour.getKey() + "' exists");
+			}
+			if (colour.getValue() != null) {
+				nodeColours[node.getIndex()] = colour.getValue().intValue();
 			}
 		}
-		return false;
+		return nodeColours;
 	}
 
 	private Node<V> getVertexNode(final I vertexId) {
@@ -194,55 +578,72 @@ private Node<V> getVertexNode(final I vertexId) {
 		return node;
 	}
 
+	/**
+	 * Writes all vertices and edges of the graph to {@code out}.
+	 * The output is written while the graph is traversed.
+	 *
+	 * @param out to which the graph is written
+	 * @throws IOException if writing to {@code out} fails
+	 */
+	public void dump(final Appendable out) throws IOException {
+		dump(out, DumpOptions.FULL);
+	}
+
+	/**
+	 * Writes the graph or a summary of it to {@code out}.
+	 *
+	 * @param out to which the graph is written
+	 * @param options controlling truncation and summary mode
+	 * @throws IOException if writing to {@code out} fails
+	 */
+	public void dump(final Appendable out, final DumpOptions options) throws IOException {
+		new GraphDumper(out, options).dump(vertices.values(), nodes);
+	}
+
+	/**
+	 * Returns a textual representation of the graph. Large graphs
+	 * are truncated. Use {@link #dump(Appendable)} to write the
+	 * whole graph.
+	 *
+	 * @return the vertices and edges of the graph
+	 */
 	@Override
 	public String toString() {
 		final StringBuilder builder = new StringBuilder();
-		for (final VertexNode<?> node : vertices.values()) {
-			node.printConnections(builder);
+		try {
+			dump(builder, TO_STRING_OPTIONS);
+		} catch (final IOException e) {
+			// StringBuilder does not throw IOExceptions
+			throw new AssertionError(e);
 		}
 		return builder.toString();
 	}
 
-	private static boolean compareLabellings(final BiMap<Node<?>, Label> thisLabelling,
-			final BiMap<Node<?>, Label> otherLabelling) {
+	/**
+	 * A read-only set view of the node list. Nodes know their
+	 * index, so membership is tested without hashing.
+	 */
+	private final class NodeSet extends AbstractSet<Node<?>> {
 
-		if (!thisLabelling.values().equals(otherLabelling.values())) {
-			return false;
+		@Override
+		public Iterator<Node<?>> iterator() {
+			return Collections.unmodifiableList(nodes).iterator();
 		}
 
-		for (final Label thisLabel : thisLabelling.values()) {
-			final Node<?> thisNode = thisLabelling.inverse().get(thisLabel);
-			final Node<?> otherNode = otherLabelling.inverse().get(thisLabel);
-
-			if (!thisNode.isEquivalent(otherNode)) {
-				return false;
-			}
-
-			Set<Label> thisConnectedLabels = getLabels(thisNode.getConnectedTo(), thisLabelling);
-			Set<Label> otherConnectedLabels = getLabels(otherNode.getConnectedTo(), otherLabelling);
-			if (!thisConnectedLabels.equals(otherConnectedLabels)) {
-				return false;
-			}
+		@Override
+		public int size() {
+			return nodes.size();
+		}
 
-			thisConnectedLabels = getLabels(thisNode.getConnectedFrom(), thisLabelling);
-			otherConnectedLabels = getLabels(otherNode.getConnectedFrom(), otherLabelling);
-			if (!thisConnectedLabels.equals(otherConnectedLabels)) {
+		@Override
+		public boolean contains(final Object object) {
+			if (!(object instanceof Node)) {
 				return false;
 			}
+			final int index = ((Node<?>) object).getIndex();
+			return index >= 0 && index < nodes.size() && nodes.get(index) == object;
 		}
 
-		return true;
-	}
-
-	private static Set<Label> getLabels(final Collection<Node<?>> nodes,
-			final BiMap<Node<?>, Label> labelling) {
-
-		final Set<Label> labels = new HashSet<>();
-		for (final Node<?> node : nodes) {
-			labels.add(labelling.get(node));
-		}
-
-		return labels;
 	}
 
-}
\ No newline at end of file
+}
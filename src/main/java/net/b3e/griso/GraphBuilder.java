@@ -0,0 +1,305 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Builds large graphs efficiently. In contrast to {@link Graph},
+ * vertices are identified by the index returned by
+ * {@link #addVertex(Object)} so that adding an edge does not
+ * require any map lookups. Edges are appended to primitive arrays
+ * and the adjacency structure is created in a single counting
+ * pass when {@link #build()} is called. Named edges can be stored
+ * as labelled connections instead of nodes (see
+ * {@link EdgeRepresentation}). The adjacency arrays can be
+ * allocated outside of the Java heap (see {@link GraphStorage})
+ * so that graphs whose adjacency structure exceeds the heap can
+ * be built and compared. The distinct names of vertices and edges
+ * and the arrays used for labelling always remain on the heap.
+ *
+ * The graphs created by this builder are equivalent to graphs
+ * created with the same sequence of calls to {@link Graph}.
+ *
+ * @param <V> Type of vertex names
+ * @param <E> Type of edge names
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class GraphBuilder<V, E> implements EdgeSink<E> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final boolean labelled;
+
+	private final NameDictionary names;
+	private IntArray nodeKeys;
+	private int nodeCount;
+
+	private final ConnectionList connections;
+
+	public GraphBuilder() {
+		this(DEFAULT_CAPACITY, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a builder with storage for the expected number
+	 * of vertices and edges. The storage grows automatically
+	 * if more vertices or edges are added. Named edges are
+	 * represented by nodes.
+	 *
+	 * @param expectedVertexCount number of vertices
+	 * @param expectedEdgeCount number of named directed edges
+	 */
+	public GraphBuilder(final int expectedVertexCount, final int expectedEdgeCount) {
+		this(expectedVertexCount, expectedEdgeCount, EdgeRepresentation.NODES);
+	}
+
+	/**
+	 * Creates a builder with storage for the expected number
+	 * of vertices and edges.
+	 *
+	 * @param expectedVertexCount number of vertices
+	 * @param expectedEdgeCount number of named directed edges
+	 * @param representation of named edges in the built graph
+	 */
+	public GraphBuilder(final int expectedVertexCount, final int expectedEdgeCount,
+			final EdgeRepresentation representation) {
+		this(expectedVertexCount, expectedEdgeCount, representation, GraphStorage.HEAP);
+	}
+
+	/**
+	 * Creates a builder with storage for the expected number
+	 * of vertices and edges. The builder and the graphs it
+	 * creates keep their adjacency arrays in the given storage.
+	 *
+	 * @param expectedVertexCount number of vertices
+	 * @param expectedEdgeCount number of named directed edges
+	 * @param representation of named edges in the built graph
+	 * @param storage of the vertices and edges
+	 */
+	public GraphBuilder(final int expectedVertexCount, final int expectedEdgeCount,
+			final EdgeRepresentation representation, final GraphStorage storage) {
+		labelled = representation == EdgeRepresentation.LABELLED_CONNECTIONS;
+		final int nodeCapacity;
+		final int connectionCapacity;
+		if (labelled) {
+			nodeCapacity = Math.max(1, expectedVertexCount);
+			connectionCapacity = expectedEdgeCount;
+		} else {
+			nodeCapacity = Math.max(1, expectedVertexCount + expectedEdgeCount);
+			connectionCapacity = 2 * expectedEdgeCount;
+		}
+		names = new NameDictionary();
+		nodeKeys = IntArray.allocate(nodeCapacity, storage);
+		connections = new ConnectionList(connectionCapacity, labelled, storage);
+	}
+
+	/**
+	 * Adds an unnamed vertex.
+	 *
+	 * @return the index of the vertex
+	 */
+	public int addVertex() {
+		return addVertex(null);
+	}
+
+	/**
+	 * Adds a named vertex.
+	 *
+	 * @param vertexName of the vertex
+	 * @return the index of the vertex
+	 */
+	public int addVertex(final V vertexName) {
+		return addNode(vertexName, false);
+	}
+
+	/**
+	 * Adds a directed edge.
+	 *
+	 * @param fromVertex index of the vertex where the edge starts from
+	 * @param toVertex index of the vertex at which the edge ends
+	 * @param edgeName of the edge
+	 * @throws IllegalArgumentException if {@code fromVertex} or
+	 *         {@code toVertex} is not a vertex index
+	 */
+	@Override
+	public void addDirectedEdge(final int fromVertex, final int toVertex, final E edgeName) {
+		checkVertex(fromVertex);
+		checkVertex(toVertex);
+
+		if (labelled) {
+			connections.add(fromVertex, toVertex, edgeName, ConnectionList.DIRECTED);
+		} else {
+			final int edgeNode = addNode(edgeName, true);
+			connections.add(fromVertex, edgeNode);
+			connections.add(edgeNode, toVertex);
+		}
+	}
+
+	/**
+	 * Adds a directed unnamed edge.
+	 *
+	 * @param fromVertex index of the vertex where the edge starts from
+	 * @param toVertex index of the vertex at which the edge ends
+	 * @throws IllegalArgumentException if {@code fromVertex} or
+	 *         {@code toVertex} is not a vertex index
+	 */
+	@Override
+	public void addDirectedEdge(final int fromVertex, final int toVertex) {
+		checkVertex(fromVertex);
+		checkVertex(toVertex);
+
+		connections.add(fromVertex, toVertex);
+	}
+
+	/**
+	 * Adds {@code multiplicity} parallel directed unnamed edges.
+	 * The edges are stored as a single connection with a counter.
+	 *
+	 * @param fromVertex index of the vertex where the edges start from
+	 * @param toVertex index of the vertex at which the edges end
+	 * @param multiplicity number of edges to add
+	 * @throws IllegalArgumentException if {@code fromVertex} or
+	 *         {@code toVertex} is not a vertex index or if
+	 *         {@code multiplicity} is not positive
+	 */
+	public void addParallelEdges(final int fromVertex, final int toVertex,
+			final int multiplicity) {
+		checkVertex(fromVertex);
+		checkVertex(toVertex);
+		if (multiplicity < 1) {
+			throw new IllegalArgumentException("multiplicity must be positive");
+		}
+
+		connections.add(fromVertex, toVertex, multiplicity);
+	}
+
+	/**
+	 * Adds an undirected edge.
+	 *
+	 * @param vertex1 index of the first end vertex of the edge
+	 * @param vertex2 index of the second end vertex of the edge
+	 * @param edgeName of the edge
+	 * @throws IllegalArgumentException if {@code vertex1} or
+	 *         {@code vertex2} is not a vertex index
+	 */
+	public void addUndirectedEdge(final int vertex1, final int vertex2, final E edgeName) {
+		checkVertex(vertex1);
+		checkVertex(vertex2);
+
+		if (labelled) {
+			connections.add(vertex1, vertex2, edgeName, ConnectionList.UNDIRECTED);
+			connections.add(vertex2, vertex1, edgeName, ConnectionList.UNDIRECTED);
+		} else {
+			final int edgeNode = addNode(edgeName, true);
+			connections.add(vertex1, edgeNode);
+			connections.add(edgeNode, vertex2);
+			connections.add(vertex2, edgeNode);
+			connections.add(edgeNode, vertex1);
+		}
+	}
+
+	/**
+	 * Adds an undirected unnamed edge.
+	 *
+	 * @param vertex1 index of the first end vertex of the edge
+	 * @param vertex2 index of the second end vertex of the edge
+	 * @throws IllegalArgumentException if {@code vertex1} or
+	 *         {@code vertex2} is not a vertex index
+	 */
+	public void addUndirectedEdge(final int vertex1, final int vertex2) {
+		checkVertex(vertex1);
+		checkVertex(vertex2);
+
+		connections.add(vertex1, vertex2);
+		connections.add(vertex2, vertex1);
+	}
+
+	/**
+	 * Adds directed edges in bulk. The i-th edge starts at
+	 * {@code fromVertices[i]} and ends at {@code toVertices[i]}.
+	 *
+	 * @param fromVertices indices of the start vertices
+	 * @param toVertices indices of the end vertices
+	 * @param edgeNames names of the edges or null if the edges
+	 *        are unnamed
+	 * @throws IllegalArgumentException if the arrays have
+	 *         different lengths or contain invalid vertex indices
+	 */
+	public void addDirectedEdges(final int[] fromVertices, final int[] toVertices,
+			final E[] edgeNames) {
+		if (fromVertices.length != toVertices.length
+				|| (edgeNames != null && edgeNames.length != fromVertices.length)) {
+			throw new IllegalArgumentException("All arrays must have the same length");
+		}
+		final int edgeCount = fromVertices.length;
+		for (int i = 0; i < edgeCount; ++i) {
+			checkVertex(fromVertices[i]);
+			checkVertex(toVertices[i]);
+		}
+
+		if (edgeNames == null) {
+			connections.addAll(fromVertices, toVertices);
+		} else if (labelled) {
+			connections.ensureCapacity(connections.size() + edgeCount);
+			for (int i = 0; i < edgeCount; ++i) {
+				connections.add(fromVertices[i], toVertices[i], edgeNames[i],
+						ConnectionList.DIRECTED);
+			}
+		} else {
+			ensureNodeCapacity(nodeCount + edgeCount);
+			connections.ensureCapacity(connections.size() + 2 * edgeCount);
+			for (int i = 0; i < edgeCount; ++i) {
+				final int edgeNode = addNode(edgeNames[i], true);
+				connections.add(fromVertices[i], edgeNode);
+				connections.add(edgeNode, toVertices[i]);
+			}
+		}
+	}
+
+	/**
+	 * Creates an immutable graph from the vertices and edges
+	 * added so far. The builder can still be used afterwards.
+	 *
+	 * @return a frozen graph
+	 */
+	public FrozenGraph<Integer, V, E> build() {
+		return new FrozenGraph<>(new CompactGraph(names.snapshot(), nodeKeys.copyOf(nodeCount),
+				connections));
+	}
+
+	private int addNode(final Object name, final boolean edgeNode) {
+		ensureNodeCapacity(nodeCount + 1);
+		nodeKeys.set(nodeCount, CompactGraph.createNodeKey(names.add(name), edgeNode));
+		nodeCount += 1;
+		return nodeCount - 1;
+	}
+
+	private void checkVertex(final int vertex) {
+		if (vertex < 0 || vertex >= nodeCount
+				|| CompactGraph.isEdgeNodeKey(nodeKeys.get(vertex))) {
+			throw new IllegalArgumentException("No vertex with index " + vertex + " exists");
+		}
+	}
+
+	private void ensureNodeCapacity(final int capacity) {
+		if (capacity > nodeKeys.size()) {
+			final int newCapacity = Math.max(capacity, 2 * nodeKeys.size());
+			nodeKeys = nodeKeys.copyOf(newCapacity);
+		}
+	}
+
+}
@@ -0,0 +1,302 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs many isomorphism checks concurrently. Checks of small
+ * graphs run on virtual threads if the Java runtime supports
+ * them, and on a work-stealing pool otherwise. Checks of large
+ * graphs are routed to a bounded pool of threads so that they
+ * cannot starve the small checks.
+ *
+ * Submitting a check blocks if too many checks are pending
+ * (backpressure). Small checks count as one pending check each.
+ * Large checks count in proportion to their size. A check stays
+ * pending until it returns, even if its future was cancelled
+ * while it was running. Each check runs with its own
+ * {@link SearchBudget}. A timeout of the budget is measured from
+ * the start of the check, not from its submission. The budget is
+ * made interruptible so that cancelling the returned future with
+ * {@code mayInterruptIfRunning} set stops the check at its next
+ * budget check.
+ *
+ * Virtual threads require Java 21 while the library is compiled
+ * for Java 7 so that it can be used in older applications. The
+ * virtual thread executor is therefore looked up at runtime
+ * (see {@link #usesVirtualThreads()}). On older runtimes, small
+ * checks run on a {@link ForkJoinPool}, which also keeps the
+ * number of threads low when many short tasks are submitted.
+ * Each virtual thread labels with a new {@link LabellerWorkspace}
+ * since workspaces are kept per thread.
+ *
+ * The graphs must not be modified while a check is running.
+ * {@link FrozenGraph}s are therefore preferable to {@link Graph}s.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class GraphComparisonService {
+
+	/**
+	 * Default number of nodes up to which a graph is small.
+	 */
+	public static final int DEFAULT_SMALL_GRAPH_SIZE = 10000;
+
+	private static final int PENDING_CHECKS_PER_THREAD = 256;
+
+	private final int smallGraphSize;
+	private final int largeCheckCapacity;
+	private final ExecutorService smallGraphExecutor;
+	private final boolean virtualThreads;
+	private final ExecutorService largeGraphExecutor;
+	private final Semaphore smallCheckPermits;
+	private final Semaphore largeCheckPermits;
+
+	/**
+	 * Creates a service with one thread per processor for
+	 * large checks and, without virtual threads, for small
+	 * checks.
+	 */
+	public GraphComparisonService() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_SMALL_GRAPH_SIZE);
+	}
+
+	/**
+	 * Creates a service.
+	 *
+	 * @param threadCount number of threads for large checks and,
+	 *        if virtual threads are not available, for small
+	 *        checks
+	 * @param smallGraphSize number of nodes up to which a graph
+	 *        is small. A check is large if one of the graphs is
+	 *        large.
+	 */
+	public GraphComparisonService(final int threadCount, final int smallGraphSize) {
+		this(threadCount, smallGraphSize, threadCount * PENDING_CHECKS_PER_THREAD,
+				2 * threadCount);
+	}
+
+	/**
+	 * Creates a service.
+	 *
+	 * @param threadCount number of threads for large checks and,
+	 *        if virtual threads are not available, for small
+	 *        checks
+	 * @param smallGraphSize number of nodes up to which a graph
+	 *        is small. A check is large if one of the graphs is
+	 *        large.
+	 * @param maxPendingSmallChecks number of small checks which
+	 *        may be pending before submitting blocks
+	 * @param largeCheckCapacity number of large checks of
+	 *        {@code smallGraphSize} nodes which may be pending
+	 *        before submitting blocks. Larger checks use up more
+	 *        of the capacity.
+	 */
+	public GraphComparisonService(final int threadCount, final int smallGraphSize,
+			final int maxPendingSmallChecks, final int largeCheckCapacity) {
+		if (threadCount < 1 || smallGraphSize < 1 || maxPendingSmallChecks < 1
+				|| largeCheckCapacity < 1) {
+			throw new IllegalArgumentException("All arguments must be positive");
+		}
+		this.smallGraphSize = smallGraphSize;
+		this.largeCheckCapacity = largeCheckCapacity;
+		final ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+		virtualThreads = virtualThreadExecutor != null;
+		if (virtualThreads) {
+			smallGraphExecutor = virtualThreadExecutor;
+		} else {
+			smallGraphExecutor = new ForkJoinPool(threadCount);
+		}
+		largeGraphExecutor = Executors.newFixedThreadPool(threadCount);
+		smallCheckPermits = new Semaphore(maxPendingSmallChecks);
+		largeCheckPermits = new Semaphore(largeCheckCapacity, true);
+	}
+
+	/**
+	 * Submits a check of two frozen graphs.
+	 *
+	 * @param graph first graph
+	 * @param otherGraph second graph
+	 * @param budget for the check
+	 * @param <V> Type of vertex names
+	 * @param <E> Type of edge names
+	 * @return the future result of the check
+	 * @throws InterruptedException if the thread is interrupted
+	 *         while waiting for capacity
+	 * @throws RejectedExecutionException if the service has
+	 *         been shut down
+	 */
+	public <V, E> Future<IsomorphismResult> submit(final FrozenGraph<?, V, E> graph,
+			final FrozenGraph<?, ? extends V, ? extends E> otherGraph,
+			final SearchBudget budget) throws InterruptedException {
+		final SearchBudget interruptibleBudget = budget.interruptible();
+		return submit(Math.max(graph.getNodeCount(), otherGraph.getNodeCount()),
+				new Callable<IsomorphismResult>() {
+
+					@Override
+					public IsomorphismResult call() {
+						return graph.checkIsomorphism(otherGraph, interruptibleBudget.startNow(),
+								NoOpLabellingListener.INSTANCE);
+					}
+
+				});
+	}
+
+	/**
+	 * Submits a check of two graphs. The graphs must not be
+	 * modified until the check is completed.
+	 *
+	 * @param graph first graph
+	 * @param otherGraph second graph
+	 * @param budget for the check
+	 * @param <V> Type of vertex names
+	 * @param <E> Type of edge names
+	 * @return the future result of the check
+	 * @throws InterruptedException if the thread is interrupted
+	 *         while waiting for capacity
+	 * @throws RejectedExecutionException if the service has
+	 *         been shut down
+	 */
+	public <V, E> Future<IsomorphismResult> submit(final Graph<?, V, E> graph,
+			final Graph<?, ? extends V, ? extends E> otherGraph,
+			final SearchBudget budget) throws InterruptedException {
+		final SearchBudget interruptibleBudget = budget.interruptible();
+		return submit(Math.max(graph.getNodes().size(), otherGraph.getNodes().size()),
+				new Callable<IsomorphismResult>() {
+
+					@Override
+					public IsomorphismResult call() {
+						return graph.checkIsomorphism(otherGraph, interruptibleBudget.startNow());
+					}
+
+				});
+	}
+
+	/**
+	 * Returns true if small checks run on virtual threads. This
+	 * is the case on Java 21 and later.
+	 *
+	 * @return true if virtual threads are used
+	 */
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Stops accepting new checks. Pending checks are completed.
+	 */
+	public void shutdown() {
+		smallGraphExecutor.shutdown();
+		largeGraphExecutor.shutdown();
+	}
+
+	/**
+	 * Waits until all checks are completed after a shutdown.
+	 *
+	 * @param timeout maximum time to wait
+	 * @param unit of {@code timeout}
+	 * @return true if all checks are completed
+	 * @throws InterruptedException if the thread is interrupted
+	 *         while waiting
+	 */
+	public boolean awaitTermination(final long timeout, final TimeUnit unit)
+			throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		return smallGraphExecutor.awaitTermination(timeout, unit)
+				&& largeGraphExecutor.awaitTermination(deadline - System.nanoTime(),
+						TimeUnit.NANOSECONDS);
+	}
+
+	private Future<IsomorphismResult> submit(final int size,
+			final Callable<IsomorphismResult> check) throws InterruptedException {
+		if (size <= smallGraphSize) {
+			return schedule(smallGraphExecutor, smallCheckPermits, 1, check);
+		}
+		final long weight = ((long) size + smallGraphSize - 1) / smallGraphSize;
+		return schedule(largeGraphExecutor, largeCheckPermits,
+				(int) Math.min(weight, largeCheckCapacity), check);
+	}
+
+	/**
+	 * Creates an executor which starts a virtual thread for each
+	 * task. Returns null if the runtime does not support virtual
+	 * threads or only as a preview feature which is disabled.
+	 */
+	private static ExecutorService createVirtualThreadExecutor() {
+		try {
+			final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (final ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	private static Future<IsomorphismResult> schedule(final ExecutorService executor,
+			final Semaphore permits, final int weight, final Callable<IsomorphismResult> check)
+			throws InterruptedException {
+		permits.acquire(weight);
+		final AtomicBoolean started = new AtomicBoolean();
+		final Callable<IsomorphismResult> guardedCheck = new Callable<IsomorphismResult>() {
+
+			@Override
+			public IsomorphismResult call() throws Exception {
+				if (!started.compareAndSet(false, true)) {
+					// Cancelled before it was started:
+					return IsomorphismResult.UNKNOWN;
+				}
+				try {
+					return check.call();
+				} finally {
+					permits.release(weight);
+				}
+			}
+
+		};
+		final FutureTask<IsomorphismResult> task = new FutureTask<IsomorphismResult>(guardedCheck) {
+
+			@Override
+			protected void done() {
+				// A running check keeps its permits until it
+				// returns. Only checks that never started release
+				// them on cancellation:
+				if (isCancelled() && started.compareAndSet(false, true)) {
+					permits.release(weight);
+				}
+			}
+
+		};
+		try {
+			executor.execute(task);
+		} catch (final RejectedExecutionException e) {
+			permits.release(weight);
+			throw e;
+		}
+		return task;
+	}
+
+}
@@ -0,0 +1,242 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the vertices and edges of a {@link Graph} to an
+ * {@link Appendable}. The output is written while the graph is
+ * traversed so that no intermediate representation of the whole
+ * graph is built.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class GraphDumper {
+
+	/** Number of buckets of the degree histogram (degrees up to 2^31). */
+	private static final int HISTOGRAM_SIZE = Integer.SIZE;
+
+	private final Appendable out;
+	private final DumpOptions options;
+
+	GraphDumper(final Appendable out, final DumpOptions options) {
+		this.out = out;
+		this.options = options;
+	}
+
+	/**
+	 * Dumps a graph.
+	 *
+	 * @param vertices the vertices of the graph
+	 * @param nodes all nodes of the graph
+	 * @throws IOException if writing fails
+	 */
+	public void dump(final Collection<? extends VertexNode<?>> vertices,
+			final Collection<Node<?>> nodes) throws IOException {
+		if (options.isSummary()) {
+			writeSummary(vertices, nodes);
+		} else {
+			writeVertices(vertices);
+		}
+	}
+
+	private void writeVertices(final Collection<? extends VertexNode<?>> vertices)
+			throws IOException {
+		int count = 0;
+		for (final VertexNode<?> vertex : vertices) {
+			if (count == options.getMaxVertices()) {
+				out.append("... ").append(Integer.toString(vertices.size() - count))
+						.append(" more vertices\n");
+				return;
+			}
+			writeVertex(vertex);
+			out.append('\n');
+			writeEdges(vertex);
+			count += 1;
+		}
+	}
+
+	private void writeEdges(final VertexNode<?> vertex) throws IOException {
+		final int maxEdges = options.getMaxEdgesPerVertex();
+		int count = 0;
+		int omitted = 0;
+		for (final Node<?> node : vertex.getConnectedTo()) {
+			if (node instanceof EdgeNode) {
+				for (final Node<?> target : node.getConnectedTo()) {
+					if (count < maxEdges) {
+						out.append("\t--");
+						writeEdge(node);
+						out.append("--> ");
+						writeVertex(target);
+						out.append('\n');
+						count += 1;
+					} else {
+						omitted += 1;
+					}
+				}
+			} else if (count < maxEdges) {
+				out.append("\t----> ");
+				writeVertex(node);
+				out.append('\n');
+				count += 1;
+			} else {
+				omitted += 1;
+			}
+		}
+		if (omitted > 0) {
+			out.append("\t... ").append(Integer.toString(omitted)).append(" more edges\n");
+		}
+	}
+
+	private void writeVertex(final Node<?> vertex) throws IOException {
+		out.append('(');
+		out.append(((VertexNode<?>) vertex).getId().toString());
+		out.append(", \"");
+		if (vertex.hasName()) {
+			out.append(vertex.getName().toString());
+		}
+		out.append("\")");
+	}
+
+	private void writeEdge(final Node<?> edge) throws IOException {
+		out.append("[\"");
+		if (edge.hasName()) {
+			out.append(edge.getName().toString());
+		}
+		out.append("\"]");
+	}
+
+	private void writeSummary(final Collection<? extends VertexNode<?>> vertices,
+			final Collection<Node<?>> nodes) throws IOException {
+		final long[] histogram = new long[HISTOGRAM_SIZE];
+		final FrequentNames vertexNames = new FrequentNames(options.getTopNames());
+		long connectionCount = 0;
+		for (final VertexNode<?> vertex : vertices) {
+			final int degree = vertex.getConnectedTo().size();
+			histogram[Integer.SIZE - Integer.numberOfLeadingZeros(degree)] += 1;
+			connectionCount += degree;
+			vertexNames.add(vertex.getName());
+		}
+		final FrequentNames edgeNames = new FrequentNames(options.getTopNames());
+		for (final Node<?> node : nodes) {
+			if (node instanceof EdgeNode) {
+				edgeNames.add(node.getName());
+			}
+		}
+
+		out.append("vertices: ").append(Integer.toString(vertices.size())).append('\n');
+		out.append("named edges: ").append(Integer.toString(nodes.size() - vertices.size()))
+				.append('\n');
+		out.append("connections from vertices: ").append(Long.toString(connectionCount))
+				.append('\n');
+		out.append("out-degree histogram:\n");
+		for (int i = 0; i < HISTOGRAM_SIZE; ++i) {
+			if (histogram[i] > 0) {
+				out.append('\t').append(describeBucket(i)).append(": ")
+						.append(Long.toString(histogram[i])).append('\n');
+			}
+		}
+		if (options.getTopNames() > 0) {
+			out.append("frequent vertex names:\n");
+			vertexNames.write(out);
+			out.append("frequent edge names:\n");
+			edgeNames.write(out);
+		}
+	}
+
+	/**
+	 * Bucket 0 contains degree 0, bucket i > 0 contains
+	 * degrees from 2^(i-1) to 2^i - 1.
+	 */
+	private static String describeBucket(final int bucket) {
+		if (bucket == 0) {
+			return "0";
+		}
+		final long low = 1L << (bucket - 1);
+		final long high = (1L << bucket) - 1;
+		if (low == high) {
+			return Long.toString(low);
+		}
+		return Long.toString(low) + "-" + Long.toString(high);
+	}
+
+	/**
+	 * Estimates the most frequent names with the Misra-Gries
+	 * algorithm. It uses a fixed number of counters regardless
+	 * of the number of distinct names. Unnamed nodes are not
+	 * counted.
+	 */
+	private static final class FrequentNames {
+
+		private final int size;
+		private final Map<Object, Long> counters = new HashMap<>();
+
+		FrequentNames(final int size) {
+			this.size = size;
+		}
+
+		public void add(final Object name) {
+			if (name == null || size == 0) {
+				return;
+			}
+			final Long count = counters.get(name);
+			if (count != null) {
+				counters.put(name, count + 1);
+			} else if (counters.size() < size) {
+				counters.put(name, 1L);
+			} else {
+				final Iterator<Map.Entry<Object, Long>> it = counters.entrySet().iterator();
+				while (it.hasNext()) {
+					final Map.Entry<Object, Long> entry = it.next();
+					if (entry.getValue() == 1) {
+						it.remove();
+					} else {
+						entry.setValue(entry.getValue() - 1);
+					}
+				}
+			}
+		}
+
+		public void write(final Appendable out) throws IOException {
+			final List<Map.Entry<Object, Long>> entries = new ArrayList<>(counters.entrySet());
+			Collections.sort(entries, new Comparator<Map.Entry<Object, Long>>() {
+
+				@Override
+				public int compare(final Map.Entry<Object, Long> entry1,
+						final Map.Entry<Object, Long> entry2) {
+					return entry2.getValue().compareTo(entry1.getValue());
+				}
+
+			});
+			for (final Map.Entry<Object, Long> entry : entries) {
+				out.append("\t\"").append(entry.getKey().toString()).append("\": ")
+						.append(Long.toString(entry.getValue())).append('\n');
+			}
+		}
+
+	}
+
+}
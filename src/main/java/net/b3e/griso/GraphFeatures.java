@@ -0,0 +1,225 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.Arrays;
+
+/**
+ * The Weisfeiler-Leman subtree features of a graph. The features
+ * count how often each label occurs in the first refinement
+ * rounds of the {@link GraphLabeller}. Round 0 contains the labels
+ * assigned to the nodes from their names. The labels are computed
+ * from hash codes and can therefore be compared between graphs.
+ *
+ * The features are stored as a sparse vector sorted by feature
+ * key so that the dot product of two vectors is computed by a
+ * single merge. Isomorph graphs always have the same features.
+ * Graphs with similar neighbourhoods share many features which
+ * makes the {@link #similarity(GraphFeatures)} of the features
+ * suitable for ranking graphs by how close they are to a
+ * given graph.
+ *
+ * Features can only be compared if they were computed with the
+ * same number of rounds and from graphs with the same
+ * {@link EdgeRepresentation}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class GraphFeatures {
+
+	private static final long COLOUR_MASK = 0xffffffffL;
+
+	private final int rounds;
+	private final EdgeRepresentation representation;
+	private final long[] keys;
+	private final int[] counts;
+	private final long squaredNorm;
+
+	private GraphFeatures(final int rounds, final EdgeRepresentation representation,
+			final long[] keys, final int[] counts) {
+		this.rounds = rounds;
+		this.representation = representation;
+		this.keys = keys;
+		this.counts = counts;
+		long sum = 0;
+		for (final int count : counts) {
+			sum += (long) count * count;
+		}
+		squaredNorm = sum;
+	}
+
+	/**
+	 * Computes the features of a graph.
+	 *
+	 * @param graph to compute the features for
+	 * @param rounds number of refinement rounds
+	 * @return the features of the graph
+	 * @throws IllegalArgumentException if {@code rounds} is negative
+	 *         or the graph is too large to keep the features of
+	 *         all rounds in an array
+	 */
+	static GraphFeatures create(final CompactGraph graph, final int rounds) {
+		if (rounds < 0) {
+			throw new IllegalArgumentException("rounds must not be negative");
+		}
+		SignatureKernel kernel = graph.getSignatureKernel();
+		if (kernel == null) {
+			kernel = new SignatureKernel(graph);
+		}
+		final Label.Factory labelFactory = new Label.Factory();
+		final int nodeCount = graph.getNodeCount();
+		final long keyCount = (long) nodeCount * ((long) rounds + 1);
+		if (keyCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many rounds for a graph with "
+					+ nodeCount + " nodes");
+		}
+		final long[] allKeys = new long[(int) keyCount];
+		int[] labelHashes = new int[nodeCount];
+		int[] nextLabelHashes = new int[nodeCount];
+		for (int node = 0; node < nodeCount; ++node) {
+			labelHashes[node] = Label.hashCode(labelFactory.create(graph.getNodeHashCode(node)));
+			allKeys[node] = createKey(0, labelHashes[node]);
+		}
+		for (int round = 1; round <= rounds; ++round) {
+			final int offset = round * nodeCount;
+			for (int node = 0; node < nodeCount; ++node) {
+				final long label = labelFactory.create(kernel.computeSignature(node, labelHashes));
+				nextLabelHashes[node] = Label.hashCode(label);
+				allKeys[offset + node] = createKey(round, nextLabelHashes[node]);
+			}
+			final int[] tmp = labelHashes;
+			labelHashes = nextLabelHashes;
+			nextLabelHashes = tmp;
+		}
+		Arrays.sort(allKeys);
+
+		int featureCount = 0;
+		for (int i = 0; i < allKeys.length; ++i) {
+			if (i == 0 || allKeys[i] != allKeys[i - 1]) {
+				featureCount += 1;
+			}
+		}
+		final long[] keys = new long[featureCount];
+		final int[] counts = new int[featureCount];
+		int feature = -1;
+		for (int i = 0; i < allKeys.length; ++i) {
+			if (i == 0 || allKeys[i] != allKeys[i - 1]) {
+				feature += 1;
+				keys[feature] = allKeys[i];
+			}
+			counts[feature] += 1;
+		}
+		return new GraphFeatures(rounds, graph.getEdgeRepresentation(), keys, counts);
+	}
+
+	public int getRounds() {
+		return rounds;
+	}
+
+	public EdgeRepresentation getEdgeRepresentation() {
+		return representation;
+	}
+
+	/**
+	 * Returns the number of distinct features, that is the
+	 * number of non-zero entries of the feature vector.
+	 *
+	 * @return number of features
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns the key of a feature. The keys are sorted in
+	 * ascending order. Features with equal keys describe the
+	 * same label in the same round.
+	 *
+	 * @param i index of the feature
+	 * @return the key of the feature
+	 */
+	long getKey(final int i) {
+		return keys[i];
+	}
+
+	/**
+	 * Returns how often a feature occurs in the graph.
+	 *
+	 * @param i index of the feature
+	 * @return the count of the feature
+	 */
+	int getCount(final int i) {
+		return counts[i];
+	}
+
+	/**
+	 * Computes the dot product of the feature vectors. The
+	 * computation takes time linear in the number of features.
+	 *
+	 * @param other features to multiply with
+	 * @return the dot product of the feature vectors
+	 * @throws IllegalArgumentException if the features are
+	 *         not comparable
+	 */
+	public long dotProduct(final GraphFeatures other) {
+		if (rounds != other.rounds || representation != other.representation) {
+			throw new IllegalArgumentException(
+					"Features must be computed with the same rounds and edge representation");
+		}
+		long product = 0;
+		int i = 0;
+		int j = 0;
+		while (i < keys.length && j < other.keys.length) {
+			if (keys[i] < other.keys[j]) {
+				i += 1;
+			} else if (keys[i] > other.keys[j]) {
+				j += 1;
+			} else {
+				product += (long) counts[i] * other.counts[j];
+				i += 1;
+				j += 1;
+			}
+		}
+		return product;
+	}
+
+	/**
+	 * Computes the cosine similarity of the feature vectors.
+	 * Isomorph graphs have a similarity of 1. Graphs without any
+	 * common features have a similarity of 0.
+	 *
+	 * @param other features to compare with
+	 * @return a value between 0 and 1
+	 * @throws IllegalArgumentException if the features are
+	 *         not comparable
+	 */
+	public double similarity(final GraphFeatures other) {
+		final long product = dotProduct(other);
+		if (squaredNorm == 0 || other.squaredNorm == 0) {
+			if (squaredNorm == other.squaredNorm) {
+				return 1.0;
+			}
+			return 0.0;
+		}
+		return product / Math.sqrt((double) squaredNorm * other.squaredNorm);
+	}
+
+	private static long createKey(final int round, final int labelHash) {
+		return ((long) round << Integer.SIZE) | (labelHash & COLOUR_MASK);
+	}
+
+}
@@ -0,0 +1,309 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+
+/**
+ * An index for finding near-duplicates of a graph in a large
+ * collection of graphs. The index computes a MinHash signature of
+ * the {@link GraphFeatures} of each graph and stores the graph in
+ * one bucket per band of the signature (locality-sensitive
+ * hashing). Features occurring more than once are treated as
+ * distinct elements so that the signature reflects the counts
+ * of the features. Graphs whose feature sets have a high Jaccard
+ * similarity share at least one band with high probability while
+ * dissimilar graphs rarely do. A lookup therefore only needs to
+ * inspect the graphs in the buckets of the query and not the
+ * whole collection.
+ *
+ * The candidates found for a query are ranked by the number of
+ * matching signature values. {@link #findIsomorphisms(FrozenGraph)}
+ * verifies the candidates with an exact isomorphism check.
+ *
+ * All graphs in an index must use the same {@link EdgeRepresentation}.
+ * The index is not thread-safe.
+ *
+ * @param <K> Type of the keys identifying the graphs
+ * @param <V> Type of vertex names
+ * @param <E> Type of edge names
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class GraphIndex<K, V, E> {
+
+	private static final int DEFAULT_ROUNDS = 3;
+	private static final int DEFAULT_BAND_COUNT = 16;
+	private static final int DEFAULT_ROWS_PER_BAND = 4;
+
+	private static final long SEED_INCREMENT = 0x9e3779b97f4a7c15L;
+	private static final long MIX_FACTOR1 = 0xbf58476d1ce4e5b9L;
+	private static final long MIX_FACTOR2 = 0x94d049bb133111ebL;
+	private static final int MIX_SHIFT1 = 30;
+	private static final int MIX_SHIFT2 = 27;
+	private static final int MIX_SHIFT3 = 31;
+	private static final long PRIME = 31;
+
+	private final int rounds;
+	private final int rowsPerBand;
+	private final EdgeRepresentation representation;
+	private final long[] seeds;
+	private final List<ListMultimap<Long, Entry<K, V, E>>> bands;
+	private int size;
+
+	/**
+	 * Creates an index for graphs whose named edges are
+	 * represented by nodes.
+	 */
+	public GraphIndex() {
+		this(EdgeRepresentation.NODES, DEFAULT_ROUNDS, DEFAULT_BAND_COUNT,
+				DEFAULT_ROWS_PER_BAND);
+	}
+
+	/**
+	 * Creates an index. More bands find more candidates with a
+	 * lower similarity. More rows per band make the buckets more
+	 * selective.
+	 *
+	 * @param representation of named edges in the indexed graphs
+	 * @param rounds number of refinement rounds for computing
+	 *        the features of the graphs
+	 * @param bandCount number of bands of the signature
+	 * @param rowsPerBand number of signature values in each band
+	 * @throws IllegalArgumentException if {@code rounds} is
+	 *         negative or {@code bandCount} or {@code rowsPerBand}
+	 *         are not positive
+	 */
+	public GraphIndex(final EdgeRepresentation representation, final int rounds,
+			final int bandCount, final int rowsPerBand) {
+		if (rounds < 0) {
+			throw new IllegalArgumentException("rounds must not be negative");
+		}
+		if (bandCount < 1 || rowsPerBand < 1) {
+			throw new IllegalArgumentException("bandCount and rowsPerBand must be positive");
+		}
+		this.representation = representation;
+		this.rounds = rounds;
+		this.rowsPerBand = rowsPerBand;
+		seeds = new long[bandCount * rowsPerBand];
+		for (int i = 0; i < seeds.length; ++i) {
+			seeds[i] = (i + 1) * SEED_INCREMENT;
+		}
+		bands = new ArrayList<>(bandCount);
+		for (int i = 0; i < bandCount; ++i) {
+			final ListMultimap<Long, Entry<K, V, E>> band = ArrayListMultimap.create();
+			bands.add(band);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds a graph to the index.
+	 *
+	 * @param key identifying the graph
+	 * @param graph to add
+	 * @throws IllegalArgumentException if the graph uses another
+	 *         edge representation than the index
+	 */
+	public void add(final K key, final FrozenGraph<?, ? extends V, ? extends E> graph) {
+		final Entry<K, V, E> entry = new Entry<K, V, E>(key, graph,
+				computeSignature(checkRepresentation(graph)));
+		for (int band = 0; band < bands.size(); ++band) {
+			bands.get(band).put(Long.valueOf(computeBandHash(entry.signature, band)), entry);
+		}
+		size += 1;
+	}
+
+	/**
+	 * Returns the keys of the graphs which share at least one
+	 * band with {@code query}. The keys are ordered by the number
+	 * of matching signature values, most similar first.
+	 *
+	 * @param query the graph to look up
+	 * @return the keys of the candidate graphs
+	 * @throws IllegalArgumentException if the graph uses another
+	 *         edge representation than the index
+	 */
+	public List<K> findCandidates(final FrozenGraph<?, ?, ?> query) {
+		final List<Entry<K, V, E>> candidates = collectCandidates(query);
+		final List<K> keys = new ArrayList<>(candidates.size());
+		for (final Entry<K, V, E> candidate : candidates) {
+			keys.add(candidate.key);
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns the keys of the graphs which share at least one
+	 * band with {@code query}.
+	 *
+	 * @param query the graph to look up
+	 * @return the keys of the candidate graphs
+	 * @see #findCandidates(FrozenGraph)
+	 */
+	public List<K> findCandidates(final Graph<?, ?, ?> query) {
+		return findCandidates(query.freeze(representation));
+	}
+
+	/**
+	 * Returns the keys of the indexed graphs which are isomorph
+	 * to {@code query}. Only the candidates are checked.
+	 *
+	 * @param query the graph to look up
+	 * @return the keys of the isomorph graphs
+	 * @throws IllegalArgumentException if the graph uses another
+	 *         edge representation than the index
+	 */
+	public List<K> findIsomorphisms(final FrozenGraph<?, V, E> query) {
+		final List<K> keys = new ArrayList<>();
+		for (final Entry<K, V, E> candidate : collectCandidates(query)) {
+			if (query.isIsomorphism(candidate.graph)) {
+				keys.add(candidate.key);
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns the keys of the indexed graphs which are isomorph
+	 * to {@code query}.
+	 *
+	 * @param query the graph to look up
+	 * @return the keys of the isomorph graphs
+	 * @see #findIsomorphisms(FrozenGraph)
+	 */
+	public List<K> findIsomorphisms(final Graph<?, V, E> query) {
+		return findIsomorphisms(query.freeze(representation));
+	}
+
+	private List<Entry<K, V, E>> collectCandidates(final FrozenGraph<?, ?, ?> query) {
+		final int[] signature = computeSignature(checkRepresentation(query));
+		final Map<Entry<K, V, E>, Integer> matches = new IdentityHashMap<>();
+		for (int band = 0; band < bands.size(); ++band) {
+			final Long bandHash = Long.valueOf(computeBandHash(signature, band));
+			for (final Entry<K, V, E> entry : bands.get(band).get(bandHash)) {
+				if (!matches.containsKey(entry)) {
+					matches.put(entry, Integer.valueOf(countMatches(signature, entry.signature)));
+				}
+			}
+		}
+		final List<Entry<K, V, E>> candidates = new ArrayList<>(matches.keySet());
+		Collections.sort(candidates, new Comparator<Entry<K, V, E>>() {
+			@Override
+			public int compare(final Entry<K, V, E> entry1, final Entry<K, V, E> entry2) {
+				return matches.get(entry2).compareTo(matches.get(entry1));
+			}
+		});
+		return candidates;
+	}
+
+	private GraphFeatures checkRepresentation(final FrozenGraph<?, ?, ?> graph) {
+		if (graph.getEdgeRepresentation() != representation) {
+			throw new IllegalArgumentException("The graph must use the edge representation "
+					+ representation);
+		}
+		return graph.computeFeatures(rounds);
+	}
+
+	private int[] computeSignature(final GraphFeatures features) {
+		int elementCount = 0;
+		for (int feature = 0; feature < features.size(); ++feature) {
+			elementCount += features.getCount(feature);
+		}
+		final long[] elements = new long[elementCount];
+		int element = 0;
+		for (int feature = 0; feature < features.size(); ++feature) {
+			final long key = mix(features.getKey(feature));
+			for (int occurrence = 0; occurrence < features.getCount(feature); ++occurrence) {
+				elements[element] = key + occurrence * SEED_INCREMENT;
+				element += 1;
+			}
+		}
+
+		final int[] signature = new int[seeds.length];
+		for (int i = 0; i < seeds.length; ++i) {
+			long min = Long.MAX_VALUE;
+			for (final long value : elements) {
+				min = Math.min(min, mix(value ^ seeds[i]));
+			}
+			signature[i] = (int) (min >>> Integer.SIZE);
+		}
+		return signature;
+	}
+
+	private long computeBandHash(final int[] signature, final int band) {
+		long hash = 0;
+		final int start = band * rowsPerBand;
+		for (int i = start; i < start + rowsPerBand; ++i) {
+			hash = hash * PRIME + signature[i];
+		}
+		return hash;
+	}
+
+	private static int countMatches(final int[] signature, final int[] otherSignature) {
+		int count = 0;
+		for (int i = 0; i < signature.length; ++i) {
+			if (signature[i] == otherSignature[i]) {
+				count += 1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Spreads the bits of a feature key using the finalisation
+	 * step of SplitMix64. The result is non-negative so that the
+	 * minimum is found by comparing signed values.
+	 */
+	private static long mix(final long value) {
+		long hash = value;
+		hash = (hash ^ (hash >>> MIX_SHIFT1)) * MIX_FACTOR1;
+		hash = (hash ^ (hash >>> MIX_SHIFT2)) * MIX_FACTOR2;
+		hash ^= hash >>> MIX_SHIFT3;
+		return hash >>> 1;
+	}
+
+	/**
+	 * An indexed graph together with its key and signature.
+	 */
+	private static final class Entry<K, V, E> {
+
+		private final K key;
+		private final FrozenGraph<?, ? extends V, ? extends E> graph;
+		private final int[] signature;
+
+		Entry(final K key, final FrozenGraph<?, ? extends V, ? extends E> graph,
+				final int[] signature) {
+			this.key = key;
+			this.graph = graph;
+			this.signature = signature;
+		}
+
+	}
+
+}
@@ -15,20 +15,10 @@
  */
 package net.b3e.griso;
 
-import java.util.Collection;
-import java.util.Deque;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-
 /**
  * An iterator that returns all canonical labellings of a graph.
  * If a graph has nodes whose label cannot be defined by their
@@ -36,64 +26,233 @@
  * a label to a node. Because of this randomisation more than
  * one canonical labelling may exist for a graph.
  *
+ * If refinement stops splitting label groups, the labeller
+ * uses pair refinement for small graphs and computes the
+ * {@link VertexInvariant}s selected in the
+ * {@link LabellingOptions} before it starts searching.
+ *
+ * Refinement and search only process the nodes in the frontier.
+ * Normally, the frontier contains all nodes. With the ground
+ * decomposition enabled, uniquely named nodes are fixed up front
+ * and left out of the frontier.
+ *
+ * The search only branches on the nodes of one label group. The
+ * choice of the group and the labels assigned while searching
+ * depend only on the labels of the nodes. The nodes within the
+ * group are tried in the order of their indices, however. Only
+ * the set of labellings is therefore independent of the order in
+ * which nodes were added (provided the hash codes of the vertex
+ * and edge names are stable). The order in which the labellings
+ * are produced, and hence the first labelling, is not. Callers
+ * which need one labelling that is stable across runs and
+ * machines must choose it from all labellings by a criterion
+ * that does not depend on the order, as
+ * {@link CanonicalNTriples} does by picking the labelling with
+ * the smallest certificate.
+ *
+ * Callers can supply an initial colour for each node. Nodes
+ * with different colours are never assigned the same label and
+ * only labellings which agree on the colours match. Nodes
+ * without a colour have the colour 0.
+ *
+ * A {@link SearchPruner} can be set to skip alternatives which
+ * are known to lead to equivalent labellings. Callers which
+ * detect that a whole subtree is equivalent to an explored one
+ * can leave it with {@link #backtrack(int)}.
+ *
+ * Refinement rounds on graphs stored on the heap are computed
+ * with a {@link SignatureKernel}.
+ *
+ * The buffers of the labeller are taken from a
+ * {@link LabellerWorkspace} which can be reused by the next
+ * labeller once this labeller is not needed anymore.
+ *
  * @author Christoph Böhme
  *
  */
-public final class GraphLabeller implements Iterator<Map<Node<?>, Label>> {
+public final class GraphLabeller implements Iterator<Labelling> {
 
-	private static final int CONNECTION_TO = 31;
-	private static final int CONNECTION_FROM = 43;
+	static final int CONNECTION_TO = 31;
+	static final int CONNECTION_FROM = 43;
+	private static final int EDGE_COLOUR_FACTOR = 37;
+	private static final int INVARIANT_FACTOR = 47;
+	private static final int COLOUR_FACTOR = 53;
 
-	private static final Node<?> REWIND_MARKER = new Node<String>("REWIND_MARKER");
+	private static final int REWIND_MARKER = -1;
 
 	private final Label.Factory labelFactory = new Label.Factory();
 
-	private final Collection<Node<?>> nodes;
+	private final CompactGraph graph;
+	private final int[] nodeColours;
+	private final LabellerWorkspace workspace;
+	private final LabellingOptions options;
+	private final VertexInvariant[] vertexInvariants;
+	private VertexInvariantCalculator invariantCalculator;
+	private final PairRefinement pairRefinement;
+	private final SignatureKernel signatureKernel;
+	private final LabellingListener listener;
+	private final boolean timed;
+	private final BudgetMonitor budgetMonitor;
+	private final int nodeCount;
 	private final int graphDiameter;
 
-	private final Map<Node<?>, Label> labelling = new HashMap<>();
+	/*
+	 * Labels are indexed by node. The label groups are not stored
+	 * explicitly. Instead, sortedNodes contains all nodes of the
+	 * frontier ordered by their labels so that nodes sharing a
+	 * label are adjacent. Nodes outside of the frontier have
+	 * unique ground labels which never change. The arrays may be
+	 * longer than the number of nodes.
+	 */
+	private long[] labelling;
+	private long[] nextLabelling;
+	private final int[] frontier;
+	private int frontierCount;
+	private int fixedCount;
+	private final int[] sortedNodes;
+	private final int[] ambiguousNodes;
+	private final int[] nodeValues;
+	private final int[] pairRefinementValues;
+	private final int[] labelHashes;
+	private int ambiguousNodeCount;
+	private int labelGroupCount;
 
-	private final Deque<Multimap<Label, Node<?>>> labelGroupStack = new LinkedList<>();
-	private final Deque<Node<?>> alternatives = new LinkedList<>();
+	/*
+	 * The labels of the frontier are saved for each level of
+	 * the search tree. The labels of level i are stored at
+	 * position i * frontierCount in savedLabels.
+	 */
+	private long[] savedLabels;
+	private int searchDepth;
+	private int[] alternatives;
+	private int alternativeCount;
+	private SearchPruner pruner;
 
-	private Multimap<Label, Node<?>> labelGroups = HashMultimap.create();
+	private boolean started;
 
 	GraphLabeller(final Graph<?, ?, ?> graph) {
-		nodes = new LinkedList<Node<?>>(graph.getNodes());
+		this(CompactGraph.create(graph.getNodeList()), LabellingOptions.DEFAULT,
+				NoOpLabellingListener.INSTANCE, BudgetMonitor.UNLIMITED);
+	}
+
+	GraphLabeller(final CompactGraph graph, final LabellingOptions options,
+			final LabellingListener listener, final BudgetMonitor budgetMonitor) {
+		this(graph, options, listener, budgetMonitor, new LabellerWorkspace());
+	}
+
+	// NO CHECKSTYLE ParameterNumber FOR 3 LINES:
+	GraphLabeller(final CompactGraph graph, final LabellingOptions options,
+			final LabellingListener listener, final BudgetMonitor budgetMonitor,
+			final LabellerWorkspace workspace) {
+		this(graph, null, options, listener, budgetMonitor, workspace);
+	}
+
+	/**
+	 * Creates a labeller which starts from the given colours
+	 * instead of only the names of the nodes.
+	 *
+	 * @param graph to label
+	 * @param nodeColours initial colours indexed by node. May
+	 *        be null if the nodes are not coloured.
+	 * @param options for labelling the graph
+	 * @param listener receiving statistics
+	 * @param budgetMonitor limiting the work of the labeller
+	 * @param workspace providing the buffers of the labeller
+	 */
+	// NO CHECKSTYLE ParameterNumber FOR 3 LINES:
+	GraphLabeller(final CompactGraph graph, final int[] nodeColours,
+			final LabellingOptions options, final LabellingListener listener,
+			final BudgetMonitor budgetMonitor, final LabellerWorkspace workspace) {
+		this.graph = graph;
+		this.nodeColours = nodeColours;
+		this.workspace = workspace;
+		this.options = options;
+		vertexInvariants = options.getVertexInvariants();
+		this.listener = listener;
+		this.budgetMonitor = budgetMonitor;
+		timed = listener != NoOpLabellingListener.INSTANCE;  // NOPMD: the no-op listener is a singleton
+		nodeCount = graph.getNodeCount();
 		graphDiameter = estimateGraphDiameter() + 1;
 
+		workspace.reset(nodeCount);
+		labelling = workspace.getLabelling();
+		nextLabelling = workspace.getNextLabelling();
+		frontier = workspace.getFrontier();
+		sortedNodes = workspace.getSortedNodes();
+		ambiguousNodes = workspace.getAmbiguousNodes();
+		nodeValues = workspace.getNodeValues();
+		labelHashes = workspace.getLabelHashes();
+		signatureKernel = graph.getSignatureKernel();
+		alternatives = workspace.getAlternatives(0);
+		savedLabels = workspace.getSavedLabels(0);
+		if (options.usesPairRefinement(nodeCount)) {
+			pairRefinement = new PairRefinement(graph);
+			pairRefinementValues = workspace.getPairRefinementValues(nodeCount);
+		} else {
+			pairRefinement = null;
+			pairRefinementValues = null;
+		}
+
 		assignNodesToLabelGroups();
 	}
 
 	@Override
-	public BiMap<Node<?>, Label> next() {
-		if (labelling.isEmpty()) {
-			// If nodeLabels is empty, this is the first
-			// invocation of next
-			if (nodes.isEmpty()) {
+	public Labelling next() {
+		if (started) {
+			final long startTime = startTimer();
+			selectNextAlternative();
+			stopTimer(LabellingListener.Phase.SEARCH, startTime);
+		} else {
+			if (nodeCount == 0) {
 				throw new NoSuchElementException();
 			}
-		} else {
-			selectNextAlternative();
+			started = true;
 		}
 
 		while (!createLabelling()) {
+			final long startTime = startTimer();
 			collectAlternatives();
 			selectNextAlternative();
+			stopTimer(LabellingListener.Phase.SEARCH, startTime);
 		}
 
-		buildNodeLabelsMap();
-		return HashBiMap.create(labelling);
+		return new Labelling(graph, Arrays.copyOf(labelling, nodeCount), nodeColours, options);
 	}
 
 	@Override
 	public boolean hasNext() {
-		for (final Node<?> node : alternatives) {
-			if (node != REWIND_MARKER) {  // NOPMD: references to REWIND_MARKER are used as markers
-				return true;
+		if (!started) {
+			return nodeCount > 0;
+		}
+		return skipExhaustedAlternatives();
+	}
+
+	/**
+	 * Sets the pruner which is asked before an alternative is
+	 * selected. Must be called before the first labelling is
+	 * created.
+	 *
+	 * @param searchPruner the pruner or null
+	 */
+	void setPruner(final SearchPruner searchPruner) {
+		pruner = searchPruner;
+	}
+
+	/**
+	 * Discards the remaining alternatives of all search levels
+	 * below {@code depth}. The next labelling continues with the
+	 * next alternative on level {@code depth}. Search levels are
+	 * numbered from 0 as in {@link SearchPruner}.
+	 *
+	 * @param depth of the search level to return to
+	 */
+	void backtrack(final int depth) {
+		while (searchDepth > depth + 1) {
+			if (popAlternative() == REWIND_MARKER) {
+				searchDepth -= 1;
+				listener.backtracked();
 			}
 		}
-		return labelling.isEmpty() && !nodes.isEmpty();
 	}
 
 	@Override
@@ -102,103 +261,360 @@ public void remove() {
 	}
 
 	private boolean createLabelling() {
+		final long startTime = startTimer();
+		collectAmbiguousNodes();
+		refine();
+		if (pairRefinement != null && ambiguousNodeCount > 0 && applyPairRefinement()) {
+			refine();
+		}
+		int invariant = 0;
+		while (ambiguousNodeCount > 0 && invariant < vertexInvariants.length) {
+			if (applyVertexInvariant(vertexInvariants[invariant])) {
+				refine();
+				// Earlier invariants may split further
+				// groups now:
+				invariant = 0;
+			} else {
+				invariant += 1;
+			}
+		}
+		stopTimer(LabellingListener.Phase.REFINEMENT, startTime);
+
+		return ambiguousNodeCount == 0;
+	}
+
+	private void refine() {
 		for (int i=0; i < graphDiameter; ++i) {
+			final int previousLabelGroupCount = labelGroupCount;
+			final boolean modified = relabelAmbiguousNodes();
 			collectAmbiguousNodes();
-			if (!relabelAmbiguousNodes()) {
+			listener.refinementRoundCompleted(labelGroupCount - previousLabelGroupCount);
+			if (!modified) {
 				break;
 			}
+			budgetMonitor.check();
 		}
-		collectAmbiguousNodes();
+	}
+
+	private boolean applyPairRefinement() {
+		pairRefinement.refine(labelling, pairRefinementValues, budgetMonitor);
+		for (int i = 0; i < ambiguousNodeCount; ++i) {
+			nodeValues[i] = pairRefinementValues[ambiguousNodes[i]];
+		}
+		return applyNodeValues();
+	}
+
+	private boolean applyVertexInvariant(final VertexInvariant invariant) {
+		if (invariantCalculator == null) {
+			invariantCalculator = new VertexInvariantCalculator(graph);
+		}
+		for (int i = 0; i < ambiguousNodeCount; ++i) {
+			nodeValues[i] = invariantCalculator.compute(invariant, ambiguousNodes[i], labelling);
+			budgetMonitor.check();
+		}
+		return applyNodeValues();
+	}
 
-		return nodes.isEmpty();
+	/**
+	 * Combines the labels of the ambiguous nodes with the values
+	 * in {@code nodeValues}. The labels are only changed if the
+	 * values split at least one label group.
+	 *
+	 * @return true if a label group was split
+	 */
+	private boolean applyNodeValues() {
+		// Nodes with the same label are adjacent in ambiguousNodes:
+		boolean splits = false;
+		for (int i = 1; i < ambiguousNodeCount && !splits; ++i) {
+			splits = labelling[ambiguousNodes[i - 1]] == labelling[ambiguousNodes[i]]
+					&& nodeValues[i - 1] != nodeValues[i];
+		}
+		if (!splits) {
+			return false;
+		}
+
+		final int previousLabelGroupCount = labelGroupCount;
+		for (int i = 0; i < ambiguousNodeCount; ++i) {
+			final int node = ambiguousNodes[i];
+			labelling[node] = labelFactory.create(Label.hashCode(labelling[node])
+					+ INVARIANT_FACTOR * nodeValues[i]);
+		}
+		collectAmbiguousNodes();
+		listener.refinementRoundCompleted(labelGroupCount - previousLabelGroupCount);
+		return true;
 	}
 
 	private void assignNodesToLabelGroups() {
-		for (final Node<?> node : nodes) {
-			final Label classId = labelFactory.create(getNodeHashCode(node));
-			labelGroups.put(classId, node);
+		for (int node = 0; node < nodeCount; ++node) {
+			labelling[node] = labelFactory.create(graph.getNodeHashCode(node)
+					+ computeColourOffset(node));
+			sortedNodes[node] = node;
 		}
+		if (options.usesGroundDecomposition()) {
+			fixUniqueNodes();
+		} else {
+			System.arraycopy(sortedNodes, 0, frontier, 0, nodeCount);
+			frontierCount = nodeCount;
+		}
+		System.arraycopy(labelling, 0, nextLabelling, 0, nodeCount);
+		if (signatureKernel != null) {
+			// Only the hash codes of the frontier need to be
+			// updated later:
+			SignatureKernel.hashLabels(labelling, nodeCount, labelHashes);
+		}
+	}
+
+	/**
+	 * Assigns ground labels to all nodes whose label is unique
+	 * and puts the other nodes into the frontier.
+	 */
+	private void fixUniqueNodes() {
+		Label.sortByLabel(sortedNodes, 0, nodeCount, labelling);
+		int groupStart = 0;
+		for (int i = 1; i <= nodeCount; ++i) {
+			if (i == nodeCount || labelling[sortedNodes[i]] != labelling[sortedNodes[groupStart]]) {
+				if (i - groupStart == 1) {
+					final int node = sortedNodes[groupStart];
+					labelling[node] = labelFactory.createGround(Label.getValue(labelling[node]));
+				}
+				groupStart = i;
+			}
+		}
+		frontierCount = 0;
+		for (int node = 0; node < nodeCount; ++node) {
+			if (!Label.isGround(labelling[node])) {
+				frontier[frontierCount] = node;
+				sortedNodes[frontierCount] = node;
+				frontierCount += 1;
+			}
+		}
+		fixedCount = nodeCount - frontierCount;
 	}
 
 	private void collectAmbiguousNodes() {
-		nodes.clear();
-		for (final Collection<Node<?>> nodesInClass : labelGroups.asMap().values()) {
-			if (nodesInClass.size() > 1) {
-				nodes.addAll(nodesInClass);
+		Label.sortByLabel(sortedNodes, 0, frontierCount, labelling);
+		ambiguousNodeCount = 0;
+		labelGroupCount = fixedCount;
+		int groupStart = 0;
+		for (int i = 1; i <= frontierCount; ++i) {
+			if (i == frontierCount
+					|| labelling[sortedNodes[i]] != labelling[sortedNodes[groupStart]]) {
+				labelGroupCount += 1;
+				if (i - groupStart > 1) {
+					System.arraycopy(sortedNodes, groupStart, ambiguousNodes,
+							ambiguousNodeCount, i - groupStart);
+					ambiguousNodeCount += i - groupStart;
+				}
+				groupStart = i;
 			}
 		}
 	}
 
 	private boolean relabelAmbiguousNodes() {
-		buildNodeLabelsMap();
+		// Labels outside of the frontier are equal in both arrays:
+		for (int i = 0; i < frontierCount; ++i) {
+			nextLabelling[frontier[i]] = labelling[frontier[i]];
+		}
+		if (signatureKernel != null) {
+			SignatureKernel.hashLabels(labelling, frontier, frontierCount, labelHashes);
+		}
 		boolean modified = false;
-		for (final Node<?> node : nodes) {
-			final Label oldLabel = labelling.get(node);
-			final Label newLabel = computeLabel(node);
-			if (!oldLabel.equals(newLabel)) {
-				labelGroups.remove(oldLabel, node);
-				labelGroups.put(newLabel, node);
+		for (int i = 0; i < ambiguousNodeCount; ++i) {
+			final int node = ambiguousNodes[i];
+			final long newLabel = computeLabel(node);
+			if (labelling[node] != newLabel) {
+				nextLabelling[node] = newLabel;
 				modified = true;
 			}
 		}
+		final long[] tmp = labelling;
+		labelling = nextLabelling;
+		nextLabelling = tmp;
 		return modified;
 	}
 
-	private void buildNodeLabelsMap() {
-		labelling.clear();
-		for (final Entry<Label, Node<?>> entry : labelGroups.entries()) {
-			labelling.put(entry.getValue(), entry.getKey());
+	private long computeLabel(final int node) {
+		if (signatureKernel != null) {
+			return labelFactory.create(signatureKernel.computeSignature(node, labelHashes)
+					+ computeColourOffset(node));
 		}
+		if (graph.hasLabelledConnections()) {
+			return computeLabelWithEdgeColours(node);
+		}
+		int value = graph.getNodeHashCode(node) + computeColourOffset(node);
+		final int successorCount = graph.getSuccessorCount(node);
+		for (int i = 0; i < successorCount; ++i) {
+			value += CONNECTION_TO * graph.getSuccessorMultiplicity(node, i)
+					* Label.hashCode(labelling[graph.getSuccessor(node, i)]);
+		}
+		final int predecessorCount = graph.getPredecessorCount(node);
+		for (int i = 0; i < predecessorCount; ++i) {
+			value += CONNECTION_FROM * graph.getPredecessorMultiplicity(node, i)
+					* Label.hashCode(labelling[graph.getPredecessor(node, i)]);
+		}
+		return labelFactory.create(value);
 	}
 
-	private Label computeLabel(final Node<?> node) {
-		int value = getNodeHashCode(node);
-		for (final Node<?> connectedNode : node.getConnectedTo()) {
-			value += CONNECTION_TO * labelling.get(connectedNode).hashCode();
+	private long computeLabelWithEdgeColours(final int node) {
+		int value = graph.getNodeHashCode(node) + computeColourOffset(node);
+		final int successorCount = graph.getSuccessorCount(node);
+		for (int i = 0; i < successorCount; ++i) {
+			final int labelHash = Label.hashCode(labelling[graph.getSuccessor(node, i)]);
+			value += CONNECTION_TO * graph.getSuccessorMultiplicity(node, i)
+					* combine(graph.getSuccessorEdgeColour(node, i), labelHash);
 		}
-		for (final Node<?> connectedNode : node.getConnectedFrom()) {
-			value += CONNECTION_FROM * labelling.get(connectedNode).hashCode();
+		final int predecessorCount = graph.getPredecessorCount(node);
+		for (int i = 0; i < predecessorCount; ++i) {
+			final int labelHash = Label.hashCode(labelling[graph.getPredecessor(node, i)]);
+			value += CONNECTION_FROM * graph.getPredecessorMultiplicity(node, i)
+					* combine(graph.getPredecessorEdgeColour(node, i), labelHash);
 		}
 		return labelFactory.create(value);
 	}
 
+	/**
+	 * Returns the contribution of the initial colour of a node
+	 * to its labels. Nodes with the colour 0 do not get an offset
+	 * so that their labels equal those of uncoloured nodes.
+	 */
+	private int computeColourOffset(final int node) {
+		if (nodeColours == null) {
+			return 0;
+		}
+		return COLOUR_FACTOR * Label.mix(nodeColours[node]);
+	}
+
+	/**
+	 * Combines an edge colour and the hash code of a neighbour
+	 * label. The combination is not linear so that the sum of
+	 * the combined values depends on which edge leads to which
+	 * neighbour. Unnamed connections (colour 0) yield the hash
+	 * code of the label as in graphs without labelled connections.
+	 */
+	static int combine(final int edgeColour, final int labelHash) {
+		return labelHash + edgeColour * (EDGE_COLOUR_FACTOR * labelHash + 1);
+	}
+
 	private void collectAlternatives() {
-		labelGroupStack.push(labelGroups);
-		alternatives.push(REWIND_MARKER);
-		for (final Collection<Node<?>> nodesInClass : labelGroups.asMap().values()) {
-			if (nodesInClass.size() > 1) {
-				for(final Node<?> node : nodesInClass) {
-					alternatives.push(node);
+		final int offset = searchDepth * frontierCount;
+		savedLabels = workspace.getSavedLabels(offset + frontierCount);
+		for (int i = 0; i < frontierCount; ++i) {
+			savedLabels[offset + i] = labelling[frontier[i]];
+		}
+		searchDepth += 1;
+		pushAlternative(REWIND_MARKER);
+		final int cellStart = findTargetCell();
+		final long cellLabel = labelling[ambiguousNodes[cellStart]];
+		for (int i = cellStart; i < ambiguousNodeCount
+				&& labelling[ambiguousNodes[i]] == cellLabel; ++i) {
+			pushAlternative(ambiguousNodes[i]);
+		}
+		if (pruner != null) {
+			pruner.alternativesCollected(searchDepth - 1);
+		}
+	}
+
+	/**
+	 * Selects the label group whose nodes are tried as
+	 * alternatives. The smallest group is chosen and ties are
+	 * broken by the label of the group. Since the choice only
+	 * depends on the labels, isomorphic graphs branch on
+	 * corresponding groups regardless of the order in which
+	 * their nodes were added.
+	 *
+	 * @return the position of the first node of the group in
+	 *         {@code ambiguousNodes}
+	 */
+	private int findTargetCell() {
+		int targetStart = 0;
+		int targetSize = Integer.MAX_VALUE;
+		int groupStart = 0;
+		for (int i = 1; i <= ambiguousNodeCount; ++i) {
+			if (i == ambiguousNodeCount
+					|| labelling[ambiguousNodes[i]] != labelling[ambiguousNodes[groupStart]]) {
+				if (i - groupStart < targetSize) {
+					targetStart = groupStart;
+					targetSize = i - groupStart;
 				}
+				groupStart = i;
 			}
 		}
+		return targetStart;
 	}
 
 	private void selectNextAlternative() {
-		Node<?> node = alternatives.pop();
-		while (node == REWIND_MARKER) {  // NOPMD: references to REWIND_MARKER are used as markers
-			labelGroupStack.pop();
-			node = alternatives.pop();
+		if (!skipExhaustedAlternatives()) {
+			throw new NoSuchElementException();
+		}
+		final int node = popAlternative();
+		final int offset = (searchDepth - 1) * frontierCount;
+		for (int i = 0; i < frontierCount; ++i) {
+			labelling[frontier[i]] = savedLabels[offset + i];
 		}
-		labelGroups = HashMultimap.create(labelGroupStack.peek());
-		buildNodeLabelsMap();
-		final Label oldLabel = labelling.get(node);
-		final Label newLabel = labelFactory.create();
-		labelGroups.remove(oldLabel, node);
-		labelGroups.put(newLabel, node);
+		if (pruner != null) {
+			pruner.alternativeSelected(searchDepth - 1, node);
+		}
+		// The label must only depend on the position in the search
+		// tree. Otherwise, labellings of different graphs which
+		// follow equivalent search paths would not be comparable:
+		labelling[node] = labelFactory.createGenerated(searchDepth);
+		listener.searchNodeVisited(searchDepth);
+		budgetMonitor.searchNodeVisited();
 	}
 
-	private int estimateGraphDiameter() {
-		// A rough estimate is enough if the graph only has
-		// a few nodes:
-		return nodes.size() -1 ;
+	/**
+	 * Removes the markers of exhausted search levels and the
+	 * pruned alternatives from the top of the stack.
+	 *
+	 * @return true if an alternative is left
+	 */
+	private boolean skipExhaustedAlternatives() {
+		while (alternativeCount > 0) {
+			final int node = alternatives[alternativeCount - 1];
+			if (node == REWIND_MARKER) {
+				searchDepth -= 1;
+				listener.backtracked();
+			} else if (pruner == null || !pruner.isPruned(searchDepth - 1, node)) {
+				return true;
+			}
+			alternativeCount -= 1;
+		}
+		return false;
+	}
+
+	private void pushAlternative(final int node) {
+		if (alternativeCount == alternatives.length) {
+			alternatives = workspace.getAlternatives(alternativeCount + 1);
+		}
+		alternatives[alternativeCount] = node;
+		alternativeCount += 1;
+	}
+
+	private int popAlternative() {
+		if (alternativeCount == 0) {
+			throw new NoSuchElementException();
+		}
+		alternativeCount -= 1;
+		return alternatives[alternativeCount];
 	}
 
-	private static int getNodeHashCode(final Node<?> node) {
-		if (node.hasName()) {
-			return node.getName().hashCode();
+	private long startTimer() {
+		if (timed) {
+			return System.nanoTime();
 		}
 		return 0;
 	}
 
+	private void stopTimer(final LabellingListener.Phase phase, final long startTime) {
+		if (timed) {
+			listener.phaseCompleted(phase, System.nanoTime() - startTime);
+		}
+	}
+
+	private int estimateGraphDiameter() {
+		// A rough estimate is enough if the graph only has
+		// a few nodes:
+		return nodeCount -1 ;
+	}
+
 }
@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Defines where the adjacency structure of a frozen graph is
+ * stored.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public enum GraphStorage {
+
+	/**
+	 * The adjacency structure is stored in int arrays on the
+	 * Java heap.
+	 */
+	HEAP,
+
+	/**
+	 * The adjacency structure, the node name ids and the edge
+	 * name ids are stored in direct buffers outside of the Java
+	 * heap. Only the adjacency structure is moved off the heap,
+	 * so heap usage does not stay flat. The distinct names and,
+	 * while the graph is built, a hash map from the names to their
+	 * ids remain on the heap. If most vertices have distinct
+	 * names, they grow linearly with the number of vertices.
+	 * Labelling a graph also allocates work arrays and copies of
+	 * the labels on the heap whose size is linear in the number
+	 * of nodes. Off-heap storage is therefore useful for graphs
+	 * with many connections per node. It is not subject to
+	 * garbage collection and does not count towards the maximum
+	 * heap size. Access is slightly slower than with {@link #HEAP}.
+	 * The direct memory is released when the graph is garbage
+	 * collected. Its maximum size is controlled with
+	 * {@code -XX:MaxDirectMemorySize}.
+	 */
+	OFF_HEAP
+
+}
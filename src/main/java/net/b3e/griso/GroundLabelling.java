@@ -0,0 +1,181 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Fast path for graphs in which all vertices have unique names
+ * (see {@link CompactGraph#hasUniqueVertexNames()}). In such graphs
+ * an isomorphism must map each vertex to the vertex with the same
+ * name. Vertices can therefore be labelled with the hash codes of
+ * their names and nodes representing named edges with a value
+ * computed from their name and the names of their end vertices.
+ * No refinement or search is needed.
+ *
+ * The key of each node is combined into an order-independent
+ * hash of all nodes and connections. Isomorph graphs always have
+ * equal hashes. If the hashes are equal, the labellings created
+ * from the keys are compared (see
+ * {@link IsomorphismCheck#compareGround(GroundLabelling, GroundLabelling)}).
+ * Since hash codes of different names may collide, a failed match
+ * does not prove that the graphs are not isomorph. The labeller
+ * has to decide in this case.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class GroundLabelling {
+
+	private static final long PRIME = 31;
+
+	private final Label.Factory labelFactory = new Label.Factory();
+
+	private final CompactGraph graph;
+	private final int[] keys;
+	private final long hash;
+
+	private volatile Labelling labelling;
+	private volatile boolean labellingComputed;
+
+	private GroundLabelling(final CompactGraph graph) {
+		this.graph = graph;
+		final int nodeCount = graph.getNodeCount();
+		keys = new int[nodeCount];
+		for (int node = 0; node < nodeCount; ++node) {
+			keys[node] = graph.getNodeHashCode(node);
+		}
+		for (int node = 0; node < nodeCount; ++node) {
+			if (graph.isEdgeNode(node)) {
+				keys[node] = computeEdgeNodeKey(node);
+			}
+		}
+		hash = computeHash();
+	}
+
+	/**
+	 * Creates a ground labelling for a graph.
+	 *
+	 * @param graph to label
+	 * @return a ground labelling or null if the vertex names
+	 *         of the graph are not unique
+	 */
+	public static GroundLabelling create(final CompactGraph graph) {
+		if (!graph.hasUniqueVertexNames()) {
+			return null;
+		}
+		return new GroundLabelling(graph);
+	}
+
+	/**
+	 * Returns an order-independent hash of the nodes and
+	 * connections of the graph.
+	 *
+	 * @return the hash of the graph
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Returns a labelling in which each node is labelled by its
+	 * key. Nodes with equal keys (such as parallel named edges)
+	 * are numbered.
+	 *
+	 * @return the labelling or null if the keys cannot be
+	 *         turned into unique labels
+	 */
+	public Labelling getLabelling() {
+		if (!labellingComputed) {
+			labelling = createLabelling();
+			labellingComputed = true;
+		}
+		return labelling;
+	}
+
+	/**
+	 * Computes the key of a node representing a named edge in
+	 * the same way as the first refinement round of the
+	 * {@link GraphLabeller}.
+	 */
+	private int computeEdgeNodeKey(final int node) {
+		int key = graph.getNodeHashCode(node);
+		for (int i = 0; i < graph.getSuccessorCount(node); ++i) {
+			key += GraphLabeller.CONNECTION_TO * graph.getSuccessorMultiplicity(node, i)
+					* Label.hashCode(labelFactory.create(keys[graph.getSuccessor(node, i)]));
+		}
+		for (int i = 0; i < graph.getPredecessorCount(node); ++i) {
+			key += GraphLabeller.CONNECTION_FROM * graph.getPredecessorMultiplicity(node, i)
+					* Label.hashCode(labelFactory.create(keys[graph.getPredecessor(node, i)]));
+		}
+		return key;
+	}
+
+	private long computeHash() {
+		long sum = 0;
+		for (int node = 0; node < keys.length; ++node) {
+			sum += mix(keys[node]);
+			for (int i = 0; i < graph.getSuccessorCount(node); ++i) {
+				long value = ((long) keys[node] << Integer.SIZE)
+						^ (keys[graph.getSuccessor(node, i)] & 0xffffffffL);
+				if (graph.hasLabelledConnections()) {
+					value = value * PRIME + graph.getSuccessorEdgeColour(node, i);
+				}
+				sum += graph.getSuccessorMultiplicity(node, i) * mix(value);
+			}
+		}
+		return sum;
+	}
+
+	private Labelling createLabelling() {
+		final int nodeCount = keys.length;
+		final long[] labels = new long[nodeCount];
+		final int[] nodes = new int[nodeCount];
+		for (int node = 0; node < nodeCount; ++node) {
+			labels[node] = labelFactory.create(keys[node]);
+			nodes[node] = node;
+		}
+		Label.sortByLabel(nodes, 0, nodeCount, labels);
+		int duplicate = 0;
+		for (int i = 1; i < nodeCount; ++i) {
+			if (keys[nodes[i]] == keys[nodes[i - 1]]) {
+				duplicate += 1;
+				labels[nodes[i]] = labelFactory.createGenerated(keys[nodes[i]] + duplicate);
+			} else {
+				duplicate = 0;
+			}
+		}
+
+		final Labelling result = new Labelling(graph, labels, LabellingOptions.DEFAULT);
+		final int[] nodesByLabel = result.getNodesByLabel();
+		for (int i = 1; i < nodeCount; ++i) {
+			if (labels[nodesByLabel[i]] == labels[nodesByLabel[i - 1]]) {
+				return null;
+			}
+		}
+		return result;
+	}
+
+	private static long mix(final long value) {
+		// Finalisation step of MurmurHash3:
+		long result = value;
+		result ^= result >>> 33;
+		result *= 0xff51afd7ed558ccdL;
+		result ^= result >>> 33;
+		result *= 0xc4ceb9fe1a85ec53L;
+		result ^= result >>> 33;
+		return result;
+	}
+
+}
@@ -0,0 +1,486 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares consecutive versions of a graph which changes by small
+ * deltas. Vertices and named directed edges are added and removed
+ * between versions. When a version is committed, only the colours
+ * of the vertices which can be affected by the delta are refined
+ * again: in round {@code r} these are the end vertices of changed
+ * edges and the neighbours of vertices whose colour changed in
+ * round {@code r - 1}. Changes which do not alter a colour stop
+ * spreading.
+ *
+ * The refinement uses the same colour function as
+ * {@link GraphLabeller} on graphs whose named edges are
+ * represented as {@link EdgeRepresentation#LABELLED_CONNECTIONS}
+ * for a fixed number of rounds. A version is compared with the
+ * previous one by an order-independent hash of the colours of its
+ * vertices. Different hashes prove that the versions are not
+ * isomorph. Equal hashes only indicate that they might be, and
+ * {@link #build()} can be used to verify this with an exact check.
+ *
+ * @param <V> Type of vertex names
+ * @param <E> Type of edge names
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class IncrementalRefinement<V, E> {
+
+	/**
+	 * Default number of refinement rounds.
+	 */
+	public static final int DEFAULT_ROUNDS = 4;
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int[] NO_CONNECTIONS = new int[0];
+
+	private final Label.Factory labelFactory = new Label.Factory();
+	private final int rounds;
+
+	private final List<V> vertexNames = new ArrayList<>();
+	private final List<E> edgeNames = new ArrayList<>();
+	private final Map<E, Integer> edgeNameIds = new HashMap<>();
+
+	private int vertexCount;
+	private int liveVertexCount;
+	private int edgeCount;
+	private final BitSet removedVertices = new BitSet();
+
+	private int[][] successors = new int[INITIAL_CAPACITY][];
+	private int[][] successorEdges = new int[INITIAL_CAPACITY][];
+	private int[] successorCounts = new int[INITIAL_CAPACITY];
+	private int[][] predecessors = new int[INITIAL_CAPACITY][];
+	private int[][] predecessorEdges = new int[INITIAL_CAPACITY][];
+	private int[] predecessorCounts = new int[INITIAL_CAPACITY];
+
+	/*
+	 * colours[r][v] holds the hash code of the label of vertex v
+	 * after r refinement rounds.
+	 */
+	private final int[][] colours;
+	private final BitSet countedVertices = new BitSet();
+	private long hash;
+
+	private int[] changedVertices = new int[INITIAL_CAPACITY];
+	private int changedVertexCount;
+	private final BitSet changed = new BitSet();
+	private boolean modified;
+
+	private int[] marks = new int[0];
+	private int stamp;
+	private int[] candidates;
+	private int candidateCount;
+	private int[] changes;
+	private int[] previousChanges;
+
+	private int committedVertexCount;
+	private int committedLiveVertexCount;
+	private int committedEdgeCount;
+	private long committedHash;
+	private int recomputedCount;
+
+	public IncrementalRefinement() {
+		this(DEFAULT_ROUNDS);
+	}
+
+	/**
+	 * Creates an incremental refinement with the given
+	 * number of rounds.
+	 *
+	 * @param rounds number of refinement rounds
+	 * @throws IllegalArgumentException if {@code rounds} is negative
+	 */
+	public IncrementalRefinement(final int rounds) {
+		if (rounds < 0) {
+			throw new IllegalArgumentException("rounds must not be negative");
+		}
+		this.rounds = rounds;
+		colours = new int[rounds + 1][INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Adds a named vertex.
+	 *
+	 * @param vertexName of the vertex. May be null.
+	 * @return the index of the vertex
+	 */
+	public int addVertex(final V vertexName) {
+		ensureVertexCapacity(vertexCount + 1);
+		final int vertex = vertexCount;
+		vertexNames.add(vertexName);
+		successors[vertex] = NO_CONNECTIONS;
+		successorEdges[vertex] = NO_CONNECTIONS;
+		predecessors[vertex] = NO_CONNECTIONS;
+		predecessorEdges[vertex] = NO_CONNECTIONS;
+		vertexCount += 1;
+		liveVertexCount += 1;
+		markChanged(vertex);
+		return vertex;
+	}
+
+	/**
+	 * Removes a vertex. Its index is not reused.
+	 *
+	 * @param vertex index of the vertex
+	 * @throws IllegalArgumentException if {@code vertex} is not
+	 *         a vertex index or if the vertex still has edges
+	 */
+	public void removeVertex(final int vertex) {
+		checkVertex(vertex);
+		if (successorCounts[vertex] > 0 || predecessorCounts[vertex] > 0) {
+			throw new IllegalArgumentException("Vertex " + vertex + " still has edges");
+		}
+		removedVertices.set(vertex);
+		liveVertexCount -= 1;
+		markChanged(vertex);
+	}
+
+	/**
+	 * Adds a directed edge.
+	 *
+	 * @param fromVertex index of the vertex where the edge starts from
+	 * @param toVertex index of the vertex at which the edge ends
+	 * @param edgeName of the edge. May be null.
+	 * @throws IllegalArgumentException if {@code fromVertex} or
+	 *         {@code toVertex} is not a vertex index
+	 */
+	public void addDirectedEdge(final int fromVertex, final int toVertex, final E edgeName) {
+		checkVertex(fromVertex);
+		checkVertex(toVertex);
+		final int edge = getEdgeNameId(edgeName);
+		addConnection(successors, successorEdges, successorCounts, fromVertex, toVertex, edge);
+		addConnection(predecessors, predecessorEdges, predecessorCounts, toVertex, fromVertex, edge);
+		edgeCount += 1;
+		markChanged(fromVertex);
+		markChanged(toVertex);
+	}
+
+	/**
+	 * Removes a directed edge. If the edge was added more than
+	 * once, only one of the edges is removed.
+	 *
+	 * @param fromVertex index of the vertex where the edge starts from
+	 * @param toVertex index of the vertex at which the edge ends
+	 * @param edgeName of the edge. May be null.
+	 * @throws IllegalArgumentException if the edge does not exist
+	 */
+	public void removeDirectedEdge(final int fromVertex, final int toVertex, final E edgeName) {
+		checkVertex(fromVertex);
+		checkVertex(toVertex);
+		final Integer edge = edgeNameIds.get(edgeName);
+		if (edge == null || !removeConnection(successors, successorEdges, successorCounts,
+				fromVertex, toVertex, edge.intValue())) {
+			throw new IllegalArgumentException("No edge from " + fromVertex + " to "
+					+ toVertex + " exists");
+		}
+		removeConnection(predecessors, predecessorEdges, predecessorCounts, toVertex,
+				fromVertex, edge.intValue());
+		edgeCount -= 1;
+		markChanged(fromVertex);
+		markChanged(toVertex);
+	}
+
+	/**
+	 * Refines the colours of the vertices affected by the changes
+	 * since the last commit and compares the new version with the
+	 * previous one. The first version is compared with the
+	 * empty graph.
+	 *
+	 * @return {@link IsomorphismResult#ISOMORPHIC} if the graph
+	 *         was not modified, {@link IsomorphismResult#NOT_ISOMORPHIC}
+	 *         if the versions differ and
+	 *         {@link IsomorphismResult#UNKNOWN} if the versions cannot
+	 *         be distinguished by their colours
+	 */
+	public IsomorphismResult commit() {
+		if (!modified) {
+			recomputedCount = 0;
+			return IsomorphismResult.ISOMORPHIC;
+		}
+		refineChangedVertices();
+
+		final IsomorphismResult result;
+		if (liveVertexCount != committedLiveVertexCount || edgeCount != committedEdgeCount
+				|| hash != committedHash) {
+			result = IsomorphismResult.NOT_ISOMORPHIC;
+		} else {
+			result = IsomorphismResult.UNKNOWN;
+		}
+		committedVertexCount = vertexCount;
+		committedLiveVertexCount = liveVertexCount;
+		committedEdgeCount = edgeCount;
+		committedHash = hash;
+		for (int i = 0; i < changedVertexCount; ++i) {
+			changed.clear(changedVertices[i]);
+		}
+		changedVertexCount = 0;
+		modified = false;
+		return result;
+	}
+
+	/**
+	 * Returns an order-independent hash of the colours of the
+	 * vertices of the last committed version.
+	 *
+	 * @return the hash of the committed version
+	 */
+	public long getHash() {
+		return committedHash;
+	}
+
+	/**
+	 * Returns the number of colours which were computed again
+	 * during the last commit. Each vertex is counted once per
+	 * round.
+	 *
+	 * @return number of recomputed colours
+	 */
+	public int getRecomputedCount() {
+		return recomputedCount;
+	}
+
+	/**
+	 * Creates a frozen graph from the current version. Removed
+	 * vertices are left out, so the vertex indices of the frozen
+	 * graph may differ from the indices of this refinement.
+	 *
+	 * @return a frozen graph with labelled connections
+	 */
+	public FrozenGraph<Integer, V, E> build() {
+		final GraphBuilder<V, E> builder = new GraphBuilder<>(liveVertexCount, edgeCount,
+				EdgeRepresentation.LABELLED_CONNECTIONS);
+		final int[] indices = new int[vertexCount];
+		for (int vertex = 0; vertex < vertexCount; ++vertex) {
+			if (!removedVertices.get(vertex)) {
+				indices[vertex] = builder.addVertex(vertexNames.get(vertex));
+			}
+		}
+		for (int vertex = 0; vertex < vertexCount; ++vertex) {
+			for (int i = 0; i < successorCounts[vertex]; ++i) {
+				builder.addDirectedEdge(indices[vertex], indices[successors[vertex][i]],
+						edgeNames.get(successorEdges[vertex][i]));
+			}
+		}
+		return builder.build();
+	}
+
+	private void refineChangedVertices() {
+		recomputedCount = 0;
+		if (marks.length < vertexCount) {
+			marks = new int[vertexCount];
+			candidates = new int[vertexCount];
+			changes = new int[vertexCount];
+			previousChanges = new int[vertexCount];
+		}
+		for (int i = 0; i < changedVertexCount; ++i) {
+			final int vertex = changedVertices[i];
+			if (removedVertices.get(vertex) && countedVertices.get(vertex)) {
+				hash -= Label.mix(colours[rounds][vertex]);
+				countedVertices.clear(vertex);
+			}
+		}
+
+		// Round 0 only depends on the names of the vertices:
+		int previousChangeCount = 0;
+		for (int vertex = committedVertexCount; vertex < vertexCount; ++vertex) {
+			colours[0][vertex] = Label.hashCode(labelFactory.create(
+					hashCode(vertexNames.get(vertex))));
+			if (!removedVertices.get(vertex)) {
+				previousChanges[previousChangeCount] = vertex;
+				previousChangeCount += 1;
+				if (rounds == 0) {
+					updateHash(vertex, colours[0][vertex]);
+				}
+			}
+		}
+		recomputedCount += previousChangeCount;
+
+		for (int round = 1; round <= rounds; ++round) {
+			collectCandidates(previousChangeCount);
+			int changeCount = 0;
+			final int[] previous = colours[round - 1];
+			final int[] current = colours[round];
+			for (int i = 0; i < candidateCount; ++i) {
+				final int vertex = candidates[i];
+				final int colour = computeColour(vertex, previous);
+				if (vertex >= committedVertexCount || colour != current[vertex]) {
+					changes[changeCount] = vertex;
+					changeCount += 1;
+				}
+				if (round == rounds) {
+					updateHash(vertex, colour);
+				}
+				current[vertex] = colour;
+			}
+			recomputedCount += candidateCount;
+			final int[] tmp = previousChanges;
+			previousChanges = changes;
+			changes = tmp;
+			previousChangeCount = changeCount;
+		}
+	}
+
+	/**
+	 * Collects the vertices whose colour must be computed again:
+	 * the vertices whose edges changed and the neighbours of the
+	 * vertices whose colour changed in the previous round.
+	 */
+	private void collectCandidates(final int previousChangeCount) {
+		stamp += 1;
+		candidateCount = 0;
+		for (int i = 0; i < changedVertexCount; ++i) {
+			addCandidate(changedVertices[i]);
+		}
+		for (int i = 0; i < previousChangeCount; ++i) {
+			final int vertex = previousChanges[i];
+			for (int j = 0; j < successorCounts[vertex]; ++j) {
+				addCandidate(successors[vertex][j]);
+			}
+			for (int j = 0; j < predecessorCounts[vertex]; ++j) {
+				addCandidate(predecessors[vertex][j]);
+			}
+		}
+	}
+
+	private void addCandidate(final int vertex) {
+		if (marks[vertex] != stamp && !removedVertices.get(vertex)) {
+			marks[vertex] = stamp;
+			candidates[candidateCount] = vertex;
+			candidateCount += 1;
+		}
+	}
+
+	/**
+	 * Replaces the final colour of a vertex in the hash.
+	 */
+	private void updateHash(final int vertex, final int colour) {
+		if (countedVertices.get(vertex)) {
+			hash -= Label.mix(colours[rounds][vertex]);
+		}
+		hash += Label.mix(colour);
+		countedVertices.set(vertex);
+	}
+
+	private int computeColour(final int vertex, final int[] previous) {
+		int value = hashCode(vertexNames.get(vertex));
+		for (int i = 0; i < successorCounts[vertex]; ++i) {
+			value += GraphLabeller.CONNECTION_TO * GraphLabeller.combine(
+					computeEdgeColour(successorEdges[vertex][i]), previous[successors[vertex][i]]);
+		}
+		for (int i = 0; i < predecessorCounts[vertex]; ++i) {
+			value += GraphLabeller.CONNECTION_FROM * GraphLabeller.combine(
+					computeEdgeColour(predecessorEdges[vertex][i]),
+					previous[predecessors[vertex][i]]);
+		}
+		return Label.hashCode(labelFactory.create(value));
+	}
+
+	private int computeEdgeColour(final int edge) {
+		return CompactGraph.computeEdgeColour(hashCode(edgeNames.get(edge)),
+				ConnectionList.DIRECTED);
+	}
+
+	private int getEdgeNameId(final E edgeName) {
+		final Integer id = edgeNameIds.get(edgeName);
+		if (id != null) {
+			return id.intValue();
+		}
+		edgeNames.add(edgeName);
+		edgeNameIds.put(edgeName, Integer.valueOf(edgeNames.size() - 1));
+		return edgeNames.size() - 1;
+	}
+
+	private void markChanged(final int vertex) {
+		modified = true;
+		if (changed.get(vertex)) {
+			return;
+		}
+		changed.set(vertex);
+		if (changedVertexCount == changedVertices.length) {
+			changedVertices = Arrays.copyOf(changedVertices, 2 * changedVertexCount);
+		}
+		changedVertices[changedVertexCount] = vertex;
+		changedVertexCount += 1;
+	}
+
+	private void checkVertex(final int vertex) {
+		if (vertex < 0 || vertex >= vertexCount || removedVertices.get(vertex)) {
+			throw new IllegalArgumentException("No vertex with index " + vertex + " exists");
+		}
+	}
+
+	private void ensureVertexCapacity(final int capacity) {
+		if (capacity > successorCounts.length) {
+			final int newCapacity = Math.max(capacity, 2 * successorCounts.length);
+			successors = Arrays.copyOf(successors, newCapacity);
+			successorEdges = Arrays.copyOf(successorEdges, newCapacity);
+			successorCounts = Arrays.copyOf(successorCounts, newCapacity);
+			predecessors = Arrays.copyOf(predecessors, newCapacity);
+			predecessorEdges = Arrays.copyOf(predecessorEdges, newCapacity);
+			predecessorCounts = Arrays.copyOf(predecessorCounts, newCapacity);
+			for (int round = 0; round <= rounds; ++round) {
+				colours[round] = Arrays.copyOf(colours[round], newCapacity);
+			}
+		}
+	}
+
+	// NO CHECKSTYLE ParameterNumber FOR 3 LINES:
+	private static void addConnection(final int[][] targets, final int[][] edges,
+			final int[] counts, final int vertex, final int target, final int edge) {
+		final int count = counts[vertex];
+		if (count == targets[vertex].length) {
+			final int newLength = Math.max(2, 2 * count);
+			targets[vertex] = Arrays.copyOf(targets[vertex], newLength);
+			edges[vertex] = Arrays.copyOf(edges[vertex], newLength);
+		}
+		targets[vertex][count] = target;
+		edges[vertex][count] = edge;
+		counts[vertex] = count + 1;
+	}
+
+	// NO CHECKSTYLE ParameterNumber FOR 3 LINES:
+	private static boolean removeConnection(final int[][] targets, final int[][] edges,
+			final int[] counts, final int vertex, final int target, final int edge) {
+		final int last = counts[vertex] - 1;
+		for (int i = 0; i <= last; ++i) {
+			if (targets[vertex][i] == target && edges[vertex][i] == edge) {
+				targets[vertex][i] = targets[vertex][last];
+				edges[vertex][i] = edges[vertex][last];
+				counts[vertex] = last;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int hashCode(final Object name) {
+		if (name == null) {
+			return 0;
+		}
+		return name.hashCode();
+	}
+
+}
@@ -0,0 +1,231 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A fixed-size array of ints which is either stored on the heap
+ * or in direct buffers (see {@link GraphStorage}). New arrays are
+ * filled with zeros. Arrays can also be mapped into files.
+ *
+ * @author Christoph Böhme
+ *
+ */
+abstract class IntArray {
+
+	private static final int INT_BYTES = Integer.SIZE / Byte.SIZE;
+
+	/**
+	 * Creates a new array.
+	 *
+	 * @param size of the array
+	 * @param storage where the array is stored
+	 * @return an array filled with zeros
+	 */
+	public static IntArray allocate(final int size, final GraphStorage storage) {
+		if (storage == GraphStorage.OFF_HEAP) {
+			return new DirectIntArray(size);
+		}
+		return new HeapIntArray(new int[size]);
+	}
+
+	/**
+	 * Maps a file into memory as an int array. The file is
+	 * extended if it is smaller than the array. Changes to the
+	 * array are written to the file. The values are stored in
+	 * big-endian byte order as written by
+	 * {@link java.io.DataOutputStream}. The array is treated as
+	 * {@link GraphStorage#OFF_HEAP}, copies are therefore not
+	 * mapped.
+	 *
+	 * @param channel of the file. Must be open for reading and
+	 *        writing.
+	 * @param size of the array
+	 * @return an array backed by the file
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public static IntArray map(final FileChannel channel, final int size) throws IOException {
+		final IntBuffer[] chunks = new IntBuffer[DirectIntArray.getChunkCount(size)];
+		for (int i = 0; i < chunks.length; ++i) {
+			final long position = (long) i * DirectIntArray.CHUNK_SIZE * INT_BYTES;
+			chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position,
+					DirectIntArray.getChunkSize(size, i) * INT_BYTES).asIntBuffer();
+		}
+		return new DirectIntArray(size, chunks);
+	}
+
+	public abstract int size();
+
+	public abstract int get(int index);
+
+	public abstract void set(int index, int value);
+
+	public abstract GraphStorage getStorage();
+
+	/**
+	 * Creates a copy of the array with a different size. The
+	 * copy uses the same storage as this array. Elements beyond
+	 * the size of this array are set to zero.
+	 *
+	 * @param newSize size of the copy
+	 * @return a new array
+	 */
+	public IntArray copyOf(final int newSize) {
+		final IntArray copy = allocate(newSize, getStorage());
+		final int length = Math.min(size(), newSize);
+		for (int i = 0; i < length; ++i) {
+			copy.set(i, get(i));
+		}
+		return copy;
+	}
+
+	/**
+	 * Copies a range of elements from another array into
+	 * this array.
+	 *
+	 * @param position in this array
+	 * @param source array to copy from
+	 * @param sourcePosition first element to copy
+	 * @param length number of elements to copy
+	 */
+	public void copyFrom(final int position, final int[] source, final int sourcePosition,
+			final int length) {
+		for (int i = 0; i < length; ++i) {
+			set(position + i, source[sourcePosition + i]);
+		}
+	}
+
+	public void fill(final int from, final int to, final int value) {
+		for (int i = from; i < to; ++i) {
+			set(i, value);
+		}
+	}
+
+	/**
+	 * Array stored on the Java heap.
+	 */
+	private static final class HeapIntArray extends IntArray {
+
+		private final int[] values;
+
+		HeapIntArray(final int[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public int get(final int index) {
+			return values[index];
+		}
+
+		@Override
+		public void set(final int index, final int value) {
+			values[index] = value;
+		}
+
+		@Override
+		public GraphStorage getStorage() {
+			return GraphStorage.HEAP;
+		}
+
+		@Override
+		public IntArray copyOf(final int newSize) {
+			return new HeapIntArray(Arrays.copyOf(values, newSize));
+		}
+
+		@Override
+		public void copyFrom(final int position, final int[] source, final int sourcePosition,
+				final int length) {
+			System.arraycopy(source, sourcePosition, values, position, length);
+		}
+
+		@Override
+		public void fill(final int from, final int to, final int value) {
+			Arrays.fill(values, from, to, value);
+		}
+
+	}
+
+	/**
+	 * Array stored in direct or mapped buffers. A single buffer
+	 * cannot hold more than 2 GB. The array is therefore split
+	 * into chunks.
+	 */
+	private static final class DirectIntArray extends IntArray {
+
+		private static final int CHUNK_BITS = 26;
+		private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+		private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+		private final int size;
+		private final IntBuffer[] chunks;
+
+		DirectIntArray(final int size) {
+			this.size = size;
+			chunks = new IntBuffer[getChunkCount(size)];
+			for (int i = 0; i < chunks.length; ++i) {
+				chunks[i] = ByteBuffer.allocateDirect(getChunkSize(size, i) * INT_BYTES)
+						.order(ByteOrder.nativeOrder())
+						.asIntBuffer();
+			}
+		}
+
+		DirectIntArray(final int size, final IntBuffer[] chunks) {
+			this.size = size;
+			this.chunks = chunks;
+		}
+
+		static int getChunkCount(final int size) {
+			return (size + CHUNK_MASK) >>> CHUNK_BITS;
+		}
+
+		static int getChunkSize(final int size, final int chunk) {
+			return Math.min(CHUNK_SIZE, size - chunk * CHUNK_SIZE);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public int get(final int index) {
+			return chunks[index >>> CHUNK_BITS].get(index & CHUNK_MASK);
+		}
+
+		@Override
+		public void set(final int index, final int value) {
+			chunks[index >>> CHUNK_BITS].put(index & CHUNK_MASK, value);
+		}
+
+		@Override
+		public GraphStorage getStorage() {
+			return GraphStorage.OFF_HEAP;
+		}
+
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Performs a single isomorphism check. The class bundles the
+ * options, the listener and the budget of the check and implements the
+ * comparison of labellings which is shared by {@link Graph} and
+ * {@link FrozenGraph}.
+ *
+ * A graph is isomorph to another graph if its first canonical
+ * labelling matches any of the canonical labellings of the
+ * other graph.
+ *
+ * The labellers share the {@link LabellerWorkspace} of the
+ * current thread so that comparing many small graphs does not
+ * allocate new buffers for each labeller.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class IsomorphismCheck {
+
+	private final LabellingOptions options;
+	private final LabellingListener listener;
+	private final BudgetMonitor budgetMonitor;
+	private final boolean timed;
+
+	IsomorphismCheck(final LabellingOptions options, final SearchBudget budget,
+			final LabellingListener listener) {
+		this.options = options;
+		this.listener = listener;
+		budgetMonitor = new BudgetMonitor(budget);
+		timed = listener != NoOpLabellingListener.INSTANCE;  // NOPMD: the no-op listener is a singleton
+	}
+
+	public LabellingOptions getOptions() {
+		return options;
+	}
+
+	/**
+	 * Computes the first canonical labelling of a graph.
+	 *
+	 * @param graph to label. Must not be empty.
+	 * @return the first canonical labelling
+	 * @throws BudgetExhaustedException if the budget is exhausted
+	 */
+	public Labelling label(final CompactGraph graph) {
+		return label(graph, null);
+	}
+
+	/**
+	 * Computes the first canonical labelling of a coloured graph.
+	 *
+	 * @param graph to label. Must not be empty.
+	 * @param nodeColours initial colours of the nodes. May be null.
+	 * @return the first canonical labelling
+	 * @throws BudgetExhaustedException if the budget is exhausted
+	 */
+	public Labelling label(final CompactGraph graph, final int[] nodeColours) {
+		final LabellerWorkspace workspace = LabellerWorkspace.acquire();
+		try {
+			return new GraphLabeller(graph, nodeColours, options, listener, budgetMonitor,
+					workspace).next();
+		} finally {
+			workspace.release();
+		}
+	}
+
+	/**
+	 * Checks whether {@code labelling} matches any canonical
+	 * labelling of {@code otherGraph}.
+	 *
+	 * @param labelling of the first graph
+	 * @param otherGraph the graph to compare with
+	 * @return true if a matching labelling was found
+	 * @throws BudgetExhaustedException if the budget is exhausted
+	 */
+	public boolean matches(final Labelling labelling, final CompactGraph otherGraph) {
+		return matches(labelling, otherGraph, null);
+	}
+
+	/**
+	 * Checks whether {@code labelling} matches any canonical
+	 * labelling of the coloured graph {@code otherGraph}.
+	 *
+	 * @param labelling of the first graph
+	 * @param otherGraph the graph to compare with
+	 * @param otherNodeColours initial colours of the nodes of
+	 *        {@code otherGraph}. May be null.
+	 * @return true if a matching labelling was found
+	 * @throws BudgetExhaustedException if the budget is exhausted
+	 */
+	public boolean matches(final Labelling labelling, final CompactGraph otherGraph,
+			final int[] otherNodeColours) {
+		final LabellerWorkspace workspace = LabellerWorkspace.acquire();
+		try {
+			return matches(labelling, new GraphLabeller(otherGraph, otherNodeColours, options,
+					listener, budgetMonitor, workspace));
+		} finally {
+			workspace.release();
+		}
+	}
+
+	private boolean matches(final Labelling labelling, final GraphLabeller otherLabeller) {
+		while (otherLabeller.hasNext()) {
+			final Labelling otherLabelling = otherLabeller.next();
+			long startTime = 0;
+			if (timed) {
+				startTime = System.nanoTime();
+			}
+			final boolean match = labelling.matches(otherLabelling);
+			if (timed) {
+				listener.phaseCompleted(LabellingListener.Phase.COMPARISON,
+						System.nanoTime() - startTime);
+			}
+			listener.labellingsCompared(match);
+			if (match) {
+				return true;
+			}
+			budgetMonitor.check();
+		}
+		return false;
+	}
+
+	/**
+	 * Compares two graphs using their ground labellings. Graphs
+	 * of which only one has unique vertex names are not isomorph.
+	 *
+	 * @param ground labelling of the first graph. May be null.
+	 * @param otherGround labelling of the second graph. May be null.
+	 * @return {@link IsomorphismResult#UNKNOWN} if the graphs need
+	 *         to be compared with the labeller
+	 * @see GroundLabelling
+	 */
+	public IsomorphismResult compareGround(final GroundLabelling ground,
+			final GroundLabelling otherGround) {
+		if (ground == null && otherGround == null) {
+			return IsomorphismResult.UNKNOWN;
+		}
+		if (ground == null || otherGround == null || ground.getHash() != otherGround.getHash()) {
+			return IsomorphismResult.NOT_ISOMORPHIC;
+		}
+		final Labelling labelling = ground.getLabelling();
+		final Labelling otherLabelling = otherGround.getLabelling();
+		if (labelling == null || otherLabelling == null) {
+			return IsomorphismResult.UNKNOWN;
+		}
+		long startTime = 0;
+		if (timed) {
+			startTime = System.nanoTime();
+		}
+		final boolean match = labelling.matches(otherLabelling);
+		if (timed) {
+			listener.phaseCompleted(LabellingListener.Phase.COMPARISON,
+					System.nanoTime() - startTime);
+		}
+		listener.labellingsCompared(match);
+		if (match) {
+			return IsomorphismResult.ISOMORPHIC;
+		}
+		return IsomorphismResult.UNKNOWN;
+	}
+
+	/**
+	 * Reports the result of the check to the listener.
+	 *
+	 * @param isomorphic the result of the check
+	 * @return the result as {@code IsomorphismResult}
+	 */
+	public IsomorphismResult complete(final boolean isomorphic) {
+		final IsomorphismResult result;
+		if (isomorphic) {
+			result = IsomorphismResult.ISOMORPHIC;
+		} else {
+			result = IsomorphismResult.NOT_ISOMORPHIC;
+		}
+		listener.comparisonCompleted(result);
+		return result;
+	}
+
+	/**
+	 * Reports that the check was aborted.
+	 *
+	 * @return {@link IsomorphismResult#UNKNOWN}
+	 */
+	public IsomorphismResult abort() {
+		listener.comparisonCompleted(IsomorphismResult.UNKNOWN);
+		return IsomorphismResult.UNKNOWN;
+	}
+
+}
@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Result of an isomorphism check with a {@link SearchBudget}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public enum IsomorphismResult {
+
+	/** The graphs are isomorph. */
+	ISOMORPHIC,
+
+	/** The graphs are not isomorph. */
+	NOT_ISOMORPHIC,
+
+	/**
+	 * The budget was exhausted or the thread was interrupted
+	 * before the check could be completed.
+	 */
+	UNKNOWN
+
+}
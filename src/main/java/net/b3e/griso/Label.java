@@ -16,89 +16,188 @@
 package net.b3e.griso;
 
 /**
- * A label
+ * Helper methods for working with labels. Labels are not
+ * represented by objects but are packed into {@code long}
+ * values: the lower 32 bits hold the value of the label and
+ * bit 32 stores whether the label was generated or created
+ * from a user-provided value. Bit 33 marks ground labels which
+ * are assigned to nodes that are fixed before refinement starts.
+ * Ground labels never collide with other labels. Labels can be
+ * compared with {@code ==}.
  *
  * @author Christoph Böhme
  *
  */
 final class Label {
 
-	private final Type type;
-	private final int value;
+	private static final long GENERATED_FLAG = 1L << 32;
+	private static final long GROUND_FLAG = 1L << 33;
+	private static final long VALUE_MASK = 0xffffffffL;
+
+	private static final int INSERTION_SORT_THRESHOLD = 16;
 
 	/**
 	 * Creates new labels.
 	 */
 	public static final class Factory {
 
-		private int generatedValue = 1;
-
 		/**
 		 * Creates a label from a user-provided value.
 		 *
 		 * @param userValue of the class id
 		 * @return a new label
 		 */
-		public Label create(final int userValue) {
-			return new Label(Type.FIXED, userValue);
+		public long create(final int userValue) {
+			return userValue & VALUE_MASK;
 		}
 
 		/**
-		 * Creates a new label with a generated value.
-		 * @return a new label
+		 * Creates a generated label with the given value. Labels
+		 * created with the same value are equal.
+		 *
+		 * @param value of the label
+		 * @return a generated label
+		 */
+		public long createGenerated(final int value) {
+			return GENERATED_FLAG | (value & VALUE_MASK);
+		}
+
+		/**
+		 * Creates a ground label from a user-provided value.
+		 *
+		 * @param userValue of the class id
+		 * @return a new ground label
 		 */
-		public Label create() {
-			generatedValue += 1;
-			return new Label(Type.GENERATED, generatedValue);
+		public long createGround(final int userValue) {
+			return GROUND_FLAG | (userValue & VALUE_MASK);
 		}
 
 	}
 
-	/**
-	 * Type of the label.
-	 */
-	private enum Type { FIXED, GENERATED }
+	private Label() {
+		// No instances allowed
+	}
 
-	protected Label(final Type type, final int value) {
-		this.type = type;
-		this.value = value;
+	public static boolean isGenerated(final long label) {
+		return (label & GENERATED_FLAG) != 0;
 	}
 
-	@Override
-	public boolean equals(final Object obj) {
-		if (this == obj) {
-			return true;
-		}
-		if (obj == null) {
-			return false;
-		}
-		if (getClass() != obj.getClass()) {
-			return false;
-		}
-		final Label other = (Label) obj;
-		if (type != other.type) {
-			return false;
-		}
-		if (value != other.value) {
-			return false;
-		}
-		return true;
+	public static boolean isGround(final long label) {
+		return (label & GROUND_FLAG) != 0;
 	}
 
-	@Override
-	public int hashCode() {
+	public static int getValue(final long label) {
+		return (int) label;
+	}
+
+	/**
+	 * Computes a hash code for a label. The hash code does
+	 * only depend on the value and the type of the label and
+	 * is therefore stable across JVM runs.
+	 *
+	 * @param label to compute the hash code for
+	 * @return the hash code of the label
+	 */
+	public static int hashCode(final long label) {
 		final int prime = 31;
 		int result = prime;
-		if (type != null) {
-			result += type.hashCode();
+		if (isGenerated(label)) {
+			result += 1;
+		}
+		if (isGround(label)) {
+			result += 2;
 		}
-		result = prime * result + value;
+		result = prime * result + getValue(label);
 		return result;
 	}
 
-	@Override
-	public String toString() {
-		return Integer.toString(value) + "(" + type.toString() + ")";
+	/**
+	 * Spreads the bits of a hash code using the finalisation
+	 * step of MurmurHash3. Sums of mixed values depend on the
+	 * combination of the summands and not just on their sum.
+	 *
+	 * @param value to mix
+	 * @return the mixed value
+	 */
+	public static int mix(final int value) {
+		int hash = value;
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+	public static String toString(final long label) {
+		final String type;
+		if (isGenerated(label)) {
+			type = "GENERATED";
+		} else if (isGround(label)) {
+			type = "GROUND";
+		} else {
+			type = "FIXED";
+		}
+		return Integer.toString(getValue(label)) + "(" + type + ")";
+	}
+
+	/**
+	 * Sorts a range of node indices by the labels of the nodes.
+	 * Nodes with the same label are ordered by their index. The
+	 * sort works in place and does not allocate memory.
+	 *
+	 * @param nodes array of node indices
+	 * @param from first position of the range (inclusive)
+	 * @param to last position of the range (exclusive)
+	 * @param labels the labels of the nodes indexed by node
+	 */
+	public static void sortByLabel(final int[] nodes, final int from, final int to,
+			final long[] labels) {
+		int low = from;
+		int high = to - 1;
+		while (high - low >= INSERTION_SORT_THRESHOLD) {
+			final int pivot = nodes[low + (high - low) / 2];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (isLess(nodes[i], pivot, labels)) {
+					i += 1;
+				}
+				while (isLess(pivot, nodes[j], labels)) {
+					j -= 1;
+				}
+				if (i <= j) {
+					final int tmp = nodes[i];
+					nodes[i] = nodes[j];
+					nodes[j] = tmp;
+					i += 1;
+					j -= 1;
+				}
+			}
+			// Recurse into the smaller part to limit the stack depth:
+			if (j - low < high - i) {
+				sortByLabel(nodes, low, j + 1, labels);
+				low = i;
+			} else {
+				sortByLabel(nodes, i, high + 1, labels);
+				high = j;
+			}
+		}
+		for (int i = low + 1; i <= high; ++i) {
+			final int node = nodes[i];
+			int j = i - 1;
+			while (j >= low && isLess(node, nodes[j], labels)) {
+				nodes[j + 1] = nodes[j];
+				j -= 1;
+			}
+			nodes[j + 1] = node;
+		}
+	}
+
+	private static boolean isLess(final int node1, final int node2, final long[] labels) {
+		final long label1 = labels[node1];
+		final long label2 = labels[node2];
+		return label1 < label2 || (label1 == label2 && node1 < node2);
 	}
 
 }
@@ -0,0 +1,203 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.Arrays;
+
+/**
+ * The buffers used by {@link GraphLabeller}. Checking many small
+ * graphs spends a considerable share of its time allocating
+ * and clearing these buffers. A workspace keeps them between
+ * labellers and only grows them when a graph has more nodes
+ * than any graph labelled before.
+ *
+ * Each thread owns one workspace which is handed out by
+ * {@link #acquire()}. A workspace must only be used by one
+ * labeller at a time. If the workspace of the thread is already
+ * in use, {@code acquire} returns a new workspace.
+ *
+ * A workspace whose buffers have grown beyond
+ * {@link #MAX_RETAINED_CAPACITY} elements is not kept by its
+ * thread when it is released. Otherwise, a single large graph
+ * would pin its buffers for the lifetime of each thread which
+ * labelled it.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class LabellerWorkspace {
+
+	/**
+	 * Largest buffer size which is kept between labellers.
+	 */
+	static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final ThreadLocal<LabellerWorkspace> WORKSPACES =
+			new ThreadLocal<LabellerWorkspace>() {
+				@Override
+				protected LabellerWorkspace initialValue() {
+					return new LabellerWorkspace();
+				}
+			};
+
+	private long[] labelling = new long[INITIAL_CAPACITY];
+	private long[] nextLabelling = new long[INITIAL_CAPACITY];
+	private int[] frontier = new int[INITIAL_CAPACITY];
+	private int[] sortedNodes = new int[INITIAL_CAPACITY];
+	private int[] ambiguousNodes = new int[INITIAL_CAPACITY];
+	private int[] nodeValues = new int[INITIAL_CAPACITY];
+	private int[] labelHashes = new int[INITIAL_CAPACITY];
+	private int[] pairRefinementValues = new int[INITIAL_CAPACITY];
+
+	private int[] alternatives = new int[INITIAL_CAPACITY];
+	private long[] savedLabels = new long[INITIAL_CAPACITY];
+
+	private boolean inUse;
+
+	/**
+	 * Returns the workspace of the current thread. If it is in
+	 * use, a new workspace is returned. The workspace must be
+	 * released with {@link #release()} when it is not needed
+	 * anymore.
+	 *
+	 * @return a workspace which is not in use
+	 */
+	public static LabellerWorkspace acquire() {
+		LabellerWorkspace workspace = WORKSPACES.get();
+		if (workspace.inUse) {
+			workspace = new LabellerWorkspace();
+		}
+		workspace.inUse = true;
+		return workspace;
+	}
+
+	/**
+	 * Returns the workspace to its thread so that it can be
+	 * acquired again. If any buffer is larger than
+	 * {@link #MAX_RETAINED_CAPACITY}, the thread drops the
+	 * workspace and creates a new one on the next
+	 * {@link #acquire()}.
+	 */
+	public void release() {
+		inUse = false;
+		if (exceedsRetainedCapacity() && WORKSPACES.get() == this) {
+			WORKSPACES.remove();
+		}
+	}
+
+	private boolean exceedsRetainedCapacity() {
+		return labelling.length > MAX_RETAINED_CAPACITY
+				|| pairRefinementValues.length > MAX_RETAINED_CAPACITY
+				|| alternatives.length > MAX_RETAINED_CAPACITY
+				|| savedLabels.length > MAX_RETAINED_CAPACITY;
+	}
+
+	/**
+	 * Prepares the workspace for labelling a graph. The node
+	 * buffers are grown if they are smaller than
+	 * {@code nodeCount}. Their contents are undefined afterwards.
+	 *
+	 * @param nodeCount number of nodes in the graph
+	 */
+	public void reset(final int nodeCount) {
+		if (nodeCount > labelling.length) {
+			final int capacity = Math.max(nodeCount, 2 * labelling.length);
+			labelling = new long[capacity];
+			nextLabelling = new long[capacity];
+			frontier = new int[capacity];
+			sortedNodes = new int[capacity];
+			ambiguousNodes = new int[capacity];
+			nodeValues = new int[capacity];
+			labelHashes = new int[capacity];
+		}
+	}
+
+	public long[] getLabelling() {
+		return labelling;
+	}
+
+	public long[] getNextLabelling() {
+		return nextLabelling;
+	}
+
+	public int[] getFrontier() {
+		return frontier;
+	}
+
+	public int[] getSortedNodes() {
+		return sortedNodes;
+	}
+
+	public int[] getAmbiguousNodes() {
+		return ambiguousNodes;
+	}
+
+	public int[] getNodeValues() {
+		return nodeValues;
+	}
+
+	public int[] getLabelHashes() {
+		return labelHashes;
+	}
+
+	/**
+	 * Returns the buffer for the values computed by pair
+	 * refinement. The buffer is grown on demand since most
+	 * labellers do not use pair refinement.
+	 *
+	 * @param nodeCount number of nodes in the graph
+	 * @return a buffer with at least {@code nodeCount} elements
+	 */
+	public int[] getPairRefinementValues(final int nodeCount) {
+		if (nodeCount > pairRefinementValues.length) {
+			pairRefinementValues = new int[Math.max(nodeCount, 2 * pairRefinementValues.length)];
+		}
+		return pairRefinementValues;
+	}
+
+	/**
+	 * Returns the stack of alternatives grown to at least
+	 * {@code capacity} elements. The contents of the stack are
+	 * preserved.
+	 *
+	 * @param capacity minimal size of the stack
+	 * @return the stack of alternatives
+	 */
+	public int[] getAlternatives(final int capacity) {
+		if (capacity > alternatives.length) {
+			alternatives = Arrays.copyOf(alternatives, Math.max(capacity, 2 * alternatives.length));
+		}
+		return alternatives;
+	}
+
+	/**
+	 * Returns the stack of saved labels grown to at least
+	 * {@code capacity} elements. The contents of the stack are
+	 * preserved.
+	 *
+	 * @param capacity minimal size of the stack
+	 * @return the stack of saved labels
+	 */
+	public long[] getSavedLabels(final int capacity) {
+		if (capacity > savedLabels.length) {
+			savedLabels = Arrays.copyOf(savedLabels, Math.max(capacity, 2 * savedLabels.length));
+		}
+		return savedLabels;
+	}
+
+}
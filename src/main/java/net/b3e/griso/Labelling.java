@@ -0,0 +1,317 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * A canonical labelling of a graph as returned by
+ * {@link GraphLabeller}. Each node of the graph is assigned
+ * a unique label. If the nodes were coloured before labelling,
+ * the labelling also keeps the colours of the nodes.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class Labelling {
+
+	private static final long COLOUR_MASK = 0xffffffffL;
+
+	private final CompactGraph graph;
+	private final long[] labels;
+	private final int[] nodesByLabel;
+	private final int[] ranks;
+	private final int[] colours;
+	private final LabellingOptions options;
+
+	Labelling(final CompactGraph graph, final long[] labels, final LabellingOptions options) {
+		this(graph, labels, null, options);
+	}
+
+	Labelling(final CompactGraph graph, final long[] labels, final int[] colours,
+			final LabellingOptions options) {
+		this.graph = graph;
+		this.labels = labels;
+		this.colours = colours;
+		this.options = options;
+
+		nodesByLabel = new int[labels.length];
+		for (int i = 0; i < nodesByLabel.length; ++i) {
+			nodesByLabel[i] = i;
+		}
+		Label.sortByLabel(nodesByLabel, 0, nodesByLabel.length, labels);
+
+		ranks = new int[labels.length];
+		for (int i = 0; i < nodesByLabel.length; ++i) {
+			ranks[nodesByLabel[i]] = i;
+		}
+	}
+
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns the options with which the labelling was created.
+	 * Only labellings created with equal options can be compared.
+	 *
+	 * @return the labelling options
+	 */
+	public LabellingOptions getOptions() {
+		return options;
+	}
+
+	public int size() {
+		return labels.length;
+	}
+
+	public long getLabel(final Node<?> node) {
+		return labels[node.getIndex()];
+	}
+
+	public long getLabel(final int node) {
+		return labels[node];
+	}
+
+	/**
+	 * Returns the initial colour of a node.
+	 *
+	 * @param node index of the node
+	 * @return the colour of the node or 0 if the nodes were
+	 *         not coloured
+	 */
+	public int getColour(final int node) {
+		if (colours == null) {
+			return 0;
+		}
+		return colours[node];
+	}
+
+	/**
+	 * Returns the indices of all nodes ordered by their labels.
+	 * The returned array must not be modified.
+	 *
+	 * @return node indices sorted by label
+	 */
+	public int[] getNodesByLabel() {
+		return nodesByLabel;
+	}
+
+	/**
+	 * Checks whether this labelling and {@code other} describe
+	 * the same graph. This is the case if both labellings
+	 * use the same labels, if the nodes with the same label are
+	 * equivalent and have the same colour and if these nodes are connected to nodes with
+	 * the same labels by equivalent edges.
+	 *
+	 * @param other labelling to compare with
+	 * @return true if both labellings describe the same graph
+	 */
+	public boolean matches(final Labelling other) {
+		if (labels.length != other.labels.length
+				|| graph.hasLabelledConnections() != other.graph.hasLabelledConnections()) {
+			return false;
+		}
+		// Since the labels are unique, nodes with the same
+		// label have the same rank in both labellings if the
+		// labels of both labellings are equal:
+		for (int i = 0; i < nodesByLabel.length; ++i) {
+			if (labels[nodesByLabel[i]] != other.labels[other.nodesByLabel[i]]) {
+				return false;
+			}
+		}
+
+		final int maxDegree = Math.max(graph.getMaxDegree(), other.graph.getMaxDegree());
+		final Connections thisConnections = new Connections(this, maxDegree);
+		final Connections otherConnections = new Connections(other, maxDegree);
+		for (int i = 0; i < nodesByLabel.length; ++i) {
+			final int thisNode = nodesByLabel[i];
+			final int otherNode = other.nodesByLabel[i];
+
+			if (!graph.isEquivalent(thisNode, other.graph, otherNode)
+					|| getColour(thisNode) != other.getColour(otherNode)) {
+				return false;
+			}
+
+			thisConnections.collect(thisNode, true);
+			otherConnections.collect(otherNode, true);
+			if (!thisConnections.isEquivalent(otherConnections)) {
+				return false;
+			}
+
+			thisConnections.collect(thisNode, false);
+			otherConnections.collect(otherNode, false);
+			if (!thisConnections.isEquivalent(otherConnections)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * The multiset of outgoing or incoming connections of a node.
+	 * Each connection is described by a key combining the rank
+	 * of the connected node and the colour of the edge. The
+	 * connections are sorted by their keys. Connections with
+	 * the same key are compared by their edges and multiplicities.
+	 */
+	private static final class Connections {
+
+		private final Labelling labelling;
+		private final CompactGraph graph;
+		private final long[] keys;
+		private final int[] order;
+
+		private int node;
+		private boolean outgoing;
+		private int count;
+
+		Connections(final Labelling labelling, final int capacity) {
+			this.labelling = labelling;
+			graph = labelling.graph;
+			keys = new long[capacity];
+			order = new int[capacity];
+		}
+
+		public void collect(final int collectedNode, final boolean collectOutgoing) {
+			node = collectedNode;
+			outgoing = collectOutgoing;
+			if (outgoing) {
+				count = graph.getSuccessorCount(node);
+			} else {
+				count = graph.getPredecessorCount(node);
+			}
+			for (int i = 0; i < count; ++i) {
+				keys[i] = computeKey(i);
+				order[i] = i;
+			}
+			Label.sortByLabel(order, 0, count, keys);
+		}
+
+		public boolean isEquivalent(final Connections other) {
+			int otherStart = 0;
+			int start = 0;
+			while (start < count) {
+				final long key = keys[order[start]];
+				final int end = findRunEnd(start);
+				if (otherStart == other.count || other.keys[other.order[otherStart]] != key) {
+					return false;
+				}
+				final int otherEnd = other.findRunEnd(otherStart);
+				if (!isEquivalentRun(start, end, other, otherStart, otherEnd)) {
+					return false;
+				}
+				start = end;
+				otherStart = otherEnd;
+			}
+			return otherStart == other.count;
+		}
+
+		private int findRunEnd(final int start) {
+			final long key = keys[order[start]];
+			int end = start + 1;
+			while (end < count && keys[order[end]] == key) {
+				end += 1;
+			}
+			return end;
+		}
+
+		/**
+		 * Checks that each kind of edge in the run occurs with the
+		 * same multiplicity in the run of the other node. Since both
+		 * runs must also have the same total multiplicity, the other
+		 * run cannot contain additional kinds of edges.
+		 */
+		// NO CHECKSTYLE ParameterNumber FOR 2 LINES:
+		private boolean isEquivalentRun(final int start, final int end,
+				final Connections other, final int otherStart, final int otherEnd) {
+			if (sumMultiplicities(start, end) != other.sumMultiplicities(otherStart, otherEnd)) {
+				return false;
+			}
+			for (int i = start; i < end; ++i) {
+				if (countEquivalent(start, i, this, i) > 0) {
+					continue;
+				}
+				if (countEquivalent(start, end, this, i)
+						!= other.countEquivalent(otherStart, otherEnd, this, i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private int sumMultiplicities(final int from, final int to) {
+			int sum = 0;
+			for (int i = from; i < to; ++i) {
+				sum += getMultiplicity(order[i]);
+			}
+			return sum;
+		}
+
+		/**
+		 * Sums the multiplicities of the connections in
+		 * {@code [from, to)} which are equivalent to the
+		 * connection at position {@code position} of
+		 * {@code connections}.
+		 */
+		private int countEquivalent(final int from, final int to,
+				final Connections connections, final int position) {
+			int sum = 0;
+			for (int i = from; i < to; ++i) {
+				final int connection = order[i];
+				if (connections.isEquivalentEdge(position, this, connection)) {
+					sum += getMultiplicity(connection);
+				}
+			}
+			return sum;
+		}
+
+		private int getMultiplicity(final int connection) {
+			if (outgoing) {
+				return graph.getSuccessorMultiplicity(node, connection);
+			}
+			return graph.getPredecessorMultiplicity(node, connection);
+		}
+
+		private long computeKey(final int connection) {
+			final int connectedNode;
+			int colour = 0;
+			if (outgoing) {
+				connectedNode = graph.getSuccessor(node, connection);
+				if (graph.hasLabelledConnections()) {
+					colour = graph.getSuccessorEdgeColour(node, connection);
+				}
+			} else {
+				connectedNode = graph.getPredecessor(node, connection);
+				if (graph.hasLabelledConnections()) {
+					colour = graph.getPredecessorEdgeColour(node, connection);
+				}
+			}
+			return ((long) labelling.ranks[connectedNode] << Integer.SIZE) | (colour & COLOUR_MASK);
+		}
+
+		private boolean isEquivalentEdge(final int position, final Connections connections,
+				final int connection) {
+			if (outgoing) {
+				return graph.isEquivalentSuccessorEdge(node, order[position],
+						connections.graph, connections.node, connection);
+			}
+			return graph.isEquivalentPredecessorEdge(node, order[position],
+					connections.graph, connections.node, connection);
+		}
+
+	}
+
+}
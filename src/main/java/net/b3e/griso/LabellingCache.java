@@ -0,0 +1,197 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A bounded cache for the canonical labellings of graphs. Passing
+ * a cache to {@link Graph#isIsomorphism(Graph, LabellingCache)}
+ * avoids labelling the same graph again when it is compared
+ * multiple times.
+ *
+ * Graphs are identified by reference. The cache holds weak
+ * references to the graphs only, so entries are removed when
+ * a graph is garbage collected. If a graph is modified after
+ * its labelling was cached, the labelling is computed again
+ * on the next lookup. The same happens if the labelling was
+ * computed with different {@link LabellingOptions}. Caches are
+ * thread-safe.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class LabellingCache {
+
+	private final Cache<Graph<?, ?, ?>, Entry> cache;
+
+	private LabellingCache(final Cache<Graph<?, ?, ?>, Entry> cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Creates a cache which holds at most {@code maximumSize}
+	 * labellings.
+	 *
+	 * @param maximumSize maximum number of cached labellings
+	 * @return a new cache
+	 */
+	public static LabellingCache withMaximumSize(final long maximumSize) {
+		return new LabellingCache(CacheBuilder.newBuilder()
+				.weakKeys()
+				.maximumSize(maximumSize)
+				.recordStats()
+				.<Graph<?, ?, ?>, Entry>build());
+	}
+
+	/**
+	 * Creates a cache whose entries have a total weight of
+	 * at most {@code maximumWeight}. The weight of an entry is
+	 * the number of nodes plus the number of stored connections
+	 * of the internal representation of the graph. It is roughly
+	 * proportional to the memory used by the entry.
+	 *
+	 * @param maximumWeight maximum weight of all entries
+	 * @return a new cache
+	 */
+	public static LabellingCache withMaximumWeight(final long maximumWeight) {
+		return new LabellingCache(CacheBuilder.newBuilder()
+				.weakKeys()
+				.maximumWeight(maximumWeight)
+				.weigher(new EntryWeigher())
+				.recordStats()
+				.<Graph<?, ?, ?>, Entry>build());
+	}
+
+	/**
+	 * Returns hit and miss counts of the cache.
+	 *
+	 * @return a snapshot of the cache statistics
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Returns the cached labelling of a graph. If the graph is
+	 * not in the cache or was modified since its labelling was
+	 * stored or with other options, the labelling is computed and
+	 * added to the cache. Recomputing a stale labelling is counted
+	 * as a miss.
+	 *
+	 * @param graph for which the labelling is returned
+	 * @param check used for computing the labelling
+	 * @return the first canonical labelling of the graph
+	 * @throws BudgetExhaustedException if the budget of the check is exhausted
+	 */
+	Labelling getLabelling(final Graph<?, ?, ?> graph, final IsomorphismCheck check) {
+		final LabellingOptions options = check.getOptions();
+		final EntryLoader loader = new EntryLoader(graph, check);
+		// Peeking through the map view does not count as a hit:
+		final Entry staleEntry = cache.asMap().get(graph);
+		if (staleEntry != null && !staleEntry.isValid(graph, options)) {
+			cache.asMap().remove(graph, staleEntry);
+		}
+		Entry entry;
+		try {
+			entry = cache.get(graph, loader);
+		} catch (final ExecutionException | UncheckedExecutionException
+				| ExecutionError e) {
+			throw Throwables.propagate(e.getCause());
+		}
+		if (!entry.isValid(graph, options)) {
+			// Another thread stored a labelling computed with other
+			// options in the meantime:
+			entry = loader.call();
+			cache.put(graph, entry);
+		}
+		return entry.labelling;
+	}
+
+	/**
+	 * A cached labelling together with the modification count
+	 * of the graph at the time the labelling was computed.
+	 */
+	private static final class Entry {
+
+		private final int modificationCount;
+		private final Labelling labelling;
+
+		Entry(final int modificationCount, final Labelling labelling) {
+			this.modificationCount = modificationCount;
+			this.labelling = labelling;
+		}
+
+		boolean isValid(final Graph<?, ?, ?> graph, final LabellingOptions options) {
+			return modificationCount == graph.getModificationCount()
+					&& labelling.getOptions().equals(options);
+		}
+
+	}
+
+	/**
+	 * Computes the labelling of a graph for the cache.
+	 */
+	private static final class EntryLoader implements Callable<Entry> {
+
+		private final Graph<?, ?, ?> graph;
+		private final IsomorphismCheck check;
+
+		EntryLoader(final Graph<?, ?, ?> graph, final IsomorphismCheck check) {
+			this.graph = graph;
+			this.check = check;
+		}
+
+		@Override
+		public Entry call() {
+			final int modificationCount = graph.getModificationCount();
+			return new Entry(modificationCount,
+					check.label(CompactGraph.create(graph.getNodeList())));
+		}
+
+	}
+
+	/**
+	 * Weighs entries by the size of their graph.
+	 */
+	private static final class EntryWeigher implements Weigher<Graph<?, ?, ?>, Entry> {
+
+		@Override
+		public int weigh(final Graph<?, ?, ?> graph, final Entry entry) {
+			final CompactGraph compactGraph = entry.labelling.getGraph();
+			return compactGraph.getNodeCount() + compactGraph.getStoredConnectionCount();
+		}
+
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Receives notifications about the work done while labelling
+ * and comparing graphs. Listeners are invoked from the thread
+ * that performs the comparison.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public interface LabellingListener {
+
+	/**
+	 * Phases of an isomorphism check.
+	 */
+	enum Phase {
+		/** Refining labels based on the neighbourhood of nodes. */
+		REFINEMENT,
+		/** Selecting and backtracking alternative labellings. */
+		SEARCH,
+		/** Comparing the labellings of two graphs. */
+		COMPARISON
+	}
+
+	/**
+	 * Called after each refinement round.
+	 *
+	 * @param cellsSplit number of label groups that were
+	 *        created by splitting existing groups in this round
+	 */
+	void refinementRoundCompleted(int cellsSplit);
+
+	/**
+	 * Called when the labeller assigns a generated label to
+	 * a node in order to resolve an ambiguity.
+	 *
+	 * @param depth number of generated labels on the current
+	 *        search path including the new one
+	 */
+	void searchNodeVisited(int depth);
+
+	/**
+	 * Called when the labeller returns to a previous search
+	 * level because all alternatives on the current level have
+	 * been tried.
+	 */
+	void backtracked();
+
+	/**
+	 * Called when a labelling of a graph matches the first
+	 * labelling of the same graph while searching for the
+	 * automorphisms of the graph.
+	 */
+	void automorphismFound();
+
+	/**
+	 * Called after a labelling of one graph has been compared
+	 * with a labelling of another graph.
+	 *
+	 * @param match true if the labellings describe the same graph
+	 */
+	void labellingsCompared(boolean match);
+
+	/**
+	 * Reports the time spent in a phase. The method may be
+	 * called multiple times for each phase.
+	 *
+	 * @param phase the phase which has been completed
+	 * @param nanoTime the time spent in the phase in nanoseconds
+	 */
+	void phaseCompleted(Phase phase, long nanoTime);
+
+	/**
+	 * Called at the end of an isomorphism check.
+	 *
+	 * @param result the result of the check
+	 */
+	void comparisonCompleted(IsomorphismResult result);
+
+}
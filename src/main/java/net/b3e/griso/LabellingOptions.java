@@ -0,0 +1,152 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.Arrays;
+
+/**
+ * Configures how graphs are labelled. Options are immutable.
+ * The {@code with*} methods return modified copies. Labellings
+ * of two graphs can only be compared if they were computed with
+ * equal options.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class LabellingOptions {
+
+	/**
+	 * Plain colour refinement followed by search.
+	 */
+	public static final LabellingOptions DEFAULT = new LabellingOptions(new VertexInvariant[0], 0,
+			false);
+
+	/**
+	 * Largest threshold for pair refinement. The pair colours of
+	 * larger graphs cannot be indexed with an {@code int}.
+	 */
+	public static final int MAX_PAIR_REFINEMENT_NODE_COUNT = 46340;
+
+	private final VertexInvariant[] vertexInvariants;
+	private final int pairRefinementThreshold;
+	private final boolean groundDecomposition;
+
+	private LabellingOptions(final VertexInvariant[] vertexInvariants,
+			final int pairRefinementThreshold, final boolean groundDecomposition) {
+		this.vertexInvariants = vertexInvariants;
+		this.pairRefinementThreshold = pairRefinementThreshold;
+		this.groundDecomposition = groundDecomposition;
+	}
+
+	/**
+	 * Sets the vertex invariants which are used when refinement
+	 * cannot split any more label groups. The invariants are
+	 * tried in the given order. Cheap invariants should therefore
+	 * come first.
+	 *
+	 * @param invariants to use
+	 * @return a copy of these options with the new invariants
+	 */
+	public LabellingOptions withVertexInvariants(final VertexInvariant... invariants) {
+		for (final VertexInvariant invariant : invariants) {
+			if (invariant == null) {
+				throw new IllegalArgumentException("invariants must not be null");
+			}
+		}
+		return new LabellingOptions(invariants.clone(), pairRefinementThreshold,
+				groundDecomposition);
+	}
+
+	/**
+	 * Enables two-dimensional Weisfeiler-Leman refinement for
+	 * graphs with at most {@code maxNodeCount} nodes. It colours
+	 * pairs of nodes instead of single nodes and distinguishes
+	 * many symmetric graphs without searching. Each round takes
+	 * O(n³) time and the pair colours need O(n²) memory, so the
+	 * threshold should be small. Named edges count as nodes
+	 * unless they are represented as labelled connections.
+	 *
+	 * @param maxNodeCount largest graph for which pair refinement
+	 *        is used. Zero disables pair refinement.
+	 * @return a copy of these options with the new threshold
+	 * @throws IllegalArgumentException if {@code maxNodeCount} is
+	 *         negative or larger than
+	 *         {@link #MAX_PAIR_REFINEMENT_NODE_COUNT}
+	 */
+	public LabellingOptions withPairRefinement(final int maxNodeCount) {
+		if (maxNodeCount < 0) {
+			throw new IllegalArgumentException("maxNodeCount must not be negative");
+		}
+		if (maxNodeCount > MAX_PAIR_REFINEMENT_NODE_COUNT) {
+			throw new IllegalArgumentException("maxNodeCount must not exceed "
+					+ MAX_PAIR_REFINEMENT_NODE_COUNT);
+		}
+		return new LabellingOptions(vertexInvariants, maxNodeCount, groundDecomposition);
+	}
+
+	/**
+	 * Enables or disables the ground decomposition. If enabled,
+	 * nodes whose names are unique are fixed with ground labels
+	 * before refinement starts. Refinement and search then only
+	 * process the remaining nodes (the blank nodes of an RDF
+	 * graph) and read the labels of their fixed neighbours. The
+	 * cost of each refinement round and each search step is
+	 * proportional to the number of remaining nodes instead of
+	 * the size of the graph.
+	 *
+	 * @param enabled true to enable the decomposition
+	 * @return a copy of these options with the new setting
+	 */
+	public LabellingOptions withGroundDecomposition(final boolean enabled) {
+		return new LabellingOptions(vertexInvariants, pairRefinementThreshold, enabled);
+	}
+
+	VertexInvariant[] getVertexInvariants() {
+		return vertexInvariants;
+	}
+
+	boolean usesPairRefinement(final int nodeCount) {
+		return nodeCount <= pairRefinementThreshold;
+	}
+
+	boolean usesGroundDecomposition() {
+		return groundDecomposition;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof LabellingOptions)) {
+			return false;
+		}
+		final LabellingOptions other = (LabellingOptions) obj;
+		return pairRefinementThreshold == other.pairRefinementThreshold
+				&& groundDecomposition == other.groundDecomposition
+				&& Arrays.equals(vertexInvariants, other.vertexInvariants);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Arrays.hashCode(vertexInvariants) * 31 + pairRefinementThreshold;
+		if (groundDecomposition) {
+			result = result * 31 + 1;
+		}
+		return result;
+	}
+
+}
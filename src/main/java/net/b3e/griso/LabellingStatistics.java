@@ -0,0 +1,176 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * A listener which accumulates counters and timings. Instances
+ * of this class are not thread-safe. Use a separate instance
+ * for each thread or call {@link #reset()} between checks.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class LabellingStatistics implements LabellingListener {
+
+	private long refinementRounds;
+	private long cellsSplit;
+	private long searchNodes;
+	private int maxSearchDepth;
+	private long backtracks;
+	private long automorphisms;
+	private long labellingsCompared;
+	private long comparisons;
+	private long unknownResults;
+	private final long[] phaseTimes = new long[Phase.values().length];
+
+	@Override
+	public void refinementRoundCompleted(final int splitCount) {
+		refinementRounds += 1;
+		cellsSplit += splitCount;
+	}
+
+	@Override
+	public void searchNodeVisited(final int depth) {
+		searchNodes += 1;
+		maxSearchDepth = Math.max(maxSearchDepth, depth);
+	}
+
+	@Override
+	public void backtracked() {
+		backtracks += 1;
+	}
+
+	@Override
+	public void automorphismFound() {
+		automorphisms += 1;
+	}
+
+	@Override
+	public void labellingsCompared(final boolean match) {
+		labellingsCompared += 1;
+	}
+
+	@Override
+	public void phaseCompleted(final Phase phase, final long nanoTime) {
+		phaseTimes[phase.ordinal()] += nanoTime;
+	}
+
+	@Override
+	public void comparisonCompleted(final IsomorphismResult result) {
+		comparisons += 1;
+		if (result == IsomorphismResult.UNKNOWN) {
+			unknownResults += 1;
+		}
+	}
+
+	public long getRefinementRounds() {
+		return refinementRounds;
+	}
+
+	public long getCellsSplit() {
+		return cellsSplit;
+	}
+
+	public long getSearchNodes() {
+		return searchNodes;
+	}
+
+	public int getMaxSearchDepth() {
+		return maxSearchDepth;
+	}
+
+	public long getBacktracks() {
+		return backtracks;
+	}
+
+	/**
+	 * Returns the number of automorphisms found while searching
+	 * the automorphisms of graphs. Automorphisms which do not
+	 * extend the known automorphism group are counted as well.
+	 *
+	 * @return number of automorphisms found
+	 */
+	public long getAutomorphisms() {
+		return automorphisms;
+	}
+
+	public long getLabellingsCompared() {
+		return labellingsCompared;
+	}
+
+	public long getComparisons() {
+		return comparisons;
+	}
+
+	/**
+	 * Returns the number of checks which were aborted because
+	 * their budget was exhausted.
+	 *
+	 * @return number of checks with an unknown result
+	 */
+	public long getUnknownResults() {
+		return unknownResults;
+	}
+
+	/**
+	 * Returns the accumulated time spent in a phase. Time
+	 * is only measured if a listener is registered.
+	 *
+	 * @param phase for which the time is returned
+	 * @return time in nanoseconds
+	 */
+	public long getPhaseTime(final Phase phase) {
+		return phaseTimes[phase.ordinal()];
+	}
+
+	/**
+	 * Sets all counters and timings to zero.
+	 */
+	public void reset() {
+		refinementRounds = 0;
+		cellsSplit = 0;
+		searchNodes = 0;
+		maxSearchDepth = 0;
+		backtracks = 0;
+		automorphisms = 0;
+		labellingsCompared = 0;
+		comparisons = 0;
+		unknownResults = 0;
+		for (int i = 0; i < phaseTimes.length; ++i) {
+			phaseTimes[i] = 0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("comparisons=").append(comparisons);
+		builder.append(", unknownResults=").append(unknownResults);
+		builder.append(", refinementRounds=").append(refinementRounds);
+		builder.append(", cellsSplit=").append(cellsSplit);
+		builder.append(", searchNodes=").append(searchNodes);
+		builder.append(", maxSearchDepth=").append(maxSearchDepth);
+		builder.append(", backtracks=").append(backtracks);
+		builder.append(", automorphisms=").append(automorphisms);
+		builder.append(", labellingsCompared=").append(labellingsCompared);
+		for (final Phase phase : Phase.values()) {
+			builder.append(", ").append(phase.name().toLowerCase()).append("Nanos=");
+			builder.append(phaseTimes[phase.ordinal()]);
+		}
+		return builder.toString();
+	}
+
+}
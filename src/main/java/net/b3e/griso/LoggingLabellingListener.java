@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A listener which reports the statistics of each isomorphism
+ * check to an SLF4J logger. A summary is logged on debug level
+ * when a check has been completed. Search, backtracking and
+ * automorphism events are logged on trace level.
+ *
+ * Like {@link LabellingStatistics} instances of this class are
+ * not thread-safe.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class LoggingLabellingListener implements LabellingListener {
+
+	private final Logger logger;
+	private final LabellingStatistics statistics = new LabellingStatistics();
+
+	public LoggingLabellingListener() {
+		this(LoggerFactory.getLogger(LoggingLabellingListener.class));
+	}
+
+	public LoggingLabellingListener(final Logger logger) {
+		this.logger = logger;
+	}
+
+	@Override
+	public void refinementRoundCompleted(final int cellsSplit) {
+		statistics.refinementRoundCompleted(cellsSplit);
+	}
+
+	@Override
+	public void searchNodeVisited(final int depth) {
+		statistics.searchNodeVisited(depth);
+		// Called for every search node, so avoid boxing the depth
+		// if trace logging is disabled:
+		if (logger.isTraceEnabled()) {
+			logger.trace("Visiting search node at depth {}", Integer.valueOf(depth));
+		}
+	}
+
+	@Override
+	public void backtracked() {
+		statistics.backtracked();
+		logger.trace("Backtracking");
+	}
+
+	@Override
+	public void automorphismFound() {
+		statistics.automorphismFound();
+		logger.trace("Found automorphism");
+	}
+
+	@Override
+	public void labellingsCompared(final boolean match) {
+		statistics.labellingsCompared(match);
+	}
+
+	@Override
+	public void phaseCompleted(final Phase phase, final long nanoTime) {
+		statistics.phaseCompleted(phase, nanoTime);
+	}
+
+	@Override
+	public void comparisonCompleted(final IsomorphismResult result) {
+		statistics.comparisonCompleted(result);
+		logger.debug("Isomorphism check completed ({}): {}", result, statistics);
+		statistics.reset();
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns consecutive ids to names. Equal names receive the
+ * same id. The id 0 is reserved for {@code null}. Storing ids
+ * instead of names allows keeping the adjacency structure of
+ * a graph in primitive arrays. The hash codes of the names are
+ * stored alongside the names. The names and, until a snapshot
+ * is taken, the map from names to ids are kept on the heap even
+ * if the graph uses {@link GraphStorage#OFF_HEAP}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class NameDictionary {
+
+	/** Id of {@code null}. */
+	public static final int NULL_ID = 0;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Map<Object, Integer> ids;
+	private Object[] names;
+	private int[] hashCodes;
+	private int size;
+
+	NameDictionary() {
+		ids = new HashMap<>();
+		names = new Object[INITIAL_CAPACITY];
+		hashCodes = new int[INITIAL_CAPACITY];
+		size = 1;
+	}
+
+	private NameDictionary(final Object[] names, final int[] hashCodes, final int size) {
+		ids = null;
+		this.names = names;
+		this.hashCodes = hashCodes;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the id of a name. If the name is not in the
+	 * dictionary, it is added.
+	 *
+	 * @param name to look up. May be null.
+	 * @return the id of the name
+	 */
+	public int add(final Object name) {
+		if (name == null) {
+			return NULL_ID;
+		}
+		final Integer id = ids.get(name);
+		if (id != null) {
+			return id;
+		}
+		if (size == names.length) {
+			names = Arrays.copyOf(names, 2 * size);
+			hashCodes = Arrays.copyOf(hashCodes, 2 * size);
+		}
+		names[size] = name;
+		hashCodes[size] = name.hashCode();
+		ids.put(name, size);
+		size += 1;
+		return size - 1;
+	}
+
+	/**
+	 * Returns the number of ids in the dictionary including
+	 * the id of {@code null}.
+	 *
+	 * @return the number of ids
+	 */
+	public int size() {
+		return size;
+	}
+
+	public Object get(final int id) {
+		return names[id];
+	}
+
+	/**
+	 * Returns the hash code of a name. {@code null} has
+	 * the hash code 0.
+	 *
+	 * @param id of the name
+	 * @return the hash code of the name
+	 */
+	public int getHashCode(final int id) {
+		return hashCodes[id];
+	}
+
+	/**
+	 * Returns an immutable copy of the dictionary which
+	 * cannot be used for adding names.
+	 *
+	 * @return a copy of the dictionary
+	 */
+	public NameDictionary snapshot() {
+		return new NameDictionary(Arrays.copyOf(names, size), Arrays.copyOf(hashCodes, size),
+				size);
+	}
+
+}
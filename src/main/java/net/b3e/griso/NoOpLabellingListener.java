@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * A listener which ignores all notifications. It is used when
+ * no listener is specified. {@link GraphLabeller} checks for
+ * this instance and skips taking time measurements if it is
+ * used.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class NoOpLabellingListener implements LabellingListener {
+
+	public static final NoOpLabellingListener INSTANCE = new NoOpLabellingListener();
+
+	private NoOpLabellingListener() {
+		// Use INSTANCE
+	}
+
+	@Override
+	public void refinementRoundCompleted(final int cellsSplit) {
+		// Do nothing
+	}
+
+	@Override
+	public void searchNodeVisited(final int depth) {
+		// Do nothing
+	}
+
+	@Override
+	public void backtracked() {
+		// Do nothing
+	}
+
+	@Override
+	public void automorphismFound() {
+		// Do nothing
+	}
+
+	@Override
+	public void labellingsCompared(final boolean match) {
+		// Do nothing
+	}
+
+	@Override
+	public void phaseCompleted(final Phase phase, final long nanoTime) {
+		// Do nothing
+	}
+
+	@Override
+	public void comparisonCompleted(final IsomorphismResult result) {
+		// Do nothing
+	}
+
+}
@@ -31,12 +31,14 @@
 class Node<N> {
 
 	private final N name;
+	private final int index;
 
 	private final Collection<Node<?>> connectedTo = new LinkedList<>();
 	private final Collection<Node<?>> connectedFrom = new LinkedList<>();
 
-	public Node(final N name) {
+	public Node(final N name, final int index) {
 		this.name = name;
+		this.index = index;
 	}
 
 	public boolean hasName() {
@@ -47,6 +49,18 @@ public N getName() {
 		return name;
 	}
 
+	/**
+	 * Returns the position of the node in the graph. Nodes
+	 * are numbered consecutively starting at zero in the
+	 * order in which they were added to the graph. The
+	 * labeller uses the index to store labels in arrays.
+	 *
+	 * @return the index of the node
+	 */
+	public int getIndex() {
+		return index;
+	}
+
 	public Collection<Node<?>> getConnectedTo() {
 		return Collections.unmodifiableCollection(connectedTo);
 	}
@@ -94,14 +108,4 @@ public Node<?> connect(final Node<?> toNode) {
 		return toNode;
 	}
 
-	/**
-	 * Can be implemented by derived classes to control how edges
-	 * are shown in the Graph.toString output.
-	 *
-	 * @param builder to which the output is appended
-	 */
-	protected void printEdges(final StringBuilder builder) {
-		// Default implementation does nothing
-	}
-
 }
@@ -0,0 +1,148 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.Arrays;
+
+/**
+ * Two-dimensional Weisfeiler-Leman refinement. Instead of nodes,
+ * the refinement colours ordered pairs of nodes. The colour of a
+ * pair (u, v) is refined using the colours of all pairs (u, w)
+ * and (w, v). This distinguishes many regular graphs which plain
+ * colour refinement cannot distinguish but costs O(n³) time per
+ * round and O(n²) memory. It is therefore only used for small
+ * graphs (see {@link LabellingOptions#withPairRefinement(int)}).
+ *
+ * The colours of all pairs are stored in an n×n matrix. The
+ * connections between the nodes are stored in a second matrix
+ * which is built once.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class PairRefinement {
+
+	private static final int CONNECTION_TO = 31;
+	private static final int CONNECTION_FROM = 43;
+	private static final int EDGE_COLOUR_FACTOR = 37;
+	private static final int FIRST_NODE = 53;
+	private static final int SECOND_NODE = 59;
+	private static final int DIAGONAL = 61;
+	private static final int PRIME = 31;
+
+	private final int nodeCount;
+	private final int[] connections;
+	private int[] colours;
+	private int[] nextColours;
+	private final int[] sortedColours;
+
+	PairRefinement(final CompactGraph graph) {
+		nodeCount = graph.getNodeCount();
+		final int pairCount = nodeCount * nodeCount;
+		connections = new int[pairCount];
+		colours = new int[pairCount];
+		nextColours = new int[pairCount];
+		sortedColours = new int[pairCount];
+
+		for (int node = 0; node < nodeCount; ++node) {
+			for (int i = 0; i < graph.getSuccessorCount(node); ++i) {
+				final int successor = graph.getSuccessor(node, i);
+				int edge = graph.getSuccessorMultiplicity(node, i);
+				if (graph.hasLabelledConnections()) {
+					edge *= EDGE_COLOUR_FACTOR * graph.getSuccessorEdgeColour(node, i) + 1;
+				}
+				connections[node * nodeCount + successor] += CONNECTION_TO * edge;
+				connections[successor * nodeCount + node] += CONNECTION_FROM * edge;
+			}
+		}
+	}
+
+	/**
+	 * Refines the pair colours until the number of colours does
+	 * not grow anymore and returns the colours of the pairs (v, v).
+	 *
+	 * @param labelling current labels of the nodes
+	 * @param values receives the final colour of each node
+	 * @param budgetMonitor checked after each row of pair colours
+	 * @throws BudgetExhaustedException if the budget is exhausted
+	 */
+	public void refine(final long[] labelling, final int[] values,
+			final BudgetMonitor budgetMonitor) {
+		initColours(labelling);
+		int colourCount = countColours();
+		for (int round = 0; round < nodeCount; ++round) {
+			refineColours(budgetMonitor);
+			final int newColourCount = countColours();
+			if (newColourCount == colourCount) {
+				break;
+			}
+			colourCount = newColourCount;
+		}
+		for (int node = 0; node < nodeCount; ++node) {
+			values[node] = colours[node * nodeCount + node];
+		}
+	}
+
+	private void initColours(final long[] labelling) {
+		for (int u = 0; u < nodeCount; ++u) {
+			final int uHash = Label.hashCode(labelling[u]);
+			for (int v = 0; v < nodeCount; ++v) {
+				final int pair = u * nodeCount + v;
+				if (u == v) {
+					colours[pair] = DIAGONAL * uHash + connections[pair];
+				} else {
+					colours[pair] = FIRST_NODE * uHash
+							+ SECOND_NODE * Label.hashCode(labelling[v]) + connections[pair];
+				}
+			}
+		}
+	}
+
+	private void refineColours(final BudgetMonitor budgetMonitor) {
+		for (int u = 0; u < nodeCount; ++u) {
+			// Each row takes O(n²) time, so the budget is checked
+			// within the round:
+			budgetMonitor.check();
+			final int row = u * nodeCount;
+			for (int v = 0; v < nodeCount; ++v) {
+				int value = 0;
+				for (int w = 0; w < nodeCount; ++w) {
+					// The pair colours are combined non-linearly since
+					// their order matters:
+					final int second = Label.mix(colours[w * nodeCount + v]);
+					value += Label.mix(colours[row + w] + PRIME * second);
+				}
+				nextColours[row + v] = Label.mix(colours[row + v]) * PRIME + value;
+			}
+		}
+		final int[] tmp = colours;
+		colours = nextColours;
+		nextColours = tmp;
+	}
+
+	private int countColours() {
+		System.arraycopy(colours, 0, sortedColours, 0, colours.length);
+		Arrays.sort(sortedColours);
+		int count = 0;
+		for (int i = 0; i < sortedColours.length; ++i) {
+			if (i == 0 || sortedColours[i] != sortedColours[i - 1]) {
+				count += 1;
+			}
+		}
+		return count;
+	}
+
+}
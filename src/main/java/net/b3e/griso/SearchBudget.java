@@ -0,0 +1,137 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the work spent on an isomorphism check. A budget may
+ * define a deadline, a maximum number of search nodes and
+ * whether the check should stop if the thread is interrupted.
+ * Budgets are immutable. The {@code with*} methods return
+ * modified copies.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class SearchBudget {
+
+	private static final long NO_TIMEOUT = -1;
+
+	/**
+	 * A budget without any limits.
+	 */
+	public static final SearchBudget UNLIMITED = new SearchBudget(false, 0, NO_TIMEOUT,
+			Long.MAX_VALUE, false);
+
+	private final boolean hasDeadline;
+	private final long deadline;
+	private final long timeout;
+	private final long maxSearchNodes;
+	private final boolean interruptible;
+
+	private SearchBudget(final boolean hasDeadline, final long deadline, final long timeout,
+			final long maxSearchNodes, final boolean interruptible) {
+		this.hasDeadline = hasDeadline;
+		this.deadline = deadline;
+		this.timeout = timeout;
+		this.maxSearchNodes = maxSearchNodes;
+		this.interruptible = interruptible;
+	}
+
+	/**
+	 * Sets a deadline relative to the current time. Checks
+	 * which are queued before they run, such as the checks of
+	 * a {@link GraphComparisonService}, measure the timeout from
+	 * the start of the check instead.
+	 *
+	 * @param timeout time until the deadline
+	 * @param unit of {@code timeout}
+	 * @return a copy of this budget with the new deadline
+	 */
+	public SearchBudget withTimeout(final long timeout, final TimeUnit unit) {
+		final long nanos = unit.toNanos(timeout);
+		return new SearchBudget(true, System.nanoTime() + nanos, nanos, maxSearchNodes,
+				interruptible);
+	}
+
+	/**
+	 * Sets an absolute deadline.
+	 *
+	 * @param nanoTime deadline as returned by {@link System#nanoTime()}
+	 * @return a copy of this budget with the new deadline
+	 */
+	public SearchBudget withDeadline(final long nanoTime) {
+		return new SearchBudget(true, nanoTime, NO_TIMEOUT, maxSearchNodes, interruptible);
+	}
+
+	/**
+	 * Limits the number of search nodes. A search node is
+	 * visited each time a labeller assigns a generated label
+	 * to resolve an ambiguity. The limit applies to both graphs
+	 * together.
+	 *
+	 * @param count maximum number of search nodes
+	 * @return a copy of this budget with the new limit
+	 */
+	public SearchBudget withMaxSearchNodes(final long count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("count must not be negative");
+		}
+		return new SearchBudget(hasDeadline, deadline, timeout, count, interruptible);
+	}
+
+	/**
+	 * Makes the check stop if the interrupt flag of the
+	 * thread is set. The flag is not cleared.
+	 *
+	 * @return a copy of this budget which checks for interrupts
+	 */
+	public SearchBudget interruptible() {
+		return new SearchBudget(hasDeadline, deadline, timeout, maxSearchNodes, true);
+	}
+
+	/**
+	 * Returns a copy of this budget whose deadline is measured
+	 * from the current time if it was set with
+	 * {@link #withTimeout(long, TimeUnit)}. Absolute deadlines
+	 * are not changed.
+	 *
+	 * @return a budget starting now
+	 */
+	SearchBudget startNow() {
+		if (timeout == NO_TIMEOUT) {
+			return this;
+		}
+		return new SearchBudget(true, System.nanoTime() + timeout, timeout, maxSearchNodes,
+				interruptible);
+	}
+
+	boolean isLimited() {
+		return hasDeadline || interruptible || maxSearchNodes != Long.MAX_VALUE;
+	}
+
+	boolean isExhausted(final long searchNodes) {
+		if (searchNodes > maxSearchNodes) {
+			return true;
+		}
+		if (hasDeadline && System.nanoTime() - deadline >= 0) {
+			return true;
+		}
+		return interruptible && Thread.currentThread().isInterrupted();
+	}
+
+}
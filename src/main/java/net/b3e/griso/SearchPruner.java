@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Decides which alternatives the {@link GraphLabeller} can skip
+ * while searching. Search levels are numbered from 0. An
+ * alternative must only be pruned if the labellings reachable
+ * through it are equivalent to labellings reachable through an
+ * alternative which was already selected on the same level.
+ *
+ * @author Christoph Böhme
+ *
+ */
+interface SearchPruner {
+
+	/**
+	 * Called when the alternatives of a new search level have
+	 * been collected. All alternatives selected earlier on this
+	 * level belong to another branch of the search tree.
+	 *
+	 * @param depth of the search level
+	 */
+	void alternativesCollected(int depth);
+
+	/**
+	 * Checks whether an alternative can be skipped.
+	 *
+	 * @param depth of the search level
+	 * @param node the alternative
+	 * @return true if the alternative should be skipped
+	 */
+	boolean isPruned(int depth, int node);
+
+	/**
+	 * Called when an alternative is selected.
+	 *
+	 * @param depth of the search level
+	 * @param node the selected alternative
+	 */
+	void alternativeSelected(int depth, int node);
+
+}
@@ -0,0 +1,142 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Computes the labels of a refinement round from flat int
+ * arrays. The kernel gathers the incoming and outgoing
+ * connections of each node into a single neighbour array. Since
+ * {@link GraphLabeller#combine(int, int)} is linear in the hash
+ * code of the neighbour label, the contribution of each
+ * connection can be written as {@code coefficient * hash + constant}.
+ * The coefficients are precomputed per connection and the
+ * constants are summed into a base value per node. A refinement
+ * round then only multiplies and adds ints in a tight loop over
+ * consecutive array elements.
+ *
+ * The kernel computes exactly the same values as the
+ * connection-by-connection computation in {@link GraphLabeller}.
+ * It duplicates the adjacency structure on the heap and is
+ * therefore only used for graphs stored on the heap.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class SignatureKernel {
+
+	private final int[] offsets;
+	private final int[] neighbours;
+	private final int[] coefficients;
+	private final int[] bases;
+
+	SignatureKernel(final CompactGraph graph) {
+		final int nodeCount = graph.getNodeCount();
+		offsets = new int[nodeCount + 1];
+		for (int node = 0; node < nodeCount; ++node) {
+			offsets[node + 1] = offsets[node] + graph.getSuccessorCount(node)
+					+ graph.getPredecessorCount(node);
+		}
+		neighbours = new int[offsets[nodeCount]];
+		coefficients = new int[offsets[nodeCount]];
+		bases = new int[nodeCount];
+
+		final boolean labelled = graph.hasLabelledConnections();
+		for (int node = 0; node < nodeCount; ++node) {
+			int position = offsets[node];
+			int base = graph.getNodeHashCode(node);
+			final int successorCount = graph.getSuccessorCount(node);
+			for (int i = 0; i < successorCount; ++i) {
+				int colour = 0;
+				if (labelled) {
+					colour = graph.getSuccessorEdgeColour(node, i);
+				}
+				final int factor = GraphLabeller.CONNECTION_TO
+						* graph.getSuccessorMultiplicity(node, i);
+				neighbours[position] = graph.getSuccessor(node, i);
+				coefficients[position] = factor * computeCoefficient(colour);
+				base += factor * GraphLabeller.combine(colour, 0);
+				position += 1;
+			}
+			final int predecessorCount = graph.getPredecessorCount(node);
+			for (int i = 0; i < predecessorCount; ++i) {
+				int colour = 0;
+				if (labelled) {
+					colour = graph.getPredecessorEdgeColour(node, i);
+				}
+				final int factor = GraphLabeller.CONNECTION_FROM
+						* graph.getPredecessorMultiplicity(node, i);
+				neighbours[position] = graph.getPredecessor(node, i);
+				coefficients[position] = factor * computeCoefficient(colour);
+				base += factor * GraphLabeller.combine(colour, 0);
+				position += 1;
+			}
+			bases[node] = base;
+		}
+	}
+
+	/**
+	 * Computes the hash codes of the labels of some nodes.
+	 *
+	 * @param labelling labels indexed by node
+	 * @param nodes indices of the nodes whose hash codes are computed
+	 * @param count number of nodes in {@code nodes}
+	 * @param labelHashes receives the hash codes indexed by node
+	 */
+	public static void hashLabels(final long[] labelling, final int[] nodes, final int count,
+			final int[] labelHashes) {
+		for (int i = 0; i < count; ++i) {
+			final int node = nodes[i];
+			labelHashes[node] = Label.hashCode(labelling[node]);
+		}
+	}
+
+	/**
+	 * Computes the hash codes of the labels of all nodes.
+	 *
+	 * @param labelling labels indexed by node
+	 * @param nodeCount number of nodes
+	 * @param labelHashes receives the hash codes indexed by node
+	 */
+	public static void hashLabels(final long[] labelling, final int nodeCount,
+			final int[] labelHashes) {
+		for (int node = 0; node < nodeCount; ++node) {
+			labelHashes[node] = Label.hashCode(labelling[node]);
+		}
+	}
+
+	/**
+	 * Computes the value of the new label of a node from the
+	 * hash codes of the current labels of its neighbours.
+	 *
+	 * @param node index of the node
+	 * @param labelHashes hash codes of the current labels
+	 *        indexed by node
+	 * @return the value of the new label
+	 */
+	public int computeSignature(final int node, final int[] labelHashes) {
+		int value = bases[node];
+		final int end = offsets[node + 1];
+		for (int i = offsets[node]; i < end; ++i) {
+			value += coefficients[i] * labelHashes[neighbours[i]];
+		}
+		return value;
+	}
+
+	private static int computeCoefficient(final int colour) {
+		return GraphLabeller.combine(colour, 1) - GraphLabeller.combine(colour, 0);
+	}
+
+}
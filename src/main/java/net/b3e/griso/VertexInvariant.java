@@ -0,0 +1,55 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Vertex invariants which the labeller can use to split label
+ * groups which colour refinement cannot split. This happens in
+ * regular graphs and in graphs derived from strongly regular
+ * graphs. Without further information, the labeller has to
+ * resolve such label groups by searching which can take
+ * exponential time.
+ *
+ * Invariants are only computed when refinement stops making
+ * progress and only for nodes with ambiguous labels. They are
+ * computed on the underlying undirected graph and take the
+ * current labels of the nodes into account. Invariants are
+ * selected with {@link LabellingOptions#withVertexInvariants}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public enum VertexInvariant {
+
+	/**
+	 * The number of triangles which contain the node. Costs
+	 * O(d²) per node where d is the maximum degree.
+	 */
+	TRIANGLES,
+
+	/**
+	 * The number of nodes with each label at each distance from
+	 * the node. Costs O(n + m) per node.
+	 */
+	DISTANCES,
+
+	/**
+	 * The number of cliques of size four which contain the
+	 * node. Costs O(d³) per node.
+	 */
+	CLIQUES
+
+}
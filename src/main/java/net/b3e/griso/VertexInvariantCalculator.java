@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+/**
+ * Computes {@link VertexInvariant}s. The calculator builds an
+ * undirected view of the graph without parallel connections and
+ * self-loops when it is created. It keeps the buffers needed for
+ * computing the invariants so that they can be reused for all
+ * nodes.
+ *
+ * All invariants only depend on the structure of the graph and
+ * on the labels of the nodes but not on the indices of the nodes.
+ *
+ * @author Christoph Böhme
+ *
+ */
+final class VertexInvariantCalculator {
+
+	private static final int PRIME = 31;
+
+	private final int[] offsets;
+	private final int[] neighbours;
+
+	private final int[] marks;
+	private final int[] otherMarks;
+	private int stamp;
+
+	private final int[] queue;
+	private final int[] distances;
+
+	VertexInvariantCalculator(final CompactGraph graph) {
+		final int nodeCount = graph.getNodeCount();
+		marks = new int[nodeCount];
+		otherMarks = new int[nodeCount];
+		queue = new int[nodeCount];
+		distances = new int[nodeCount];
+
+		offsets = new int[nodeCount + 1];
+		final int[] buffer = new int[2 * graph.getStoredConnectionCount()];
+		int count = 0;
+		for (int node = 0; node < nodeCount; ++node) {
+			offsets[node] = count;
+			stamp += 1;
+			marks[node] = stamp;
+			for (int i = 0; i < graph.getSuccessorCount(node); ++i) {
+				count = addNeighbour(graph.getSuccessor(node, i), buffer, count);
+			}
+			for (int i = 0; i < graph.getPredecessorCount(node); ++i) {
+				count = addNeighbour(graph.getPredecessor(node, i), buffer, count);
+			}
+		}
+		offsets[nodeCount] = count;
+		neighbours = new int[count];
+		System.arraycopy(buffer, 0, neighbours, 0, count);
+	}
+
+	/**
+	 * Computes an invariant for a node.
+	 *
+	 * @param invariant to compute
+	 * @param node index of the node
+	 * @param labelling current labels of all nodes
+	 * @return the value of the invariant
+	 */
+	public int compute(final VertexInvariant invariant, final int node, final long[] labelling) {
+		switch (invariant) {
+			case TRIANGLES:
+				return countTriangles(node, labelling);
+			case DISTANCES:
+				return computeDistanceProfile(node, labelling);
+			case CLIQUES:
+				return countCliques(node, labelling);
+			default:
+				throw new AssertionError(invariant);
+		}
+	}
+
+	private int countTriangles(final int node, final long[] labelling) {
+		markNeighbours(node, marks);
+		int count = 0;
+		int weight = 0;
+		for (int i = offsets[node]; i < offsets[node + 1]; ++i) {
+			final int neighbour = neighbours[i];
+			for (int j = offsets[neighbour]; j < offsets[neighbour + 1]; ++j) {
+				final int third = neighbours[j];
+				if (marks[third] == stamp) {
+					count += 1;
+					weight += Label.hashCode(labelling[neighbour]) * Label.hashCode(labelling[third]);
+				}
+			}
+		}
+		return count * PRIME + weight;
+	}
+
+	private int computeDistanceProfile(final int node, final long[] labelling) {
+		stamp += 1;
+		marks[node] = stamp;
+		distances[node] = 0;
+		queue[0] = node;
+		int head = 0;
+		int tail = 1;
+		int profile = 0;
+		while (head < tail) {
+			final int current = queue[head];
+			head += 1;
+			final int distance = distances[current];
+			// Mixing makes the sum depend on which label occurs
+			// at which distance:
+			profile += Label.mix(distance * PRIME + Label.hashCode(labelling[current]));
+			for (int i = offsets[current]; i < offsets[current + 1]; ++i) {
+				final int neighbour = neighbours[i];
+				if (marks[neighbour] != stamp) {
+					marks[neighbour] = stamp;
+					distances[neighbour] = distance + 1;
+					queue[tail] = neighbour;
+					tail += 1;
+				}
+			}
+		}
+		return profile;
+	}
+
+	private int countCliques(final int node, final long[] labelling) {
+		markNeighbours(node, marks);
+		final int nodeStamp = stamp;
+		int count = 0;
+		int weight = 0;
+		for (int i = offsets[node]; i < offsets[node + 1]; ++i) {
+			final int second = neighbours[i];
+			markNeighbours(second, otherMarks);
+			final int secondStamp = stamp;
+			for (int j = offsets[second]; j < offsets[second + 1]; ++j) {
+				final int third = neighbours[j];
+				if (marks[third] != nodeStamp) {
+					continue;
+				}
+				for (int k = offsets[third]; k < offsets[third + 1]; ++k) {
+					final int fourth = neighbours[k];
+					if (marks[fourth] == nodeStamp && otherMarks[fourth] == secondStamp) {
+						count += 1;
+						weight += Label.hashCode(labelling[second]) * Label.hashCode(labelling[third])
+								* Label.hashCode(labelling[fourth]);
+					}
+				}
+			}
+		}
+		return count * PRIME + weight;
+	}
+
+	private void markNeighbours(final int node, final int[] nodeMarks) {
+		stamp += 1;
+		for (int i = offsets[node]; i < offsets[node + 1]; ++i) {
+			nodeMarks[neighbours[i]] = stamp;
+		}
+	}
+
+	private int addNeighbour(final int neighbour, final int[] buffer, final int count) {
+		if (marks[neighbour] == stamp) {
+			return count;
+		}
+		marks[neighbour] = stamp;
+		buffer[count] = neighbour;
+		return count + 1;
+	}
+
+}
@@ -26,11 +26,15 @@
 
 	private final Object nodeId;
 
-	public <I> VertexNode(final N name, final I nodeId) {
-		super(name);
+	public <I> VertexNode(final N name, final I nodeId, final int index) {
+		super(name, index);
 		this.nodeId = nodeId;
 	}
 
+	public Object getId() {
+		return nodeId;
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder builder = new StringBuilder();
@@ -46,19 +50,4 @@ public String toString() {
 		return builder.toString();
 	}
 
-	protected void printConnections(final StringBuilder builder) {
-		builder.append(toString());
-		builder.append('\n');
-		for (final Node<?> node : getConnectedTo()) {
-			node.printEdges(builder);
-		}
-	}
-
-	@Override
-	protected void printEdges(final StringBuilder builder) {
-		builder.append("\t----> ");
-		builder.append(toString());
-		builder.append('\n');
-	}
-
 }
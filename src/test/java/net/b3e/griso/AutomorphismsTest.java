@@ -0,0 +1,200 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link Automorphisms}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class AutomorphismsTest {
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+
+	private Graph<String, String, String> graph;
+
+	@Before
+	public void setup() {
+		graph = new Graph<>();
+	}
+
+	@Test
+	public void shouldPutAllVerticesOfACycleIntoOneOrbit() {
+		for (int i = 0; i < 5; ++i) {
+			graph.addVertex(Integer.toString(i), NAME1);
+		}
+		for (int i = 0; i < 5; ++i) {
+			graph.addDirectedEdge(Integer.toString(i), Integer.toString((i + 1) % 5), NAME2);
+		}
+
+		final List<Set<String>> orbits = graph.automorphismOrbits();
+
+		assertEquals(1, orbits.size());
+		assertEquals(set("0", "1", "2", "3", "4"), orbits.get(0));
+	}
+
+	@Test
+	public void shouldSeparateCentreAndLeavesOfAStar() {
+		graph.addVertex("c", NAME1);
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME1);
+		graph.addVertex("3", NAME1);
+		graph.addDirectedEdge("c", "1", NAME2);
+		graph.addDirectedEdge("c", "2", NAME2);
+		graph.addDirectedEdge("c", "3", NAME2);
+
+		final List<Set<String>> orbits = graph.automorphismOrbits();
+
+		assertEquals(Arrays.asList(set("c"), set("1", "2", "3")), orbits);
+	}
+
+	@Test
+	public void shouldPairVerticesOfIsomorphComponents() {
+		graph.addVertex("a1", NAME1);
+		graph.addVertex("a2", NAME1);
+		graph.addVertex("b1", NAME1);
+		graph.addVertex("b2", NAME1);
+		graph.addDirectedEdge("a1", "a2");
+		graph.addDirectedEdge("b1", "b2");
+
+		final List<Set<String>> orbits = graph.automorphismOrbits();
+
+		assertEquals(Arrays.asList(set("a1", "b1"), set("a2", "b2")), orbits);
+	}
+
+	@Test
+	public void shouldReturnSingletonOrbitsForAsymmetricGraph() {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME1);
+		graph.addVertex("3", NAME1);
+		graph.addDirectedEdge("1", "2");
+		graph.addDirectedEdge("2", "3");
+
+		final List<Set<String>> orbits = graph.automorphismOrbits();
+
+		assertEquals(Arrays.asList(set("1"), set("2"), set("3")), orbits);
+	}
+
+	@Test
+	public void shouldPruneSearchWithAutomorphisms() {
+		final int vertexCount = 8;
+		for (int i = 0; i < vertexCount; ++i) {
+			graph.addVertex(Integer.toString(i), NAME1);
+		}
+
+		final Automorphisms automorphisms = Automorphisms.find(
+				CompactGraph.create(graph.getNodeList()), BudgetMonitor.UNLIMITED);
+
+		for (int node = 0; node < vertexCount; ++node) {
+			assertEquals(0, automorphisms.getOrbit(node));
+		}
+		// Without pruning, all 8! permutations would be found:
+		assertEquals(vertexCount - 1, automorphisms.getGenerators().size());
+		for (final int[] generator : automorphisms.getGenerators()) {
+			assertEquals(vertexCount, new HashSet<>(toList(generator)).size());
+		}
+	}
+
+	@Test
+	public void shouldFindOrbitsOfAStarWithManyArms() {
+		final int armCount = 20;
+		graph.addVertex("c", NAME1);
+		for (int i = 0; i < armCount; ++i) {
+			graph.addVertex("a" + i, NAME1);
+			graph.addVertex("b" + i, NAME1);
+			graph.addDirectedEdge("c", "a" + i, NAME2);
+			graph.addDirectedEdge("a" + i, "b" + i, NAME2);
+		}
+		final LabellingStatistics statistics = new LabellingStatistics();
+
+		final AutomorphismGroup<String> group =
+				graph.findAutomorphisms(SearchBudget.UNLIMITED, statistics);
+
+		assertTrue(group.isComplete());
+		assertEquals(3, group.getOrbits().size());
+		assertEquals(armCount, group.getOrbits().get(1).size());
+		assertEquals(armCount - 1, group.getGenerators().size());
+		assertEquals(armCount - 1, statistics.getAutomorphisms());
+	}
+
+	@Test
+	public void shouldMapVertexIdsInGenerators() {
+		graph.addVertex("c", NAME1);
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME1);
+		graph.addDirectedEdge("c", "1", NAME2);
+		graph.addDirectedEdge("c", "2", NAME2);
+
+		final List<Map<String, String>> generators =
+				graph.findAutomorphisms(SearchBudget.UNLIMITED,
+						NoOpLabellingListener.INSTANCE).getGenerators();
+
+		assertEquals(1, generators.size());
+		final Map<String, String> swap = new HashMap<>();
+		swap.put("1", "2");
+		swap.put("2", "1");
+		assertEquals(swap, generators.get(0));
+	}
+
+	@Test
+	public void shouldReturnPartialOrbitsIfBudgetIsExhausted() {
+		for (int i = 0; i < 4; ++i) {
+			graph.addVertex(Integer.toString(i), NAME1);
+		}
+
+		final AutomorphismGroup<String> group = graph.findAutomorphisms(
+				SearchBudget.UNLIMITED.withMaxSearchNodes(0), NoOpLabellingListener.INSTANCE);
+
+		assertFalse(group.isComplete());
+		assertEquals(4, group.getOrbits().size());
+		assertEquals(4, graph.automorphismOrbits(
+				SearchBudget.UNLIMITED.withMaxSearchNodes(0)).size());
+	}
+
+	@Test
+	public void shouldReturnNoOrbitsForEmptyGraph() {
+		assertTrue(graph.automorphismOrbits().isEmpty());
+	}
+
+	private static Set<String> set(final String... vertices) {
+		return new HashSet<>(Arrays.asList(vertices));
+	}
+
+	private static List<Integer> toList(final int[] values) {
+		final Integer[] boxed = new Integer[values.length];
+		for (int i = 0; i < values.length; ++i) {
+			boxed[i] = Integer.valueOf(values[i]);
+		}
+		return Arrays.asList(boxed);
+	}
+
+}
@@ -15,13 +15,13 @@
  */
 package net.b3e.griso;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeFalse;
 import static org.junit.Assume.assumeNotNull;
 
 import java.util.HashSet;
-import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -150,7 +150,7 @@ public void shouldLabelGraphWithNonResolvableAmbiguity() {
 		// NO CHECKSTYLE MagicNumber FOR 3 LINES:
 		// The variant count is specific for the
 		// graph defined this test case.
-		verifyLabellings(graph, labeller, 4);
+		verifyLabellings(graph, labeller, 2);
 	}
 
 	@Test
@@ -168,7 +168,7 @@ public void shouldLabelGraphWithTwoNonResolvableAmbiguities() {
 		// NO CHECKSTYLE MagicNumber FOR 3 LINES:
 		// The variant count is specific for the
 		// graph defined this test case.
-		verifyLabellings(graph, labeller, 24);
+		verifyLabellings(graph, labeller, 6);
 	}
 
 	@Test
@@ -185,7 +185,7 @@ public void shouldLabelGraphWithNonResolvableAmbiguityInALoop() {
 		// NO CHECKSTYLE MagicNumber FOR 3 LINES:
 		// The variant count is specific for the
 		// graph defined this test case.
-		verifyLabellings(graph, labeller, 6);
+		verifyLabellings(graph, labeller, 3);
 	}
 
 	@Test
@@ -206,7 +206,7 @@ public void shouldLabelGraphWithMultipleComponentsAndANonResolvableAmbiguity() {
 		// NO CHECKSTYLE MagicNumber FOR 3 LINES:
 		// The variant count is specific for the
 		// graph defined this test case.
-		verifyLabellings(graph, labeller, 10);
+		verifyLabellings(graph, labeller, 2);
 	}
 
 	@Test
@@ -220,6 +220,86 @@ public void shouldAllowNullAsNodeName() {
 		verifyLabellings(graph, labeller, 1);
 	}
 
+	@Test
+	public void shouldOnlyLabelFrontierWithGroundDecomposition() {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME1);
+		graph.addVertex("3", NAME2);
+		graph.addDirectedEdge("3", "1", NAME3);
+		graph.addDirectedEdge("3", "2", NAME3);
+		graph.addDirectedEdge("1", "2", NAME4);
+
+		final GraphLabeller labeller = new GraphLabeller(CompactGraph.create(graph.getNodeList()),
+				LabellingOptions.DEFAULT.withGroundDecomposition(true),
+				NoOpLabellingListener.INSTANCE, BudgetMonitor.UNLIMITED);
+		final Labelling labelling = labeller.next();
+
+		verifyLabelling(graph, labelling);
+		for (final Node<?> node : graph.getNodes()) {
+			final boolean unique = NAME2.equals(node.getName()) || NAME4.equals(node.getName());
+			assertEquals(unique, Label.isGround(labelling.getLabel(node)));
+		}
+		assertFalse(labeller.hasNext());
+	}
+
+	@Test
+	public void shouldCreateLabelsIndependentOfNodeOrder() {
+		final Graph<String, String, String> reversedGraph = new Graph<>();
+		for (int i = 0; i < 5; ++i) {
+			graph.addVertex(Integer.toString(i), NAME1);
+			reversedGraph.addVertex(Integer.toString(4 - i), NAME1);
+		}
+		for (int i = 0; i < 5; ++i) {
+			graph.addDirectedEdge(Integer.toString(i), Integer.toString((i + 1) % 5), NAME2);
+			reversedGraph.addDirectedEdge(Integer.toString(4 - i), Integer.toString((5 - i) % 5),
+					NAME2);
+		}
+
+		final Labelling labelling = new GraphLabeller(graph).next();
+		final Labelling reversedLabelling = new GraphLabeller(reversedGraph).next();
+
+		assertEquals(labelling.size(), reversedLabelling.size());
+		for (int i = 0; i < labelling.size(); ++i) {
+			assertEquals(labelling.getLabel(labelling.getNodesByLabel()[i]),
+					reversedLabelling.getLabel(reversedLabelling.getNodesByLabel()[i]));
+		}
+		assertTrue(labelling.matches(reversedLabelling));
+	}
+
+	@Test
+	public void shouldCreateSameLabellingsWithReusedWorkspace() {
+		for (int i = 0; i < 20; ++i) {
+			graph.addVertex(Integer.toString(i), NAME1);
+		}
+		for (int i = 0; i < 20; ++i) {
+			graph.addDirectedEdge(Integer.toString(i), Integer.toString((i + 1) % 20), NAME2);
+		}
+		final Graph<String, String, String> smallGraph = new Graph<>();
+		smallGraph.addVertex("1", NAME1);
+		smallGraph.addVertex("2", NAME1);
+		final CompactGraph compactGraph = CompactGraph.create(graph.getNodeList());
+		final LabellerWorkspace workspace = new LabellerWorkspace();
+
+		final GraphLabeller smallLabeller = new GraphLabeller(
+				CompactGraph.create(smallGraph.getNodeList()), LabellingOptions.DEFAULT,
+				NoOpLabellingListener.INSTANCE, BudgetMonitor.UNLIMITED, workspace);
+		verifyLabellings(smallGraph, smallLabeller, 2);
+		final GraphLabeller labeller = new GraphLabeller(compactGraph, LabellingOptions.DEFAULT,
+				NoOpLabellingListener.INSTANCE, BudgetMonitor.UNLIMITED, workspace);
+		final GraphLabeller expectedLabeller = new GraphLabeller(compactGraph,
+				LabellingOptions.DEFAULT, NoOpLabellingListener.INSTANCE, BudgetMonitor.UNLIMITED);
+
+		while (expectedLabeller.hasNext()) {
+			assertTrue(labeller.hasNext());
+			final Labelling expected = expectedLabeller.next();
+			final Labelling labelling = labeller.next();
+			for (int node = 0; node < compactGraph.getNodeCount(); ++node) {
+				assertEquals(expected.getLabel(node), labelling.getLabel(node));
+			}
+		}
+		assertFalse(labeller.hasNext());
+	}
+
 	private static void verifyLabellings(final Graph<?, ?, ?> graph,
 			final GraphLabeller labeller, final int variants) {
 
@@ -231,18 +311,17 @@ private static void verifyLabellings(final Graph<?, ?, ?> graph,
 	}
 
 	private static void verifyLabelling(final Graph<?, ?, ?> graph,
-			final Map<Node<?>, Label> labelling) {
+			final Labelling labelling) {
 
-		final Set<Label> labels = new HashSet<>();
+		final Set<Long> labels = new HashSet<>();
 
+		assertEquals("Number of labels does not match number of nodes",
+				graph.getNodes().size(), labelling.size());
 		for (final Node<?> node : graph.getNodes()) {
-			assertTrue("Node " + node.toString() + " has not been labelled",
-					labelling.containsKey(node));
-			assertTrue("Label " + labelling.get(node).toString() +  " is not unique",
-					labels.add(labelling.get(node)));
-			labelling.remove(node);
+			final long label = labelling.getLabel(node);
+			assertTrue("Label " + Label.toString(label) +  " is not unique",
+					labels.add(Long.valueOf(label)));
 		}
-		assertTrue("Supernumerous labels found", labelling.isEmpty());
 	}
 
 }
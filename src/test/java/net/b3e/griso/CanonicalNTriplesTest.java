@@ -0,0 +1,241 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for class {@link CanonicalNTriples}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class CanonicalNTriplesTest {
+
+	private static final String ALICE = "<http://example.org/alice>";
+	private static final String KNOWS = "<http://xmlns.com/foaf/0.1/knows>";
+	private static final String NAME = "<http://xmlns.com/foaf/0.1/name>";
+	private static final String LITERAL = "\"Bob\"";
+
+	@Test
+	public void shouldWriteSortedTriplesWithCanonicalBlankNodes() throws IOException {
+		final Graph<String, String, String> graph = new Graph<>();
+		graph.addVertex("alice", ALICE);
+		graph.addVertex("b1");
+		graph.addVertex("bob", LITERAL);
+		graph.addDirectedEdge("alice", "b1", KNOWS);
+		graph.addDirectedEdge("b1", "bob", NAME);
+
+		final StringBuilder out = new StringBuilder();
+		CanonicalNTriples.write(graph, out);
+
+		assertEquals(ALICE + " " + KNOWS + " _:c14n0 .\n"
+				+ "_:c14n0 " + NAME + " " + LITERAL + " .\n", out.toString());
+	}
+
+	@Test
+	public void shouldSortTriplesOfVerticesWithEqualNamesByPredicateAndObject()
+			throws IOException {
+		final Graph<String, String, String> graph = new Graph<>();
+		graph.addVertex("bob", LITERAL);
+		graph.addVertex("alice2", ALICE);
+		graph.addVertex("alice1", ALICE);
+		graph.addDirectedEdge("alice2", "bob", NAME);
+		graph.addDirectedEdge("alice1", "bob", KNOWS);
+		graph.addDirectedEdge("alice2", "alice1", KNOWS);
+
+		final StringBuilder out = new StringBuilder();
+		CanonicalNTriples.write(graph, out);
+
+		assertEquals(ALICE + " " + KNOWS + " " + LITERAL + " .\n"
+				+ ALICE + " " + KNOWS + " " + ALICE + " .\n"
+				+ ALICE + " " + NAME + " " + LITERAL + " .\n", out.toString());
+	}
+
+	@Test
+	public void shouldProduceTheSameOutputForIsomorphGraphs() throws IOException {
+		final Graph<String, String, String> graph1 = new Graph<>();
+		graph1.addVertex("alice", ALICE);
+		graph1.addVertex("b1");
+		graph1.addVertex("b2");
+		graph1.addVertex("b3");
+		graph1.addDirectedEdge("alice", "b1", KNOWS);
+		graph1.addDirectedEdge("b1", "b2", KNOWS);
+		graph1.addDirectedEdge("b2", "b1", KNOWS);
+		graph1.addDirectedEdge("b3", "alice", KNOWS);
+
+		final Graph<String, String, String> graph2 = new Graph<>();
+		graph2.addVertex("x3");
+		graph2.addVertex("x2");
+		graph2.addVertex("x1");
+		graph2.addVertex("alice", ALICE);
+		graph2.addDirectedEdge("x3", "alice", KNOWS);
+		graph2.addDirectedEdge("x2", "x1", KNOWS);
+		graph2.addDirectedEdge("x1", "x2", KNOWS);
+		graph2.addDirectedEdge("alice", "x1", KNOWS);
+
+		final StringBuilder out1 = new StringBuilder();
+		final StringBuilder out2 = new StringBuilder();
+		final byte[] digest1 = CanonicalNTriples.write(graph1, out1);
+		final byte[] digest2 = CanonicalNTriples.write(graph2, out2);
+
+		assertEquals(out1.toString(), out2.toString());
+		assertArrayEquals(digest1, digest2);
+		assertArrayEquals(digest1, CanonicalNTriples.digest(graph2));
+	}
+
+	@Test
+	public void shouldProduceTheSameOutputForSymmetricBlankNodeStructures() throws IOException {
+		final Graph<String, String, String> graph1 = new Graph<>();
+		addBlankCycle(graph1, "a", 3);
+		addBlankCycle(graph1, "b", 6);
+
+		final Graph<String, String, String> graph2 = new Graph<>();
+		addBlankCycle(graph2, "x", 6);
+		addBlankCycle(graph2, "y", 3);
+
+		final StringBuilder out1 = new StringBuilder();
+		final StringBuilder out2 = new StringBuilder();
+		CanonicalNTriples.write(graph1, out1);
+		CanonicalNTriples.write(graph2, out2);
+
+		assertEquals(out1.toString(), out2.toString());
+	}
+
+	@Test
+	public void shouldPinOutputForSymmetricBlankNodesAttachedToNamedVertex()
+			throws IOException {
+		final Graph<String, String, String> graph1 = new Graph<>();
+		graph1.addVertex("alice", ALICE);
+		addBlankCycle(graph1, "a", 3);
+		addBlankCycle(graph1, "b", 6);
+		graph1.addDirectedEdge("alice", "a0", KNOWS);
+		graph1.addDirectedEdge("alice", "b0", KNOWS);
+
+		final Graph<String, String, String> graph2 = new Graph<>();
+		addBlankCycle(graph2, "x", 6);
+		addBlankCycle(graph2, "y", 3);
+		graph2.addVertex("alice", ALICE);
+		graph2.addDirectedEdge("alice", "y2", KNOWS);
+		graph2.addDirectedEdge("alice", "x4", KNOWS);
+
+		final StringBuilder out1 = new StringBuilder();
+		final StringBuilder out2 = new StringBuilder();
+		CanonicalNTriples.write(graph1, out1);
+		CanonicalNTriples.write(graph2, out2);
+
+		final String expected = ALICE + " " + KNOWS + " _:c14n3 .\n"
+				+ ALICE + " " + KNOWS + " _:c14n6 .\n"
+				+ "_:c14n0 " + KNOWS + " _:c14n6 .\n"
+				+ "_:c14n1 " + KNOWS + " _:c14n5 .\n"
+				+ "_:c14n2 " + KNOWS + " _:c14n8 .\n"
+				+ "_:c14n3 " + KNOWS + " _:c14n4 .\n"
+				+ "_:c14n4 " + KNOWS + " _:c14n2 .\n"
+				+ "_:c14n5 " + KNOWS + " _:c14n3 .\n"
+				+ "_:c14n6 " + KNOWS + " _:c14n7 .\n"
+				+ "_:c14n7 " + KNOWS + " _:c14n0 .\n"
+				+ "_:c14n8 " + KNOWS + " _:c14n1 .\n";
+		assertEquals(expected, out1.toString());
+		assertEquals(expected, out2.toString());
+	}
+
+	@Test
+	public void shouldProduceDifferentDigestsForDifferentGraphs() {
+		final Graph<String, String, String> graph1 = new Graph<>();
+		graph1.addVertex("alice", ALICE);
+		graph1.addVertex("b1");
+		graph1.addDirectedEdge("alice", "b1", KNOWS);
+
+		final Graph<String, String, String> graph2 = new Graph<>();
+		graph2.addVertex("alice", ALICE);
+		graph2.addVertex("b1");
+		graph2.addDirectedEdge("b1", "alice", KNOWS);
+
+		assertFalse(Arrays.equals(CanonicalNTriples.digest(graph1),
+				CanonicalNTriples.digest(graph2)));
+	}
+
+	@Test
+	public void shouldHandleManyInterchangeableBlankNodes() {
+		final int blankNodeCount = 30;
+		final Graph<String, String, String> graph1 = new Graph<>();
+		final Graph<String, String, String> graph2 = new Graph<>();
+		graph1.addVertex("alice", ALICE);
+		graph1.addVertex("bob", LITERAL);
+		for (int i = 0; i < blankNodeCount; ++i) {
+			graph1.addVertex("b" + i);
+		}
+		for (int i = blankNodeCount - 1; i >= 0; --i) {
+			graph2.addVertex("x" + i);
+		}
+		graph2.addVertex("bob", LITERAL);
+		graph2.addVertex("alice", ALICE);
+		connectBlankNodes(graph2, "x", blankNodeCount);
+		connectBlankNodes(graph1, "b", blankNodeCount);
+
+		assertArrayEquals(CanonicalNTriples.digest(graph1), CanonicalNTriples.digest(graph2));
+	}
+
+	@Test
+	public void shouldReturnNullIfBudgetIsExhausted() throws IOException {
+		final Graph<String, String, String> graph = new Graph<>();
+		addBlankCycle(graph, "a", 3);
+
+		final StringBuilder out = new StringBuilder();
+
+		assertNull(CanonicalNTriples.write(graph, SearchBudget.UNLIMITED.withMaxSearchNodes(0),
+				out));
+		assertEquals("", out.toString());
+		assertNull(CanonicalNTriples.digest(graph, SearchBudget.UNLIMITED.withMaxSearchNodes(0)));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectUnnamedEdges() {
+		final Graph<String, String, String> graph = new Graph<>();
+		graph.addVertex("alice", ALICE);
+		graph.addVertex("b1");
+		graph.addDirectedEdge("alice", "b1");
+
+		CanonicalNTriples.digest(graph);
+	}
+
+	private static void connectBlankNodes(final Graph<String, String, String> graph,
+			final String prefix, final int count) {
+		for (int i = 0; i < count; ++i) {
+			graph.addDirectedEdge("alice", prefix + i, KNOWS);
+			graph.addDirectedEdge(prefix + i, "bob", NAME);
+		}
+	}
+
+	private static void addBlankCycle(final Graph<String, String, String> graph,
+			final String prefix, final int length) {
+		for (int i = 0; i < length; ++i) {
+			graph.addVertex(prefix + i);
+		}
+		for (int i = 0; i < length; ++i) {
+			graph.addDirectedEdge(prefix + i, prefix + ((i + 1) % length), KNOWS);
+		}
+	}
+
+}
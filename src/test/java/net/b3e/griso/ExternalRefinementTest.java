@@ -0,0 +1,168 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for class {@link ExternalRefinement}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class ExternalRefinementTest {
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+	private static final String NAME3 = "L3";
+
+	private static final int VERTEX_COUNT = 60;
+	private static final int EDGE_COUNT = 150;
+	private static final int SMALL_SORT_BUFFER = 7;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private ExternalRefinement<String, String> refinement;
+
+	@Before
+	public void setup() throws IOException {
+		refinement = new ExternalRefinement<>(folder.getRoot().toPath());
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		refinement.close();
+	}
+
+	@Test
+	public void shouldComputeSameColoursAsGraphLabeller() throws IOException {
+		final Graph<String, String, String> graph = new Graph<>();
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addVertex("3", NAME2);
+		graph.addVertex("4", NAME2);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addDirectedEdge("2", "3", NAME3);
+		graph.addUndirectedEdge("3", "4", NAME1);
+		graph.addDirectedEdge("4", "1");
+		graph.addUndirectedEdge("2", "4");
+
+		refinement.addVertex(NAME1);
+		refinement.addVertex(NAME2);
+		refinement.addVertex(NAME2);
+		refinement.addVertex(NAME2);
+		refinement.addDirectedEdge(0, 1, NAME3);
+		refinement.addDirectedEdge(1, 2, NAME3);
+		refinement.addUndirectedEdge(2, 3, NAME1);
+		refinement.addDirectedEdge(3, 0);
+		refinement.addUndirectedEdge(1, 3);
+		refinement.refine();
+
+		final Labelling labelling = new GraphLabeller(
+				CompactGraph.create(graph.getNodeList(), EdgeRepresentation.LABELLED_CONNECTIONS),
+				LabellingOptions.DEFAULT, NoOpLabellingListener.INSTANCE,
+				BudgetMonitor.UNLIMITED).next();
+
+		assertEquals(4, refinement.getColourCount());
+		for (int vertex = 0; vertex < 4; ++vertex) {
+			final long label = labelling.getLabel(vertex);
+			assertFalse(Label.isGenerated(label));
+			assertEquals(Label.getValue(label), refinement.getColour(vertex));
+		}
+	}
+
+	@Test
+	public void shouldNotSplitSymmetricVertices() throws IOException {
+		for (int i = 0; i < 4; ++i) {
+			refinement.addVertex(NAME1);
+		}
+		for (int i = 0; i < 4; ++i) {
+			refinement.addDirectedEdge(i, (i + 1) % 4, NAME2);
+		}
+		refinement.refine();
+
+		assertEquals(1, refinement.getColourCount());
+	}
+
+	@Test
+	public void shouldSpillSortRunsToDisk() throws IOException {
+		final ExternalRefinement<String, String> spillingRefinement =
+				new ExternalRefinement<>(folder.getRoot().toPath(), SMALL_SORT_BUFFER);
+		try {
+			addRandomGraph(refinement);
+			addRandomGraph(spillingRefinement);
+			refinement.refine();
+			spillingRefinement.refine();
+
+			assertEquals(refinement.getColourCount(), spillingRefinement.getColourCount());
+			for (int vertex = 0; vertex < VERTEX_COUNT; ++vertex) {
+				assertEquals(refinement.getColour(vertex), spillingRefinement.getColour(vertex));
+			}
+		} finally {
+			spillingRefinement.close();
+		}
+	}
+
+	@Test
+	public void shouldDeleteTemporaryFilesOnClose() throws IOException {
+		refinement.close();
+		final ExternalRefinement<String, String> spillingRefinement =
+				new ExternalRefinement<>(folder.getRoot().toPath(), SMALL_SORT_BUFFER);
+		addRandomGraph(spillingRefinement);
+		spillingRefinement.refine();
+		spillingRefinement.close();
+
+		assertEquals(0, folder.getRoot().list().length);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldFailIfVertexDoesNotExist() throws IOException {
+		refinement.addVertex(NAME1);
+		refinement.addDirectedEdge(0, 1);
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void shouldNotReturnColoursBeforeRefinement() throws IOException {
+		refinement.addVertex(NAME1);
+		refinement.getColour(0);
+	}
+
+	private static void addRandomGraph(final ExternalRefinement<String, String> target)
+			throws IOException {
+		for (int i = 0; i < VERTEX_COUNT; ++i) {
+			target.addVertex(NAME1);
+		}
+		int seed = 1;
+		for (int i = 0; i < EDGE_COUNT; ++i) {
+			seed = seed * 1103515245 + 12345;
+			final int from = (seed >>> 8) % VERTEX_COUNT;
+			seed = seed * 1103515245 + 12345;
+			final int to = (seed >>> 8) % VERTEX_COUNT;
+			target.addDirectedEdge(from, to, NAME2);
+		}
+	}
+
+}
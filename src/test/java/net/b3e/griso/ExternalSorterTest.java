@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for class {@link ExternalSorter}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class ExternalSorterTest {
+
+	private static final int VALUE_COUNT = 200;
+	private static final int SMALL_BUFFER = 3;
+	private static final int SMALL_FAN_IN = 2;
+	private static final long SEED = 42;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldMergeRunsInSeveralPassesIfFanInIsExceeded() throws IOException {
+		final Random random = new Random(SEED);
+		try (ExternalSorter sorter = new ExternalSorter(folder.getRoot().toPath(),
+				SMALL_BUFFER, 1, SMALL_FAN_IN)) {
+			for (int i = 0; i < VALUE_COUNT; ++i) {
+				sorter.add(random.nextLong());
+			}
+			final ExternalSorter.SortedValues sorted = sorter.sort();
+
+			assertTrue(sorter.getRunCount() <= SMALL_FAN_IN);
+			long previous = Long.MIN_VALUE;
+			for (int i = 0; i < VALUE_COUNT; ++i) {
+				assertTrue(sorted.hasNext());
+				final long value = sorted.next();
+				assertTrue(previous <= value);
+				previous = value;
+			}
+			assertFalse(sorted.hasNext());
+		}
+		assertEquals(0, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void shouldOrderEqualValuesByPayload() throws IOException {
+		final Random random = new Random(SEED);
+		try (ExternalSorter sorter = new ExternalSorter(folder.getRoot().toPath(),
+				SMALL_BUFFER, 2, SMALL_FAN_IN)) {
+			for (int i = 0; i < VALUE_COUNT; ++i) {
+				sorter.add(random.nextInt(10), random.nextLong());
+			}
+			final ExternalSorter.SortedValues sorted = sorter.sort();
+
+			long previousValue = Long.MIN_VALUE;
+			long previousPayload = Long.MIN_VALUE;
+			for (int i = 0; i < VALUE_COUNT; ++i) {
+				final long value = sorted.next();
+				final long payload = sorted.getPayload();
+				assertTrue(previousValue < value
+						|| (previousValue == value && previousPayload <= payload));
+				previousValue = value;
+				previousPayload = payload;
+			}
+			assertFalse(sorted.hasNext());
+		}
+	}
+
+	@Test
+	public void shouldSortPairsInMemory() throws IOException {
+		try (ExternalSorter sorter = ExternalSorter.withPayloads(folder.getRoot().toPath(),
+				VALUE_COUNT)) {
+			sorter.add(2, 1);
+			sorter.add(1, 5);
+			sorter.add(1, 3);
+			final ExternalSorter.SortedValues sorted = sorter.sort();
+
+			assertEquals(1, sorted.next());
+			assertEquals(3, sorted.getPayload());
+			assertEquals(1, sorted.next());
+			assertEquals(5, sorted.getPayload());
+			assertEquals(2, sorted.next());
+			assertEquals(1, sorted.getPayload());
+			assertFalse(sorted.hasNext());
+			assertEquals(0, sorter.getRunCount());
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link FrozenGraph}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class FrozenGraphTest {
+
+	private static final String ISOMORPHISM_EXPECTED = "Graphs should be isomorph";
+	private static final String NO_ISOMORPHISM_EXPECTED = "Graphs should not be isomorph";
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+	private static final String NAME3 = "L3";
+
+	private static final int THREAD_COUNT = 4;
+	private static final int TASK_COUNT = 100;
+
+	private Graph<String, String, String> graph1;
+	private Graph<String, String, String> graph2;
+
+	@Before
+	public void setup() {
+		graph1 = new Graph<>();
+		graph2 = new Graph<>();
+	}
+
+	@Test
+	public void shouldClassifyIsomorphGraphsCorrectly() {
+		createSymmetricGraph(graph1, "1", "2", "3");
+		createSymmetricGraph(graph2, "c", "b", "a");
+
+		final FrozenGraph<String, String, String> frozen1 = graph1.freeze();
+		final FrozenGraph<String, String, String> frozen2 = graph2.freeze();
+
+		assertEquals(frozen1.getInvariant(), frozen2.getInvariant());
+		assertTrue(ISOMORPHISM_EXPECTED, frozen1.isIsomorphism(frozen2));
+		assertTrue(ISOMORPHISM_EXPECTED, frozen2.isIsomorphism(frozen1));
+	}
+
+	@Test
+	public void shouldClassifyNoneIsomorphGraphsCorrectly() {
+		createSymmetricGraph(graph1, "1", "2", "3");
+		createSymmetricGraph(graph2, "a", "b", "c");
+		graph2.addDirectedEdge("b", "c");
+
+		assertFalse(NO_ISOMORPHISM_EXPECTED, graph1.freeze().isIsomorphism(graph2.freeze()));
+		assertFalse(NO_ISOMORPHISM_EXPECTED, graph2.freeze().isIsomorphism(graph1.freeze()));
+	}
+
+	@Test
+	public void shouldNotBeAffectedByChangesToTheGraph() {
+		createSymmetricGraph(graph1, "1", "2", "3");
+		createSymmetricGraph(graph2, "a", "b", "c");
+
+		final FrozenGraph<String, String, String> frozen1 = graph1.freeze();
+		final FrozenGraph<String, String, String> frozen2 = graph2.freeze();
+		graph2.addDirectedEdge("b", "c");
+		graph2.addVertex("d", NAME1);
+
+		assertTrue(ISOMORPHISM_EXPECTED, frozen1.isIsomorphism(frozen2));
+	}
+
+	@Test
+	public void shouldCompareGraphsWithUniqueVertexNamesByName() {
+		createUniquelyNamedGraph(graph1, NAME1, NAME2);
+		createUniquelyNamedGraph(graph2, NAME1, NAME2);
+		final Graph<String, String, String> graph3 = new Graph<>();
+		createUniquelyNamedGraph(graph3, NAME2, NAME1);
+
+		assertTrue(ISOMORPHISM_EXPECTED, graph1.freeze().isIsomorphism(graph2.freeze()));
+		assertTrue(ISOMORPHISM_EXPECTED, graph1.isIsomorphism(graph2));
+		assertFalse(NO_ISOMORPHISM_EXPECTED, graph1.freeze().isIsomorphism(graph3.freeze()));
+		assertFalse(NO_ISOMORPHISM_EXPECTED, graph1.isIsomorphism(graph3));
+	}
+
+	@Test
+	public void shouldFallBackToLabellingIfHashCodesOfNamesCollide() {
+		// "Aa" and "BB" have the same hash code:
+		createUniquelyNamedGraph(graph1, "Aa", "BB");
+		createUniquelyNamedGraph(graph2, "Aa", "BB");
+		final Graph<String, String, String> graph3 = new Graph<>();
+		createUniquelyNamedGraph(graph3, "BB", "Aa");
+
+		assertTrue(ISOMORPHISM_EXPECTED, graph1.freeze().isIsomorphism(graph2.freeze()));
+		assertFalse(NO_ISOMORPHISM_EXPECTED, graph1.freeze().isIsomorphism(graph3.freeze()));
+	}
+
+	@Test
+	public void shouldKeepLabellingsForEachOptions() {
+		createSymmetricGraph(graph1, "1", "2", "3");
+		createSymmetricGraph(graph2, "a", "b", "c");
+		final FrozenGraph<String, String, String> frozen1 = graph1.freeze();
+		final FrozenGraph<String, String, String> frozen2 = graph2.freeze();
+		final LabellingOptions otherOptions = LabellingOptions.DEFAULT.withPairRefinement(THREAD_COUNT);
+
+		final long firstSearchNodes = countSearchNodes(frozen1, frozen2, LabellingOptions.DEFAULT);
+		final long cachedSearchNodes = countSearchNodes(frozen1, frozen2, LabellingOptions.DEFAULT);
+		countSearchNodes(frozen1, frozen2, otherOptions);
+
+		assertTrue(cachedSearchNodes < firstSearchNodes);
+		assertEquals(cachedSearchNodes,
+				countSearchNodes(frozen1, frozen2, LabellingOptions.DEFAULT));
+	}
+
+	@Test
+	public void shouldSupportConcurrentComparisons() throws Exception {
+		createSymmetricGraph(graph1, "1", "2", "3");
+		createSymmetricGraph(graph2, "a", "b", "c");
+		final FrozenGraph<String, String, String> frozen1 = graph1.freeze();
+		final FrozenGraph<String, String, String> frozen2 = graph2.freeze();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+		try {
+			final List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < TASK_COUNT; ++i) {
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						return Boolean.valueOf(frozen1.isIsomorphism(frozen2));
+					}
+				}));
+			}
+			for (final Future<Boolean> result : results) {
+				assertTrue(ISOMORPHISM_EXPECTED, result.get().booleanValue());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void createUniquelyNamedGraph(final Graph<String, String, String> graph,
+			final String name1, final String name2) {
+		graph.addVertex("1", name1);
+		graph.addVertex("2", name2);
+		graph.addVertex("3", NAME3);
+		graph.addDirectedEdge("1", "2", NAME1);
+		graph.addDirectedEdge("1", "2", NAME1);
+		graph.addDirectedEdge("3", "1", NAME2);
+		graph.addUndirectedEdge("2", "3", NAME2);
+	}
+
+	private static long countSearchNodes(final FrozenGraph<String, String, String> frozen1,
+			final FrozenGraph<String, String, String> frozen2, final LabellingOptions options) {
+		final LabellingStatistics statistics = new LabellingStatistics();
+		assertEquals(IsomorphismResult.ISOMORPHIC, frozen1.checkIsomorphism(frozen2, options,
+				SearchBudget.UNLIMITED, statistics));
+		return statistics.getSearchNodes();
+	}
+
+	private static void createSymmetricGraph(final Graph<String, String, String> graph,
+			final String id1, final String id2, final String id3) {
+		graph.addVertex(id1, NAME1);
+		graph.addVertex(id2, NAME2);
+		graph.addVertex(id3, NAME2);
+		graph.addDirectedEdge(id1, id2, NAME3);
+		graph.addDirectedEdge(id1, id3, NAME3);
+	}
+
+}
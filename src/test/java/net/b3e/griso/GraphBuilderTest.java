@@ -0,0 +1,280 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link GraphBuilder}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class GraphBuilderTest {
+
+	private static final String ISOMORPHISM_EXPECTED = "Graphs should be isomorph";
+	private static final String NO_ISOMORPHISM_EXPECTED = "Graphs should not be isomorph";
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+	private static final String NAME3 = "L3";
+
+	private Graph<String, String, String> graph;
+	private GraphBuilder<String, String> builder;
+
+	@Before
+	public void setup() {
+		graph = new Graph<>();
+		builder = new GraphBuilder<>(3, 2);
+	}
+
+	@Test
+	public void shouldBuildGraphsEquivalentToGraph() {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addVertex("3", NAME2);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addUndirectedEdge("1", "3", NAME3);
+		graph.addDirectedEdge("3", "2");
+
+		final int vertex1 = builder.addVertex(NAME1);
+		final int vertex2 = builder.addVertex(NAME2);
+		final int vertex3 = builder.addVertex(NAME2);
+		builder.addDirectedEdge(vertex1, vertex2, NAME3);
+		builder.addUndirectedEdge(vertex1, vertex3, NAME3);
+		builder.addDirectedEdge(vertex3, vertex2);
+
+		final FrozenGraph<Integer, String, String> built = builder.build();
+
+		assertEquals(graph.freeze().getInvariant(), built.getInvariant());
+		assertTrue(ISOMORPHISM_EXPECTED, graph.freeze().isIsomorphism(built));
+		assertTrue(ISOMORPHISM_EXPECTED, built.isIsomorphism(graph.freeze()));
+	}
+
+	@Test
+	public void shouldAddEdgesInBulk() {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addVertex("3", NAME2);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addDirectedEdge("1", "3", NAME3);
+
+		builder.addVertex(NAME1);
+		builder.addVertex(NAME2);
+		builder.addVertex(NAME2);
+		builder.addDirectedEdges(new int[] {0, 0}, new int[] {1, 2},
+				new String[] {NAME3, NAME3});
+
+		assertTrue(ISOMORPHISM_EXPECTED, builder.build().isIsomorphism(graph.freeze()));
+	}
+
+	@Test
+	public void shouldAddUnnamedEdgesInBulk() {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addVertex("3", NAME2);
+		graph.addDirectedEdge("1", "2");
+		graph.addDirectedEdge("2", "3");
+
+		builder.addVertex(NAME1);
+		builder.addVertex(NAME2);
+		builder.addVertex(NAME2);
+		builder.addDirectedEdges(new int[] {0, 2}, new int[] {1, 1}, null);
+
+		assertFalse(NO_ISOMORPHISM_EXPECTED, builder.build().isIsomorphism(graph.freeze()));
+	}
+
+	@Test
+	public void shouldRepresentNamedEdgesAsLabelledConnections() {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addVertex("3", NAME2);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addUndirectedEdge("1", "3", NAME3);
+		graph.addDirectedEdge("3", "2");
+
+		final GraphBuilder<String, String> labelledBuilder =
+				new GraphBuilder<>(3, 2, EdgeRepresentation.LABELLED_CONNECTIONS);
+		final int vertex1 = labelledBuilder.addVertex(NAME1);
+		final int vertex2 = labelledBuilder.addVertex(NAME2);
+		final int vertex3 = labelledBuilder.addVertex(NAME2);
+		labelledBuilder.addDirectedEdge(vertex1, vertex2, NAME3);
+		labelledBuilder.addUndirectedEdge(vertex1, vertex3, NAME3);
+		labelledBuilder.addDirectedEdge(vertex3, vertex2);
+
+		final FrozenGraph<Integer, String, String> built = labelledBuilder.build();
+		final FrozenGraph<String, String, String> frozen =
+				graph.freeze(EdgeRepresentation.LABELLED_CONNECTIONS);
+
+		assertEquals(3, built.getNodeCount());
+		assertEquals(frozen.getInvariant(), built.getInvariant());
+		assertTrue(ISOMORPHISM_EXPECTED, frozen.isIsomorphism(built));
+		assertTrue(ISOMORPHISM_EXPECTED, built.isIsomorphism(frozen));
+	}
+
+	@Test
+	public void shouldDistinguishEdgeNamesInLabelledConnections() {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addVertex("3", NAME2);
+		graph.addDirectedEdge("1", "2", NAME1);
+		graph.addDirectedEdge("1", "3", NAME3);
+
+		final Graph<String, String, String> otherGraph = new Graph<>();
+		otherGraph.addVertex("1", NAME1);
+		otherGraph.addVertex("2", NAME2);
+		otherGraph.addVertex("3", NAME2);
+		otherGraph.addDirectedEdge("1", "2", NAME3);
+		otherGraph.addDirectedEdge("1", "3", NAME3);
+
+		assertFalse(NO_ISOMORPHISM_EXPECTED,
+				graph.freeze(EdgeRepresentation.LABELLED_CONNECTIONS).isIsomorphism(
+						otherGraph.freeze(EdgeRepresentation.LABELLED_CONNECTIONS)));
+	}
+
+	@Test
+	public void shouldDistinguishDirectedAndUndirectedLabelledConnections() {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addDirectedEdge("2", "1", NAME3);
+
+		final Graph<String, String, String> otherGraph = new Graph<>();
+		otherGraph.addVertex("1", NAME1);
+		otherGraph.addVertex("2", NAME2);
+		otherGraph.addUndirectedEdge("1", "2", NAME3);
+
+		assertFalse(NO_ISOMORPHISM_EXPECTED,
+				graph.freeze(EdgeRepresentation.LABELLED_CONNECTIONS).isIsomorphism(
+						otherGraph.freeze(EdgeRepresentation.LABELLED_CONNECTIONS)));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldNotCompareGraphsWithDifferentEdgeRepresentations() {
+		graph.addVertex("1", NAME1);
+		graph.freeze().isIsomorphism(graph.freeze(EdgeRepresentation.LABELLED_CONNECTIONS));
+	}
+
+	@Test
+	public void shouldStoreParallelEdgesOnce() {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addDirectedEdge("1", "2");
+		graph.addDirectedEdge("1", "2");
+		graph.addDirectedEdge("1", "2");
+
+		final int vertex1 = builder.addVertex(NAME1);
+		final int vertex2 = builder.addVertex(NAME2);
+		builder.addParallelEdges(vertex1, vertex2, 2);
+		builder.addDirectedEdge(vertex1, vertex2);
+
+		final FrozenGraph<Integer, String, String> built = builder.build();
+
+		assertEquals(3, built.getConnectionCount());
+		assertEquals(graph.freeze().getInvariant(), built.getInvariant());
+		assertTrue(ISOMORPHISM_EXPECTED, built.isIsomorphism(graph.freeze()));
+
+		graph.addDirectedEdge("1", "2");
+		assertFalse(NO_ISOMORPHISM_EXPECTED, built.isIsomorphism(graph.freeze()));
+	}
+
+	@Test
+	public void shouldCompareMultiplicitiesOfLabelledConnections() {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addDirectedEdge("1", "2", NAME1);
+
+		final GraphBuilder<String, String> labelledBuilder =
+				new GraphBuilder<>(2, 3, EdgeRepresentation.LABELLED_CONNECTIONS);
+		final int vertex1 = labelledBuilder.addVertex(NAME1);
+		final int vertex2 = labelledBuilder.addVertex(NAME2);
+		labelledBuilder.addDirectedEdge(vertex1, vertex2, NAME3);
+		labelledBuilder.addDirectedEdge(vertex1, vertex2, NAME1);
+		labelledBuilder.addDirectedEdge(vertex1, vertex2, NAME1);
+
+		assertFalse(NO_ISOMORPHISM_EXPECTED, labelledBuilder.build().isIsomorphism(
+				graph.freeze(EdgeRepresentation.LABELLED_CONNECTIONS)));
+
+		labelledBuilder.addDirectedEdge(vertex1, vertex2, NAME3);
+		graph.addDirectedEdge("1", "2", NAME1);
+
+		assertTrue(ISOMORPHISM_EXPECTED, labelledBuilder.build().isIsomorphism(
+				graph.freeze(EdgeRepresentation.LABELLED_CONNECTIONS)));
+	}
+
+	@Test
+	public void shouldStoreGraphsOffHeap() {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addVertex("3", NAME2);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addUndirectedEdge("1", "3", NAME3);
+		graph.addDirectedEdge("3", "2");
+
+		final GraphBuilder<String, String> offHeapBuilder = new GraphBuilder<>(3, 2,
+				EdgeRepresentation.LABELLED_CONNECTIONS, GraphStorage.OFF_HEAP);
+		final int vertex1 = offHeapBuilder.addVertex(NAME1);
+		final int vertex2 = offHeapBuilder.addVertex(NAME2);
+		final int vertex3 = offHeapBuilder.addVertex(NAME2);
+		offHeapBuilder.addDirectedEdge(vertex1, vertex2, NAME3);
+		offHeapBuilder.addUndirectedEdge(vertex1, vertex3, NAME3);
+		offHeapBuilder.addDirectedEdge(vertex1, vertex2, NAME3);
+		offHeapBuilder.addDirectedEdge(vertex3, vertex2);
+
+		final FrozenGraph<Integer, String, String> built = offHeapBuilder.build();
+		final FrozenGraph<String, String, String> frozen =
+				graph.freeze(EdgeRepresentation.LABELLED_CONNECTIONS, GraphStorage.OFF_HEAP);
+		final FrozenGraph<String, String, String> onHeap =
+				graph.freeze(EdgeRepresentation.LABELLED_CONNECTIONS);
+
+		assertEquals(onHeap.getInvariant(), built.getInvariant());
+		assertEquals(onHeap.getInvariant(), frozen.getInvariant());
+		assertTrue(ISOMORPHISM_EXPECTED, built.isIsomorphism(onHeap));
+		assertTrue(ISOMORPHISM_EXPECTED, frozen.isIsomorphism(built));
+
+		offHeapBuilder.addDirectedEdge(vertex3, vertex2);
+		assertFalse(NO_ISOMORPHISM_EXPECTED, offHeapBuilder.build().isIsomorphism(onHeap));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldNotAcceptNonPositiveMultiplicities() {
+		final int vertex1 = builder.addVertex(NAME1);
+		builder.addParallelEdges(vertex1, vertex1, 0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldFailIfVertexDoesNotExist() {
+		builder.addVertex(NAME1);
+		builder.addDirectedEdge(0, 1);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldNotAcceptEdgeNodesAsVertices() {
+		final int vertex1 = builder.addVertex(NAME1);
+		final int vertex2 = builder.addVertex(NAME2);
+		builder.addDirectedEdge(vertex1, vertex2, NAME3);
+		builder.addDirectedEdge(vertex1, vertex2 + 1);
+	}
+
+}
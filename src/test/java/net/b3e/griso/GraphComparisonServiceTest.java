@@ -0,0 +1,146 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link GraphComparisonService}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class GraphComparisonServiceTest {
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+
+	private static final int THREAD_COUNT = 2;
+	private static final int SMALL_GRAPH_SIZE = 4;
+	private static final int TASK_COUNT = 50;
+	private static final int TIMEOUT = 1;
+
+	private GraphComparisonService service;
+
+	@Before
+	public void setup() {
+		service = new GraphComparisonService(THREAD_COUNT, SMALL_GRAPH_SIZE, 2, 3);
+	}
+
+	@After
+	public void cleanup() throws InterruptedException {
+		service.shutdown();
+		assertTrue(service.awaitTermination(1, TimeUnit.MINUTES));
+	}
+
+	@Test
+	public void shouldCompareSmallAndLargeGraphs() throws Exception {
+		final FrozenGraph<String, String, String> small1 = createCycle(2, "a").freeze();
+		final FrozenGraph<String, String, String> small2 = createCycle(2, "b").freeze();
+		final FrozenGraph<String, String, String> large1 = createCycle(20, "a").freeze();
+		final FrozenGraph<String, String, String> large2 = createCycle(20, "b").freeze();
+		final FrozenGraph<String, String, String> large3 = createCycle(21, "c").freeze();
+
+		final List<Future<IsomorphismResult>> isomorph = new ArrayList<>();
+		final List<Future<IsomorphismResult>> notIsomorph = new ArrayList<>();
+		for (int i = 0; i < TASK_COUNT; ++i) {
+			isomorph.add(service.submit(small1, small2, SearchBudget.UNLIMITED));
+			isomorph.add(service.submit(large1, large2, SearchBudget.UNLIMITED));
+			notIsomorph.add(service.submit(large1, large3, SearchBudget.UNLIMITED));
+			notIsomorph.add(service.submit(small1, large3, SearchBudget.UNLIMITED));
+		}
+
+		for (final Future<IsomorphismResult> result : isomorph) {
+			assertEquals(IsomorphismResult.ISOMORPHIC, result.get());
+		}
+		for (final Future<IsomorphismResult> result : notIsomorph) {
+			assertEquals(IsomorphismResult.NOT_ISOMORPHIC, result.get());
+		}
+	}
+
+	@Test
+	public void shouldCompareGraphs() throws Exception {
+		final Future<IsomorphismResult> result = service.submit(createCycle(3, "a"),
+				createCycle(3, "b"), SearchBudget.UNLIMITED);
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, result.get());
+	}
+
+	@Test
+	public void shouldApplyBudgetToEachCheck() throws Exception {
+		final Future<IsomorphismResult> result = service.submit(createCycle(3, "a"),
+				createCycle(3, "b"), SearchBudget.UNLIMITED.withMaxSearchNodes(0));
+
+		assertEquals(IsomorphismResult.UNKNOWN, result.get());
+	}
+
+	@Test
+	public void shouldMeasureTimeoutFromStartOfCheck() throws Exception {
+		final SearchBudget budget = SearchBudget.UNLIMITED.withTimeout(TIMEOUT, TimeUnit.SECONDS);
+		Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT) + 1);
+
+		final Future<IsomorphismResult> result = service.submit(createCycle(3, "a"),
+				createCycle(3, "b"), budget);
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, result.get());
+	}
+
+	@Test
+	public void shouldUseVirtualThreadsIfRuntimeSupportsThem() {
+		boolean supported;
+		try {
+			((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null)).shutdown();
+			supported = true;
+		} catch (final ReflectiveOperationException e) {
+			supported = false;
+		}
+
+		assertEquals(supported, service.usesVirtualThreads());
+	}
+
+	@Test(expected=RejectedExecutionException.class)
+	public void shouldRejectChecksAfterShutdown() throws InterruptedException {
+		service.shutdown();
+		service.submit(createCycle(2, "a"), createCycle(2, "b"), SearchBudget.UNLIMITED);
+	}
+
+	private static Graph<String, String, String> createCycle(final int length,
+			final String prefix) {
+		final Graph<String, String, String> graph = new Graph<>();
+		for (int i = 0; i < length; ++i) {
+			graph.addVertex(prefix + i, NAME1);
+		}
+		for (int i = 0; i < length; ++i) {
+			graph.addDirectedEdge(prefix + i, prefix + (i + 1) % length, NAME2);
+		}
+		return graph;
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link GraphDumper}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class GraphDumperTest {
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+	private static final String NAME3 = "L3";
+
+	private Graph<String, String, String> graph;
+	private StringBuilder out;
+
+	@Before
+	public void setup() {
+		graph = new Graph<>();
+		out = new StringBuilder();
+	}
+
+	@Test
+	public void shouldWriteVerticesAndEdges() throws IOException {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2");
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addDirectedEdge("1", "2");
+
+		graph.dump(out, DumpOptions.FULL.withMaxVertices(1));
+
+		assertEquals("(1, \"L1\")\n"
+				+ "\t--[\"L3\"]--> (2, \"\")\n"
+				+ "\t----> (2, \"\")\n"
+				+ "... 1 more vertices\n", out.toString());
+	}
+
+	@Test
+	public void shouldTruncateEdges() throws IOException {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addDirectedEdge("1", "2");
+		graph.addDirectedEdge("1", "2");
+		graph.addDirectedEdge("1", "2");
+
+		graph.dump(out, DumpOptions.FULL.withMaxVertices(1).withMaxEdgesPerVertex(1));
+
+		assertTrue(out.toString().startsWith("(1, \"L1\")\n"
+				+ "\t----> (2, \"L2\")\n"
+				+ "\t... 2 more edges\n"));
+	}
+
+	@Test
+	public void shouldWriteSummary() throws IOException {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addVertex("3", NAME2);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addDirectedEdge("1", "3", NAME3);
+		graph.addDirectedEdge("2", "3");
+
+		graph.dump(out, DumpOptions.SUMMARY.withTopNames(1));
+
+		assertEquals("vertices: 3\n"
+				+ "named edges: 2\n"
+				+ "connections from vertices: 3\n"
+				+ "out-degree histogram:\n"
+				+ "\t0: 1\n"
+				+ "\t1: 1\n"
+				+ "\t2-3: 1\n"
+				+ "frequent vertex names:\n"
+				+ "\t\"L2\": 1\n"
+				+ "frequent edge names:\n"
+				+ "\t\"L3\": 2\n", out.toString());
+	}
+
+	@Test
+	public void shouldTruncateToString() {
+		for (int i = 0; i < 2000; ++i) {
+			graph.addVertex(Integer.toString(i));
+		}
+
+		assertTrue(graph.toString().endsWith("... 1000 more vertices\n"));
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for class {@link GraphFeatures}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class GraphFeaturesTest {
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+	private static final String NAME3 = "L3";
+
+	private static final int ROUNDS = 3;
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void shouldComputeSameFeaturesForIsomorphGraphs() {
+		final GraphFeatures features = createPath(5, "a", NAME2).computeFeatures(ROUNDS);
+		final GraphFeatures reversedFeatures = createReversedPath(5, NAME2).computeFeatures(ROUNDS);
+
+		assertEquals(features.dotProduct(features), features.dotProduct(reversedFeatures));
+		assertEquals(1.0, features.similarity(reversedFeatures), DELTA);
+	}
+
+	@Test
+	public void shouldRankSimilarGraphsHigher() {
+		final GraphFeatures features = createPath(6, "a", NAME2).computeFeatures(ROUNDS);
+		final GraphFeatures similar = createPath(5, "b", NAME2).computeFeatures(ROUNDS);
+		final GraphFeatures dissimilar = createPath(6, "c", NAME3).computeFeatures(ROUNDS);
+
+		final double similarity = features.similarity(similar);
+		assertTrue(similarity < 1.0);
+		assertTrue(features.similarity(dissimilar) < similarity);
+	}
+
+	@Test
+	public void shouldCountNodeNamesInRoundZero() {
+		final Graph<String, String, String> graph = new Graph<>();
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME1);
+		graph.addVertex("3", NAME2);
+
+		final GraphFeatures features = graph.computeFeatures(0);
+
+		assertEquals(2, features.size());
+		// 2 * 2 + 1 * 1:
+		assertEquals(5, features.dotProduct(features));
+	}
+
+	@Test
+	public void shouldComputeSameFeaturesForFrozenGraphs() {
+		final Graph<String, String, String> graph = createPath(4, "a", NAME2);
+
+		final GraphFeatures features = graph.computeFeatures(ROUNDS);
+		final GraphFeatures frozenFeatures = graph.freeze().computeFeatures(ROUNDS);
+
+		assertEquals(1.0, features.similarity(frozenFeatures), DELTA);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldNotCompareFeaturesWithDifferentRounds() {
+		final Graph<String, String, String> graph = createPath(4, "a", NAME2);
+
+		graph.computeFeatures(1).dotProduct(graph.computeFeatures(2));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectRoundsWhoseFeatureCountOverflows() {
+		createPath(4, "a", NAME2).computeFeatures(Integer.MAX_VALUE);
+	}
+
+	private static Graph<String, String, String> createPath(final int length,
+			final String prefix, final String edgeName) {
+		final Graph<String, String, String> graph = new Graph<>();
+		for (int i = 0; i < length; ++i) {
+			graph.addVertex(prefix + i, NAME1);
+		}
+		for (int i = 1; i < length; ++i) {
+			graph.addDirectedEdge(prefix + (i - 1), prefix + i, edgeName);
+		}
+		return graph;
+	}
+
+	private static Graph<String, String, String> createReversedPath(final int length,
+			final String edgeName) {
+		final Graph<String, String, String> graph = new Graph<>();
+		for (int i = length - 1; i >= 0; --i) {
+			graph.addVertex(Integer.toString(i), NAME1);
+		}
+		for (int i = length - 1; i > 0; --i) {
+			graph.addDirectedEdge(Integer.toString(i - 1), Integer.toString(i), edgeName);
+		}
+		return graph;
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link GraphIndex}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class GraphIndexTest {
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+
+	private static final int GRAPH_COUNT = 50;
+
+	private GraphIndex<Integer, String, String> index;
+
+	@Before
+	public void setup() {
+		index = new GraphIndex<>();
+		for (int i = 0; i < GRAPH_COUNT; ++i) {
+			index.add(Integer.valueOf(i), createGraph(i, "a").freeze());
+		}
+	}
+
+	@Test
+	public void shouldFindIsomorphGraph() {
+		final Graph<String, String, String> query = createGraph(17, "b");
+
+		assertEquals(Collections.singletonList(Integer.valueOf(17)),
+				index.findIsomorphisms(query));
+	}
+
+	@Test
+	public void shouldRankIsomorphGraphFirst() {
+		final List<Integer> candidates = index.findCandidates(createGraph(23, "b"));
+
+		assertEquals(Integer.valueOf(23), candidates.get(0));
+		assertTrue(candidates.size() < GRAPH_COUNT);
+	}
+
+	@Test
+	public void shouldNotFindUnrelatedGraphs() {
+		final Graph<String, String, String> query = new Graph<>();
+		query.addVertex("x", "X");
+
+		assertTrue(index.findCandidates(query).isEmpty());
+		assertTrue(index.findIsomorphisms(query).isEmpty());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectGraphsWithOtherEdgeRepresentation() {
+		index.add(Integer.valueOf(GRAPH_COUNT),
+				createGraph(1, "a").freeze(EdgeRepresentation.LABELLED_CONNECTIONS));
+	}
+
+	/**
+	 * Creates a cycle with {@code id % 10 + 3} vertices and a tail
+	 * with {@code id / 10} vertices.
+	 */
+	private static Graph<String, String, String> createGraph(final int id, final String prefix) {
+		final Graph<String, String, String> graph = new Graph<>();
+		final int cycleLength = id % 10 + 3;
+		for (int i = 0; i < cycleLength; ++i) {
+			graph.addVertex(prefix + i, NAME1);
+		}
+		for (int i = 0; i < cycleLength; ++i) {
+			graph.addDirectedEdge(prefix + i, prefix + (i + 1) % cycleLength, NAME2);
+		}
+		String previous = prefix + 0;
+		for (int i = 0; i < id / 10; ++i) {
+			graph.addVertex(prefix + "t" + i, NAME2);
+			graph.addDirectedEdge(previous, prefix + "t" + i, NAME1);
+			previous = prefix + "t" + i;
+		}
+		return graph;
+	}
+
+}
@@ -15,9 +15,15 @@
  */
 package net.b3e.griso;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -74,6 +80,52 @@ public void shouldClassifyAnEmptyGraphAsNotIsomorphToANoneEmptyGraph() {
 
 	}
 
+	@Test
+	public void shouldRespectMultiplicitiesOfParallelEdges() {
+		graph1.addVertex("1", NAME1);
+		graph1.addVertex("2", NAME2);
+		graph1.addDirectedEdge("1", "2");
+		graph1.addDirectedEdge("1", "2");
+		graph1.addDirectedEdge("2", "1");
+
+		graph2.addVertex("a", NAME1);
+		graph2.addVertex("b", NAME2);
+		graph2.addDirectedEdge("a", "b");
+		graph2.addDirectedEdge("b", "a");
+		graph2.addDirectedEdge("b", "a");
+
+		assertFalse(NO_ISOMORPHISM_EXPECTED, graph1.isIsomorphism(graph2));
+		assertFalse(NO_ISOMORPHISM_EXPECTED, graph2.isIsomorphism(graph1));
+
+		graph2.addDirectedEdge("a", "b");
+		graph1.addDirectedEdge("2", "1");
+
+		assertTrue(ISOMORPHISM_EXPECTED, graph1.isIsomorphism(graph2));
+		assertTrue(ISOMORPHISM_EXPECTED, graph2.isIsomorphism(graph1));
+	}
+
+	@Test
+	public void shouldCompareBlankNodesWithGroundDecomposition() {
+		final LabellingOptions options = LabellingOptions.DEFAULT.withGroundDecomposition(true);
+		createBlankNodeGraph(graph1, "1", "2", "3", "4");
+		createBlankNodeGraph(graph2, "c", "d", "a", "b");
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(graph2, options,
+				SearchBudget.UNLIMITED, NoOpLabellingListener.INSTANCE, null));
+
+		graph1.addDirectedEdge("3", "4", NAME3);
+		graph2.addDirectedEdge("b", "a", NAME3);
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(graph2, options,
+				SearchBudget.UNLIMITED, NoOpLabellingListener.INSTANCE, null));
+
+		graph1.addDirectedEdge("1", "3", NAME4);
+		graph2.addDirectedEdge("c", "a", NAME4);
+
+		assertEquals(IsomorphismResult.NOT_ISOMORPHIC, graph1.checkIsomorphism(graph2, options,
+				SearchBudget.UNLIMITED, NoOpLabellingListener.INSTANCE, null));
+	}
+
 	@Test
 	public void shouldClassifyIsomorphUniquelyNamedGraphsCorrectly() {
 		graph1.addVertex("1", NAME1);
@@ -335,6 +387,63 @@ public void shouldAllowNullAsEdgeName() {
 		assertTrue(ISOMORPHISM_EXPECTED, graph2.isIsomorphism(graph1));
 	}
 
+	@Test
+	public void shouldReturnResultIfBudgetIsSufficient() {
+		createAmbiguouslyNamedGraph(graph1);
+		createAmbiguouslyNamedGraph(graph2);
+
+		final SearchBudget budget = SearchBudget.UNLIMITED
+				.withTimeout(1, TimeUnit.MINUTES)
+				.withMaxSearchNodes(Long.MAX_VALUE - 1);
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(graph2, budget));
+	}
+
+	@Test
+	public void shouldReturnUnknownIfSearchNodeBudgetIsExhausted() {
+		createSymmetricGraph(graph1);
+		createSymmetricGraph(graph2);
+
+		final SearchBudget budget = SearchBudget.UNLIMITED.withMaxSearchNodes(0);
+
+		assertEquals(IsomorphismResult.UNKNOWN, graph1.checkIsomorphism(graph2, budget));
+	}
+
+	@Test
+	public void shouldReturnUnknownIfDeadlineHasPassed() {
+		createSymmetricGraph(graph1);
+		createSymmetricGraph(graph2);
+
+		final SearchBudget budget = SearchBudget.UNLIMITED.withDeadline(System.nanoTime());
+
+		assertEquals(IsomorphismResult.UNKNOWN, graph1.checkIsomorphism(graph2, budget));
+	}
+
+	@Test
+	public void shouldReturnUnknownIfThreadIsInterrupted() {
+		createSymmetricGraph(graph1);
+		createSymmetricGraph(graph2);
+
+		final SearchBudget budget = SearchBudget.UNLIMITED.interruptible();
+
+		Thread.currentThread().interrupt();
+		try {
+			assertEquals(IsomorphismResult.UNKNOWN, graph1.checkIsomorphism(graph2, budget));
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+	private static void createSymmetricGraph(final Graph<String, String, String> graph) {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addVertex("3", NAME2);
+		graph.addVertex("4", NAME2);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addDirectedEdge("1", "3", NAME3);
+		graph.addDirectedEdge("1", "4", NAME3);
+	}
+
 	private static void createAmbiguouslyNamedGraph(final Graph<String, String, String> graph) {
 		graph.addVertex("1", NAME1);
 		graph.addVertex("2", NAME1);
@@ -347,4 +456,123 @@ private static void createAmbiguouslyNamedGraph(final Graph<String, String, Stri
 		graph.addDirectedEdge("2", "5", NAME5);
 	}
 
+	@Test
+	public void shouldOnlyMapVerticesWithSameColour() {
+		graph1.addVertex("1", NAME1);
+		graph1.addVertex("2", NAME1);
+		graph1.addVertex("3", NAME1);
+		graph1.addDirectedEdge("1", "2", NAME2);
+		graph1.addDirectedEdge("1", "3", NAME2);
+		graph2.addVertex("a", NAME1);
+		graph2.addVertex("b", NAME1);
+		graph2.addVertex("c", NAME1);
+		graph2.addDirectedEdge("a", "b", NAME2);
+		graph2.addDirectedEdge("a", "c", NAME2);
+
+		final Map<String, Integer> colours = new HashMap<>();
+		colours.put("2", Integer.valueOf(1));
+		final Map<String, Integer> matchingColours = new HashMap<>();
+		matchingColours.put("c", Integer.valueOf(1));
+		final Map<String, Integer> otherColours = new HashMap<>();
+		otherColours.put("a", Integer.valueOf(1));
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(colours, graph2,
+				matchingColours, SearchBudget.UNLIMITED));
+		assertEquals(IsomorphismResult.NOT_ISOMORPHIC, graph1.checkIsomorphism(colours, graph2,
+				otherColours, SearchBudget.UNLIMITED));
+		assertEquals(IsomorphismResult.NOT_ISOMORPHIC, graph1.checkIsomorphism(colours, graph2,
+				Collections.<String, Integer>emptyMap(), SearchBudget.UNLIMITED));
+	}
+
+	@Test
+	public void shouldNotSearchIfColoursDistinguishVertices() {
+		graph1.addVertex("1", NAME1);
+		graph1.addVertex("2", NAME1);
+		graph2.addVertex("a", NAME1);
+		graph2.addVertex("b", NAME1);
+
+		final Map<String, Integer> colours = new HashMap<>();
+		colours.put("1", Integer.valueOf(1));
+		colours.put("2", Integer.valueOf(2));
+		final Map<String, Integer> otherColours = new HashMap<>();
+		otherColours.put("a", Integer.valueOf(2));
+		otherColours.put("b", Integer.valueOf(1));
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(colours, graph2,
+				otherColours, SearchBudget.UNLIMITED.withMaxSearchNodes(0)));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectColoursOfUnknownVertices() {
+		graph1.addVertex("1", NAME1);
+		graph2.addVertex("a", NAME1);
+
+		graph1.checkIsomorphism(Collections.singletonMap("2", Integer.valueOf(1)), graph2,
+				Collections.<String, Integer>emptyMap(), SearchBudget.UNLIMITED);
+	}
+
+	@Test
+	public void shouldHandleNullGraphAndSameGraphWithColours() {
+		graph1.addVertex("1", NAME1);
+		final Map<String, Integer> colours = Collections.singletonMap("1", Integer.valueOf(1));
+
+		assertEquals(IsomorphismResult.NOT_ISOMORPHIC, graph1.checkIsomorphism(colours,
+				(Graph<String, String, String>) null, colours, SearchBudget.UNLIMITED));
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(colours, graph1,
+				colours, SearchBudget.UNLIMITED));
+	}
+
+	@Test
+	public void shouldTreatNullColoursAsColourZero() {
+		graph1.addVertex("1", NAME1);
+		graph2.addVertex("a", NAME1);
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(
+				Collections.singletonMap("1", (Integer) null), graph2,
+				Collections.singletonMap("a", Integer.valueOf(0)), SearchBudget.UNLIMITED));
+	}
+
+	@Test
+	public void shouldTreatNullColourMapsAsNoColours() {
+		graph1.addVertex("1", NAME1);
+		graph1.addVertex("2", NAME1);
+		graph2.addVertex("a", NAME1);
+		graph2.addVertex("b", NAME1);
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(null, graph2,
+				Collections.<String, Integer>emptyMap(), SearchBudget.UNLIMITED));
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(
+				Collections.<String, Integer>emptyMap(), graph2, null, SearchBudget.UNLIMITED));
+		assertEquals(IsomorphismResult.NOT_ISOMORPHIC, graph1.checkIsomorphism(null, graph2,
+				Collections.singletonMap("a", Integer.valueOf(1)), SearchBudget.UNLIMITED));
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(null, graph1,
+				Collections.singletonMap("1", Integer.valueOf(0)), SearchBudget.UNLIMITED));
+	}
+
+	@Test
+	public void shouldPassOptionsAndListenerToColouredCheck() {
+		graph1.addVertex("1", NAME1);
+		graph1.addVertex("2", NAME1);
+		graph2.addVertex("a", NAME1);
+		graph2.addVertex("b", NAME1);
+		final LabellingStatistics statistics = new LabellingStatistics();
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(null, graph2, null,
+				LabellingOptions.DEFAULT.withGroundDecomposition(true), SearchBudget.UNLIMITED,
+				statistics));
+		assertEquals(1, statistics.getComparisons());
+	}
+
+	private static void createBlankNodeGraph(final Graph<String, String, String> graph,
+			final String named1, final String named2, final String blank1, final String blank2) {
+		graph.addVertex(named1, NAME1);
+		graph.addVertex(named2, NAME2);
+		graph.addVertex(blank1);
+		graph.addVertex(blank2);
+		graph.addDirectedEdge(named1, blank1, NAME3);
+		graph.addDirectedEdge(named1, blank2, NAME3);
+		graph.addDirectedEdge(blank1, named2, NAME4);
+		graph.addDirectedEdge(blank2, named2, NAME4);
+	}
+
 }
@@ -0,0 +1,141 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link IncrementalRefinement}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class IncrementalRefinementTest {
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+	private static final String NAME3 = "L3";
+
+	private static final int PATH_LENGTH = 1000;
+
+	private IncrementalRefinement<String, String> refinement;
+
+	@Before
+	public void setup() {
+		refinement = new IncrementalRefinement<>();
+		addPath(refinement, PATH_LENGTH);
+	}
+
+	@Test
+	public void shouldCompareFirstVersionWithEmptyGraph() {
+		assertEquals(IsomorphismResult.NOT_ISOMORPHIC, refinement.commit());
+		assertEquals(PATH_LENGTH * (IncrementalRefinement.DEFAULT_ROUNDS + 1),
+				refinement.getRecomputedCount());
+	}
+
+	@Test
+	public void shouldClassifyUnmodifiedVersionAsIsomorph() {
+		refinement.commit();
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, refinement.commit());
+	}
+
+	@Test
+	public void shouldDetectChangedEdges() {
+		refinement.commit();
+
+		refinement.removeDirectedEdge(10, 11, NAME2);
+		refinement.addDirectedEdge(10, 11, NAME3);
+
+		assertEquals(IsomorphismResult.NOT_ISOMORPHIC, refinement.commit());
+	}
+
+	@Test
+	public void shouldOnlyRecomputeColoursNearTheChange() {
+		refinement.commit();
+
+		refinement.removeDirectedEdge(PATH_LENGTH - 2, PATH_LENGTH - 1, NAME2);
+		refinement.addDirectedEdge(PATH_LENGTH - 2, PATH_LENGTH - 1, NAME2);
+
+		assertEquals(IsomorphismResult.UNKNOWN, refinement.commit());
+		assertTrue(refinement.getRecomputedCount() < 5 * IncrementalRefinement.DEFAULT_ROUNDS);
+	}
+
+	@Test
+	public void shouldComputeSameHashAsRefinementFromScratch() {
+		refinement.commit();
+
+		refinement.removeDirectedEdge(500, 501, NAME2);
+		refinement.addDirectedEdge(500, 0, NAME3);
+		final int vertex = refinement.addVertex(NAME2);
+		refinement.addDirectedEdge(vertex, 3, NAME2);
+		refinement.removeDirectedEdge(998, 999, NAME2);
+		refinement.removeVertex(999);
+		refinement.commit();
+
+		final IncrementalRefinement<String, String> expected = new IncrementalRefinement<>();
+		addPath(expected, PATH_LENGTH - 1);
+		expected.removeDirectedEdge(500, 501, NAME2);
+		expected.addDirectedEdge(500, 0, NAME3);
+		expected.addDirectedEdge(expected.addVertex(NAME2), 3, NAME2);
+		expected.commit();
+
+		assertEquals(expected.getHash(), refinement.getHash());
+		assertTrue(expected.build().isIsomorphism(refinement.build()));
+	}
+
+	@Test
+	public void shouldNotDistinguishIsomorphVersions() {
+		final IncrementalRefinement<String, String> star = new IncrementalRefinement<>();
+		final int centre = star.addVertex(NAME1);
+		final int leaf1 = star.addVertex(NAME1);
+		final int leaf2 = star.addVertex(NAME1);
+		star.addDirectedEdge(centre, leaf1, NAME2);
+		star.commit();
+		final FrozenGraph<Integer, String, String> previous = star.build();
+
+		star.removeDirectedEdge(centre, leaf1, NAME2);
+		star.addDirectedEdge(centre, leaf2, NAME2);
+
+		assertEquals(IsomorphismResult.UNKNOWN, star.commit());
+		assertTrue(previous.isIsomorphism(star.build()));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldNotRemoveVerticesWithEdges() {
+		refinement.removeVertex(0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldNotRemoveMissingEdges() {
+		refinement.removeDirectedEdge(1, 0, NAME2);
+	}
+
+	private static void addPath(final IncrementalRefinement<String, String> path,
+			final int length) {
+		for (int i = 0; i < length; ++i) {
+			path.addVertex(NAME1);
+		}
+		for (int i = 1; i < length; ++i) {
+			path.addDirectedEdge(i - 1, i, NAME2);
+		}
+	}
+
+}
@@ -15,7 +15,10 @@
  */
 package net.b3e.griso;
 
-import nl.jqno.equalsverifier.EqualsVerifier;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -27,9 +30,68 @@
  */
 public final class LabelTest {
 
+	private static final int VALUE = -42;
+
+	@Test
+	public void shouldDistinguishFixedAndGeneratedLabelsWithTheSameValue() {
+		final Label.Factory factory = new Label.Factory();
+
+		final long generatedLabel = factory.createGenerated(VALUE);
+		final long fixedLabel = factory.create(Label.getValue(generatedLabel));
+
+		assertFalse("Labels should differ", generatedLabel == fixedLabel);
+		assertTrue(Label.isGenerated(generatedLabel));
+		assertFalse(Label.isGenerated(fixedLabel));
+		assertEquals(Label.getValue(generatedLabel), Label.getValue(fixedLabel));
+	}
+
+	@Test
+	public void shouldPreserveNegativeValues() {
+		final Label.Factory factory = new Label.Factory();
+
+		final long label = factory.create(VALUE);
+
+		assertEquals(VALUE, Label.getValue(label));
+		assertFalse(Label.isGenerated(label));
+	}
+
 	@Test
-	public void shouldAdhereToEqualsContract() {
-		EqualsVerifier.forClass(Label.class).usingGetClass().verify();
+	public void shouldCreateEqualGeneratedLabelsForEqualValues() {
+		final Label.Factory factory = new Label.Factory();
+
+		assertEquals(factory.createGenerated(VALUE), factory.createGenerated(VALUE));
+		assertFalse("Labels should differ",
+				factory.createGenerated(VALUE) == factory.createGenerated(VALUE + 1));
+	}
+
+	@Test
+	public void shouldSortNodesByLabelAndIndex() {
+		final long[] labels = {3, 1, 2, 1, 0};
+		final int[] nodes = {0, 1, 2, 3, 4};
+
+		Label.sortByLabel(nodes, 0, nodes.length, labels);
+
+		assertArrayEquals(new int[] {4, 1, 3, 2, 0}, nodes);
+	}
+
+	@Test
+	public void shouldSortLargeArrays() {
+		final int count = 1000;
+		final long[] labels = new long[count];
+		final int[] nodes = new int[count];
+		for (int i = 0; i < count; ++i) {
+			labels[i] = (i * 7919) % 13;
+			nodes[i] = count - i - 1;
+		}
+
+		Label.sortByLabel(nodes, 0, count, labels);
+
+		for (int i = 1; i < count; ++i) {
+			final long previous = labels[nodes[i - 1]];
+			final long current = labels[nodes[i]];
+			assertTrue("Nodes are not sorted", previous < current
+					|| (previous == current && nodes[i - 1] < nodes[i]));
+		}
 	}
 
 }
@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for class {@link LabellerWorkspace}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class LabellerWorkspaceTest {
+
+	@Test
+	public void shouldReuseReleasedWorkspace() {
+		final LabellerWorkspace workspace = LabellerWorkspace.acquire();
+		workspace.reset(LabellerWorkspace.MAX_RETAINED_CAPACITY);
+		workspace.release();
+
+		final LabellerWorkspace reacquired = LabellerWorkspace.acquire();
+		reacquired.release();
+
+		assertSame(workspace, reacquired);
+	}
+
+	@Test
+	public void shouldReturnNewWorkspaceIfWorkspaceIsInUse() {
+		final LabellerWorkspace workspace = LabellerWorkspace.acquire();
+		final LabellerWorkspace otherWorkspace = LabellerWorkspace.acquire();
+		otherWorkspace.release();
+		workspace.release();
+
+		assertNotSame(workspace, otherWorkspace);
+	}
+
+	@Test
+	public void shouldDropWorkspaceWithLargeBuffersOnRelease() {
+		final LabellerWorkspace workspace = LabellerWorkspace.acquire();
+		workspace.reset(LabellerWorkspace.MAX_RETAINED_CAPACITY + 1);
+		workspace.release();
+
+		final LabellerWorkspace reacquired = LabellerWorkspace.acquire();
+		reacquired.release();
+
+		assertNotSame(workspace, reacquired);
+		assertTrue(reacquired.getLabelling().length <= LabellerWorkspace.MAX_RETAINED_CAPACITY);
+	}
+
+	@Test
+	public void shouldDropWorkspaceWithLargeStacksOnRelease() {
+		final LabellerWorkspace workspace = LabellerWorkspace.acquire();
+		workspace.getAlternatives(LabellerWorkspace.MAX_RETAINED_CAPACITY + 1);
+		workspace.release();
+
+		final LabellerWorkspace reacquired = LabellerWorkspace.acquire();
+		reacquired.release();
+
+		assertNotSame(workspace, reacquired);
+	}
+
+}
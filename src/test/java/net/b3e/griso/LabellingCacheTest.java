@@ -0,0 +1,109 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link LabellingCache}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class LabellingCacheTest {
+
+	private static final String ISOMORPHISM_EXPECTED = "Graphs should be isomorph";
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+	private static final String NAME3 = "L3";
+
+	private static final int CACHE_SIZE = 10;
+
+	private Graph<String, String, String> graph1;
+	private Graph<String, String, String> graph2;
+
+	@Before
+	public void setup() {
+		graph1 = new Graph<>();
+		graph2 = new Graph<>();
+		createSymmetricGraph(graph1, "1", "2", "3");
+		createSymmetricGraph(graph2, "c", "b", "a");
+	}
+
+	@Test
+	public void shouldReuseCachedLabellings() {
+		final LabellingCache cache = LabellingCache.withMaximumSize(CACHE_SIZE);
+
+		assertTrue(ISOMORPHISM_EXPECTED, graph1.isIsomorphism(graph2, cache));
+		assertTrue(ISOMORPHISM_EXPECTED, graph2.isIsomorphism(graph1, cache));
+
+		assertEquals(2, cache.getStats().missCount());
+		assertEquals(2, cache.getStats().hitCount());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void shouldRecomputeLabellingIfGraphWasModified() {
+		final LabellingCache cache = LabellingCache.withMaximumSize(CACHE_SIZE);
+
+		assertTrue(ISOMORPHISM_EXPECTED, graph1.isIsomorphism(graph2, cache));
+		graph2.addDirectedEdge("b", "c");
+
+		assertFalse("Graphs should not be isomorph", graph1.isIsomorphism(graph2, cache));
+		assertEquals(3, cache.getStats().missCount());
+		assertEquals(1, cache.getStats().hitCount());
+	}
+
+	@Test
+	public void shouldCountRecomputationWithOtherOptionsAsMiss() {
+		final LabellingCache cache = LabellingCache.withMaximumSize(CACHE_SIZE);
+		final LabellingOptions options = LabellingOptions.DEFAULT.withPairRefinement(CACHE_SIZE);
+
+		assertTrue(ISOMORPHISM_EXPECTED, graph1.isIsomorphism(graph2, cache));
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(graph2, options,
+				SearchBudget.UNLIMITED, NoOpLabellingListener.INSTANCE, cache));
+
+		assertEquals(4, cache.getStats().missCount());
+		assertEquals(0, cache.getStats().hitCount());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void shouldEvictEntriesIfWeightIsExceeded() {
+		final LabellingCache cache = LabellingCache.withMaximumWeight(CACHE_SIZE);
+
+		assertTrue(ISOMORPHISM_EXPECTED, graph1.isIsomorphism(graph2, cache));
+
+		// Each graph has five nodes and four connections:
+		assertTrue(cache.size() < 2);
+	}
+
+	private static void createSymmetricGraph(final Graph<String, String, String> graph,
+			final String id1, final String id2, final String id3) {
+		graph.addVertex(id1, NAME1);
+		graph.addVertex(id2, NAME2);
+		graph.addVertex(id3, NAME2);
+		graph.addDirectedEdge(id1, id2, NAME3);
+		graph.addDirectedEdge(id1, id3, NAME3);
+	}
+
+}
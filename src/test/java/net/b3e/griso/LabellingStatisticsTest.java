@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link LabellingStatistics}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class LabellingStatisticsTest {
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+	private static final String NAME3 = "L3";
+
+	private Graph<String, String, String> graph1;
+	private Graph<String, String, String> graph2;
+	private LabellingStatistics statistics;
+
+	@Before
+	public void setup() {
+		graph1 = new Graph<>();
+		graph2 = new Graph<>();
+		statistics = new LabellingStatistics();
+	}
+
+	@Test
+	public void shouldCountRefinementRoundsWithoutSearchForDistinguishableGraphs() {
+		createGraph(graph1, NAME2, null);
+		createGraph(graph2, NAME2, null);
+
+		assertTrue(graph1.isIsomorphism(graph2, statistics));
+
+		assertEquals(1, statistics.getComparisons());
+		assertEquals(1, statistics.getLabellingsCompared());
+		assertEquals(0, statistics.getSearchNodes());
+		assertEquals(0, statistics.getBacktracks());
+		assertTrue(statistics.getRefinementRounds() > 0);
+	}
+
+	@Test
+	public void shouldCompareUniquelyNamedGraphsWithoutRefinement() {
+		createGraph(graph1, NAME2, NAME3);
+		createGraph(graph2, NAME2, NAME3);
+
+		assertTrue(graph1.isIsomorphism(graph2, statistics));
+
+		assertEquals(1, statistics.getComparisons());
+		assertEquals(1, statistics.getLabellingsCompared());
+		assertEquals(0, statistics.getRefinementRounds());
+		assertEquals(0, statistics.getSearchNodes());
+	}
+
+	@Test
+	public void shouldCountSearchNodesForAmbiguousGraphs() {
+		createGraph(graph1, NAME2, NAME2);
+		createGraph(graph2, NAME2, NAME2);
+
+		assertTrue(graph1.isIsomorphism(graph2, statistics));
+
+		assertEquals(1, statistics.getComparisons());
+		assertTrue(statistics.getSearchNodes() > 0);
+		assertEquals(1, statistics.getMaxSearchDepth());
+		assertTrue(statistics.getCellsSplit() > 0);
+	}
+
+	@Test
+	public void shouldResetAllCounters() {
+		createGraph(graph1, NAME2, NAME2);
+		createGraph(graph2, NAME2, NAME2);
+		graph1.isIsomorphism(graph2, statistics);
+
+		statistics.reset();
+
+		assertEquals(0, statistics.getComparisons());
+		assertEquals(0, statistics.getRefinementRounds());
+		assertEquals(0, statistics.getSearchNodes());
+		assertEquals(0, statistics.getPhaseTime(LabellingListener.Phase.REFINEMENT));
+	}
+
+	private static void createGraph(final Graph<String, String, String> graph,
+			final String name1, final String name2) {
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", name1);
+		graph.addVertex("3", name2);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addDirectedEdge("1", "3", NAME3);
+	}
+
+}
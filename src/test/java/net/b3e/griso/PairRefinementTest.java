@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link PairRefinement}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class PairRefinementTest {
+
+	private static final LabellingOptions PAIR_REFINEMENT =
+			LabellingOptions.DEFAULT.withPairRefinement(32);
+
+	private Graph<String, String, String> graph1;
+	private Graph<String, String, String> graph2;
+	private LabellingStatistics plainStatistics;
+	private LabellingStatistics pairStatistics;
+
+	@Before
+	public void setup() {
+		graph1 = new Graph<>();
+		graph2 = new Graph<>();
+		plainStatistics = new LabellingStatistics();
+		pairStatistics = new LabellingStatistics();
+	}
+
+	@Test
+	public void shouldReduceSearchForIsomorphRegularGraphs() {
+		addCycle(graph1, "a", 3);
+		addCycle(graph1, "b", 6);
+		addCycle(graph2, "x", 6);
+		addCycle(graph2, "y", 3);
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, check(LabellingOptions.DEFAULT, plainStatistics));
+		assertEquals(IsomorphismResult.ISOMORPHIC, check(PAIR_REFINEMENT, pairStatistics));
+		assertTrue(pairStatistics.getSearchNodes() < plainStatistics.getSearchNodes());
+	}
+
+	@Test
+	public void shouldDistinguishNonIsomorphRegularGraphs() {
+		addCycle(graph1, "a", 3);
+		addCycle(graph1, "b", 3);
+		addCycle(graph2, "x", 6);
+
+		assertEquals(IsomorphismResult.NOT_ISOMORPHIC, check(PAIR_REFINEMENT, pairStatistics));
+	}
+
+	@Test
+	public void shouldNotUsePairRefinementForLargeGraphs() {
+		addCycle(graph1, "a", 3);
+		addCycle(graph1, "b", 6);
+		addCycle(graph2, "x", 6);
+		addCycle(graph2, "y", 3);
+
+		final LabellingOptions options = LabellingOptions.DEFAULT.withPairRefinement(8);
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, check(LabellingOptions.DEFAULT, plainStatistics));
+		assertEquals(IsomorphismResult.ISOMORPHIC, check(options, pairStatistics));
+		assertEquals(plainStatistics.getSearchNodes(), pairStatistics.getSearchNodes());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldNotAcceptNegativeThresholds() {
+		LabellingOptions.DEFAULT.withPairRefinement(-1);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldNotAcceptThresholdsWhosePairCountOverflows() {
+		LabellingOptions.DEFAULT.withPairRefinement(
+				LabellingOptions.MAX_PAIR_REFINEMENT_NODE_COUNT + 1);
+	}
+
+	@Test
+	public void shouldAcceptLargestThreshold() {
+		LabellingOptions.DEFAULT.withPairRefinement(
+				LabellingOptions.MAX_PAIR_REFINEMENT_NODE_COUNT);
+	}
+
+	private IsomorphismResult check(final LabellingOptions options,
+			final LabellingListener listener) {
+		return graph1.checkIsomorphism(graph2, options, SearchBudget.UNLIMITED, listener, null);
+	}
+
+	private static void addCycle(final Graph<String, String, String> graph,
+			final String prefix, final int length) {
+		for (int i = 0; i < length; ++i) {
+			graph.addVertex(prefix + i);
+		}
+		for (int i = 0; i < length; ++i) {
+			graph.addUndirectedEdge(prefix + i, prefix + ((i + 1) % length));
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link SignatureKernel}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class SignatureKernelTest {
+
+	private static final String NAME1 = "L1";
+	private static final String NAME2 = "L2";
+	private static final String NAME3 = "L3";
+
+	private Graph<String, String, String> graph;
+
+	@Before
+	public void setup() {
+		graph = new Graph<>();
+		graph.addVertex("1", NAME1);
+		graph.addVertex("2", NAME2);
+		graph.addVertex("3", NAME2);
+		graph.addVertex("4", NAME1);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addDirectedEdge("1", "2", NAME3);
+		graph.addUndirectedEdge("1", "3", NAME3);
+		graph.addDirectedEdge("3", "2");
+		graph.addDirectedEdge("3", "4");
+		graph.addDirectedEdge("4", "1", NAME1);
+	}
+
+	@Test
+	public void shouldComputeSameValuesAsConnections() {
+		for (final EdgeRepresentation representation : EdgeRepresentation.values()) {
+			final CompactGraph compactGraph = CompactGraph.create(graph.getNodeList(),
+					representation);
+			final int nodeCount = compactGraph.getNodeCount();
+			final int[] labelHashes = new int[nodeCount];
+			for (int node = 0; node < nodeCount; ++node) {
+				labelHashes[node] = Label.mix(node + 1);
+			}
+
+			final SignatureKernel kernel = new SignatureKernel(compactGraph);
+
+			for (int node = 0; node < nodeCount; ++node) {
+				assertEquals(computeSignature(compactGraph, node, labelHashes),
+						kernel.computeSignature(node, labelHashes));
+			}
+		}
+	}
+
+	@Test
+	public void shouldOnlyCreateKernelsForGraphsOnHeap() {
+		assertNotNull(CompactGraph.create(graph.getNodeList(), EdgeRepresentation.NODES,
+				GraphStorage.HEAP).getSignatureKernel());
+		assertNull(CompactGraph.create(graph.getNodeList(), EdgeRepresentation.NODES,
+				GraphStorage.OFF_HEAP).getSignatureKernel());
+	}
+
+	@Test
+	public void shouldCreateSameLabellingsOnAndOffHeap() {
+		final CompactGraph onHeap = CompactGraph.create(graph.getNodeList(),
+				EdgeRepresentation.LABELLED_CONNECTIONS, GraphStorage.HEAP);
+		final CompactGraph offHeap = CompactGraph.create(graph.getNodeList(),
+				EdgeRepresentation.LABELLED_CONNECTIONS, GraphStorage.OFF_HEAP);
+
+		final Labelling labelling = new GraphLabeller(onHeap, LabellingOptions.DEFAULT,
+				NoOpLabellingListener.INSTANCE, BudgetMonitor.UNLIMITED).next();
+		final Labelling offHeapLabelling = new GraphLabeller(offHeap, LabellingOptions.DEFAULT,
+				NoOpLabellingListener.INSTANCE, BudgetMonitor.UNLIMITED).next();
+
+		for (int node = 0; node < onHeap.getNodeCount(); ++node) {
+			assertEquals(labelling.getLabel(node), offHeapLabelling.getLabel(node));
+		}
+	}
+
+	private static int computeSignature(final CompactGraph graph, final int node,
+			final int[] labelHashes) {
+		int value = graph.getNodeHashCode(node);
+		for (int i = 0; i < graph.getSuccessorCount(node); ++i) {
+			int colour = 0;
+			if (graph.hasLabelledConnections()) {
+				colour = graph.getSuccessorEdgeColour(node, i);
+			}
+			value += GraphLabeller.CONNECTION_TO * graph.getSuccessorMultiplicity(node, i)
+					* GraphLabeller.combine(colour, labelHashes[graph.getSuccessor(node, i)]);
+		}
+		for (int i = 0; i < graph.getPredecessorCount(node); ++i) {
+			int colour = 0;
+			if (graph.hasLabelledConnections()) {
+				colour = graph.getPredecessorEdgeColour(node, i);
+			}
+			value += GraphLabeller.CONNECTION_FROM * graph.getPredecessorMultiplicity(node, i)
+					* GraphLabeller.combine(colour, labelHashes[graph.getPredecessor(node, i)]);
+		}
+		return value;
+	}
+
+}
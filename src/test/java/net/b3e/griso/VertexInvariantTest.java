@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2014 Christoph Böhme
+ *
+ *  Licensed under the Apache License, Version 2.0 the "License";
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.b3e.griso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for class {@link VertexInvariant}.
+ *
+ * @author Christoph Böhme
+ *
+ */
+public final class VertexInvariantTest {
+
+	private Graph<String, String, String> graph1;
+	private Graph<String, String, String> graph2;
+	private LabellingStatistics plainStatistics;
+	private LabellingStatistics invariantStatistics;
+
+	@Before
+	public void setup() {
+		graph1 = new Graph<>();
+		graph2 = new Graph<>();
+		plainStatistics = new LabellingStatistics();
+		invariantStatistics = new LabellingStatistics();
+	}
+
+	@Test
+	public void shouldReduceSearchWithTriangles() {
+		addClique(graph1, "a", 3);
+		addCycle(graph1, "b", 6);
+		addCycle(graph2, "x", 6);
+		addClique(graph2, "y", 3);
+
+		assertFewerSearchNodes(VertexInvariant.TRIANGLES);
+	}
+
+	@Test
+	public void shouldReduceSearchWithDistances() {
+		addCycle(graph1, "a", 4);
+		addCycle(graph1, "b", 5);
+		addCycle(graph2, "x", 5);
+		addCycle(graph2, "y", 4);
+
+		assertFewerSearchNodes(VertexInvariant.DISTANCES);
+	}
+
+	@Test
+	public void shouldReduceSearchWithCliques() {
+		addClique(graph1, "a", 4);
+		addCompleteBipartiteGraph(graph1, "b", 3);
+		addCompleteBipartiteGraph(graph2, "x", 3);
+		addClique(graph2, "y", 4);
+
+		assertFewerSearchNodes(VertexInvariant.CLIQUES);
+	}
+
+	@Test
+	public void shouldNotChangeResultForNonIsomorphGraphs() {
+		addClique(graph1, "a", 3);
+		addCycle(graph1, "b", 6);
+		addCycle(graph2, "x", 9);
+
+		final LabellingOptions options = LabellingOptions.DEFAULT.withVertexInvariants(
+				VertexInvariant.TRIANGLES, VertexInvariant.DISTANCES, VertexInvariant.CLIQUES);
+		assertEquals(IsomorphismResult.NOT_ISOMORPHIC, graph1.checkIsomorphism(graph2,
+				options, SearchBudget.UNLIMITED, NoOpLabellingListener.INSTANCE, null));
+	}
+
+	@Test
+	public void shouldRecomputeCachedLabellingsForOtherOptions() {
+		addClique(graph1, "a", 3);
+		addCycle(graph1, "b", 6);
+		addCycle(graph2, "x", 6);
+		addClique(graph2, "y", 3);
+		final FrozenGraph<String, String, String> frozen1 = graph1.freeze();
+		final FrozenGraph<String, String, String> frozen2 = graph2.freeze();
+
+		final LabellingOptions options =
+				LabellingOptions.DEFAULT.withVertexInvariants(VertexInvariant.TRIANGLES);
+		assertTrue(frozen1.isIsomorphism(frozen2));
+		assertEquals(IsomorphismResult.ISOMORPHIC, frozen1.checkIsomorphism(frozen2,
+				options, SearchBudget.UNLIMITED, NoOpLabellingListener.INSTANCE));
+		assertTrue(frozen1.isIsomorphism(frozen2));
+	}
+
+	private void assertFewerSearchNodes(final VertexInvariant invariant) {
+		final LabellingOptions options = LabellingOptions.DEFAULT.withVertexInvariants(invariant);
+
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(graph2,
+				LabellingOptions.DEFAULT, SearchBudget.UNLIMITED, plainStatistics, null));
+		assertEquals(IsomorphismResult.ISOMORPHIC, graph1.checkIsomorphism(graph2,
+				options, SearchBudget.UNLIMITED, invariantStatistics, null));
+
+		assertTrue("Invariant should reduce the number of search nodes",
+				invariantStatistics.getSearchNodes() < plainStatistics.getSearchNodes());
+	}
+
+	private static void addCycle(final Graph<String, String, String> graph,
+			final String prefix, final int length) {
+		for (int i = 0; i < length; ++i) {
+			graph.addVertex(prefix + i);
+		}
+		for (int i = 0; i < length; ++i) {
+			graph.addUndirectedEdge(prefix + i, prefix + ((i + 1) % length));
+		}
+	}
+
+	private static void addClique(final Graph<String, String, String> graph,
+			final String prefix, final int size) {
+		for (int i = 0; i < size; ++i) {
+			graph.addVertex(prefix + i);
+		}
+		for (int i = 0; i < size; ++i) {
+			for (int j = i + 1; j < size; ++j) {
+				graph.addUndirectedEdge(prefix + i, prefix + j);
+			}
+		}
+	}
+
+	private static void addCompleteBipartiteGraph(final Graph<String, String, String> graph,
+			final String prefix, final int size) {
+		for (int i = 0; i < 2 * size; ++i) {
+			graph.addVertex(prefix + i);
+		}
+		for (int i = 0; i < size; ++i) {
+			for (int j = size; j < 2 * size; ++j) {
+				graph.addUndirectedEdge(prefix + i, prefix + j);
+			}
+		}
+	}
+
+}